@@ -0,0 +1,375 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Defines the headless command line entry point of the application, which loads csv files, runs
+ * a list of reports on a pool of worker threads and writes each report to its own csv file. It
+ * uses no JavaFX classes, so it runs on a server without a display:
+ *
+ * <pre>
+ * java application.BatchMain [--out DIR] [--threads N] [--report SPEC]... [--specs FILE] CSV...
+ * </pre>
+ *
+ * Each CSV is a csv file or a folder of them. A report SPEC is one of farm:ID, farm:ID:YEAR,
+ * month:YYYY-MM, month:YYYY, year:YYYY or range:YYYY-MM-DD:YYYY-MM-DD, where * in place of an ID,
+ * YEAR or month stands for every farm, year or month with entries, so farm:*:* is every farm's
+ * report for every year. Without any specs every farm's yearly reports and every month's report
+ * are written. The table is loaded in concurrent mode, so the reports read it without waiting on
+ * each other and the run scales with the number of threads.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class BatchMain {
+  /** the reports run when none are given */
+  static final String[] DEFAULT_SPECS = {"farm:*:*", "month:*"};
+
+  private static final String USAGE = "usage: java application.BatchMain [--out DIR] "
+      + "[--threads N] [--report SPEC]... [--specs FILE] CSV_FILE_OR_FOLDER...";
+  private static final String SUMMARY_FILE = "summary.csv";
+
+  /**
+   * Runs the batch job and exits with its status
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Runs the batch job described by the given arguments
+   *
+   * @param args the command line arguments, without any --batch
+   * @param out  where the progress of the job is written
+   * @param err  where errors are written
+   * @return 0 if every report was written, 1 if any failed and 2 if the arguments or data were
+   *         not usable
+   */
+  public static int run(String[] args, PrintStream out, PrintStream err) {
+    File outDir = new File("reports");
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<String> specs = new ArrayList<>();
+    List<File> inputs = new ArrayList<>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--out":
+            outDir = new File(value(args, ++i));
+            break;
+          case "--threads":
+            threads = Integer.parseInt(value(args, ++i));
+            if (threads < 1) {
+              throw new IllegalArgumentException("--threads must be at least 1");
+            }
+            break;
+          case "--report":
+            specs.add(value(args, ++i));
+            break;
+          case "--specs":
+            specs.addAll(readSpecs(new File(value(args, ++i))));
+            break;
+          default:
+            if (args[i].startsWith("--")) {
+              throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            inputs.add(new File(args[i]));
+        }
+      }
+      if (inputs.isEmpty()) {
+        throw new IllegalArgumentException("No csv files were given");
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return 2;
+    }
+    if (specs.isEmpty()) {
+      specs.addAll(List.of(DEFAULT_SPECS));
+    }
+
+    long start = System.nanoTime();
+    Metrics.DEFAULT.gauge("load.rowsPerSecond", FarmTable::loadRowsPerSecond);
+    FarmTable table = new FarmTable(FarmTable.Storage.OBJECTS, true);
+    List<ReportQuery> queries = new ArrayList<>();
+    try {
+      List<File> files = new ArrayList<>();
+      for (File input : inputs) {
+        files.addAll(input.isDirectory() ? ChunkedCsvLoader.csvFiles(input) : List.of(input));
+      }
+      for (FileLoadResult loaded : table.loadFiles(files, LoadProgress.NONE)) {
+        out.println("loaded " + loaded);
+      }
+      out.println("loaded " + Metrics.DEFAULT.get("load.rowsPerSecond") + " rows a second");
+      Files.createDirectories(outDir.toPath());
+    } catch (Exception e) {
+      err.println("The data could not be loaded: " + e.getMessage());
+      return 2;
+    }
+    try {
+      for (String spec : specs) {
+        queries.addAll(expand(spec, table));
+      }
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return 2;
+    }
+
+    int failed = runAll(queries, new ReportService(table), outDir.toPath(), threads, err);
+    out.printf(Locale.ROOT, "wrote %d of %d reports to %s in %.1f s on %d thread%s%n",
+        queries.size() - failed, queries.size(), outDir, (System.nanoTime() - start) / 1e9,
+        threads, threads == 1 ? "" : "s");
+    return failed == 0 ? 0 : 1;
+  }
+
+  /**
+   * Runs every query on a pool of the given number of threads, writing each report as it
+   * finishes and then a summary with one line per report in the order of queries
+   *
+   * @return the number of reports that could not be written
+   */
+  private static int runAll(List<ReportQuery> queries, ReportService service, Path outDir,
+      int threads, PrintStream err) {
+    AtomicInteger next = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "batch-report-" + next.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    int failed = 0;
+    try {
+      List<Future<String>> summaries = new ArrayList<>(queries.size());
+      for (ReportQuery query : queries) {
+        summaries.add(pool.submit(() -> write(service.run(query), outDir)));
+      }
+      try (BufferedWriter summary = Files.newBufferedWriter(outDir.resolve(SUMMARY_FILE))) {
+        summary.write("report,file,entries,total_weight,min,max,mean,median");
+        summary.newLine();
+        for (int i = 0; i < queries.size(); i++) {
+          try {
+            summary.write(summaries.get(i).get());
+            summary.newLine();
+          } catch (ExecutionException e) {
+            failed++;
+            err.println(queries.get(i) + " failed: " + e.getCause());
+          }
+        }
+      }
+    } catch (IOException e) {
+      err.println("The summary could not be written: " + e.getMessage());
+      failed++;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failed++;
+    } finally {
+      pool.shutdownNow();
+    }
+    return failed;
+  }
+
+  /**
+   * Writes one report to its own csv file under the given folder. A farm report lists the farm's
+   * entries and total weight in each month; the other reports list each farm's entries, total
+   * weight and share of the report's total weight.
+   *
+   * @param result the report to write
+   * @param outDir the folder to write into
+   * @return the report's line of the summary
+   * @throws IOException if the file could not be written
+   */
+  static String write(ReportResult result, Path outDir) throws IOException {
+    ReportQuery query = result.getQuery();
+    WeightStatistics stats = result.getStatistics();
+    Path file = outDir.resolve(fileName(query));
+    Files.createDirectories(file.getParent());
+    try (BufferedWriter csv = Files.newBufferedWriter(file)) {
+      if (query.getType() == ReportQuery.Type.FARM) {
+        csv.write("month,entries,total_weight,percent");
+        csv.newLine();
+        Map<YearMonth, long[]> months = new LinkedHashMap<>();
+        for (Entry entry : result.getRows()) {
+          long[] totals = months.computeIfAbsent(YearMonth.from(entry.getDate()), m -> new long[2]);
+          totals[0]++;
+          totals[1] += entry.getWeight();
+        }
+        for (Map.Entry<YearMonth, long[]> month : months.entrySet()) {
+          writeRow(csv, month.getKey().toString(), month.getValue()[0], month.getValue()[1],
+              stats.getTotal());
+        }
+      } else {
+        csv.write("farm_id,entries,total_weight,percent");
+        csv.newLine();
+        FarmTotals farms = result.getFarmTotals();
+        for (int code : farms.codes()) {
+          writeRow(csv, quoted(farms.getFarmId(code)), farms.getCount(code),
+              farms.getTotal(code), stats.getTotal());
+        }
+      }
+    }
+    return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%.2f,%.1f",
+        quoted(query.toString()), quoted(outDir.relativize(file).toString()), stats.getCount(),
+        stats.getTotal(), stats.getMin(), stats.getMax(), stats.getMean(), stats.getMedian());
+  }
+
+  private static void writeRow(BufferedWriter csv, String key, long count, long total,
+      long reportTotal) throws IOException {
+    double percent = reportTotal == 0 ? 0 : 100.0 * total / reportTotal;
+    csv.write(String.format(Locale.ROOT, "%s,%d,%d,%.2f", key, count, total, percent));
+    csv.newLine();
+  }
+
+  /**
+   * Returns the path of a report's file relative to the output folder, such as month/2019-03.csv.
+   * Farm ids are url-encoded so that every farm gets its own file on any file system.
+   *
+   * @param query the report
+   * @return the relative path of the report's file
+   */
+  static String fileName(ReportQuery query) {
+    LocalDate from = query.getFromDay() == Integer.MIN_VALUE ? null
+        : LocalDate.ofEpochDay(query.getFromDay());
+    switch (query.getType()) {
+      case FARM:
+        String id = encode(query.getFarmId());
+        return "farm/" + (from == null ? id : id + "-" + from.getYear()) + ".csv";
+      case MONTH:
+        return "month/" + YearMonth.from(from) + ".csv";
+      case YEAR:
+        return "year/" + from.getYear() + ".csv";
+      default:
+        return "range/" + from + "_" + LocalDate.ofEpochDay(query.getToDay() - 1) + ".csv";
+    }
+  }
+
+  /**
+   * Returns the queries a report spec stands for, expanding each * over the farms, years or months
+   * of the given table
+   *
+   * @param spec  the report spec
+   * @param table the loaded table
+   * @return the queries of the spec, which may be none
+   * @throws IllegalArgumentException if the spec is not valid
+   */
+  static List<ReportQuery> expand(String spec, FarmTable table) {
+    int colon = spec.indexOf(':');
+    if (colon < 0) {
+      throw new IllegalArgumentException("The report spec " + spec + " has no type");
+    }
+    String type = spec.substring(0, colon);
+    String arg = spec.substring(colon + 1);
+    List<ReportQuery> queries = new ArrayList<>();
+    try {
+      switch (type) {
+        case "farm":
+          // a year is split off the end only if it looks like one, as farm ids may hold colons
+          int last = arg.lastIndexOf(':');
+          String year = last < 0 ? null : arg.substring(last + 1);
+          if (year != null && !year.equals("*") && !year.matches("\\d+")) {
+            year = null;
+          }
+          String farmId = year == null ? arg : arg.substring(0, last);
+          List<String> farmIds = farmId.equals("*")
+              ? new ArrayList<>(new TreeSet<>(table.getFarms().keySet()))
+              : List.of(farmId);
+          for (String id : farmIds) {
+            if (year == null) {
+              queries.add(ReportQuery.farm(id));
+            } else {
+              for (int y : years(year, table)) {
+                queries.add(ReportQuery.farm(id, y));
+              }
+            }
+          }
+          break;
+        case "month":
+          if (arg.equals("*") || arg.matches("\\d+")) {
+            for (int y : years(arg, table)) {
+              for (int m : table.getMonths(y)) {
+                queries.add(ReportQuery.month(y, m));
+              }
+            }
+          } else {
+            YearMonth month = YearMonth.parse(arg);
+            queries.add(ReportQuery.month(month.getYear(), month.getMonthValue()));
+          }
+          break;
+        case "year":
+          for (int y : years(arg, table)) {
+            queries.add(ReportQuery.year(y));
+          }
+          break;
+        case "range":
+          String[] dates = arg.split(":");
+          if (dates.length != 2) {
+            throw new IllegalArgumentException("A range needs two dates: " + spec);
+          }
+          queries.add(ReportQuery.range(LocalDate.parse(dates[0]), LocalDate.parse(dates[1])));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown report type " + type + " in " + spec);
+      }
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new IllegalArgumentException("The report spec " + spec + " is not valid", e);
+    }
+    return queries;
+  }
+
+  private static List<Integer> years(String year, FarmTable table) {
+    return year.equals("*") ? table.getYears() : List.of(Integer.parseInt(year));
+  }
+
+  /**
+   * Returns the report specs in a file, one per line, skipping blank lines and lines starting
+   * with #
+   */
+  private static List<String> readSpecs(File file) throws IOException {
+    List<String> specs = new ArrayList<>();
+    for (String line : Files.readAllLines(file.toPath())) {
+      line = line.trim();
+      if (!line.isEmpty() && !line.startsWith("#")) {
+        specs.add(line);
+      }
+    }
+    return specs;
+  }
+
+  private static String value(String[] args, int i) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException(args[i - 1] + " needs a value");
+    }
+    return args[i];
+  }
+
+  private static String quoted(String field) {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+      return field;
+    }
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+
+  private static String encode(String farmId) {
+    return URLEncoder.encode(farmId, StandardCharsets.UTF_8).replace("*", "%2A");
+  }
+}
@@ -0,0 +1,203 @@
+package application;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Defines a writer of text to a file that encodes straight into a direct ByteBuffer and hands
+ * each full buffer to a FileChannel, so that writing millions of rows creates no Strings or
+ * byte arrays per row. Numbers and epoch days are written as digits without formatting objects.
+ * The buffer is kept by the thread that used it and reused by the next writer that thread opens.
+ * A writer is not safe to use from several threads.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ChannelWriter implements Closeable {
+  /** the number of bytes buffered before they are written to the channel */
+  static final int BUFFER_SIZE = 1 << 16;
+
+  // set to null while a writer on the thread holds the buffer, so that a second writer open at
+  // the same time gets a buffer of its own
+  private static final ThreadLocal<ByteBuffer> SPARE_BUFFER = new ThreadLocal<>();
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] digits = new byte[20];
+  private long written;
+  // the month of the last date written, as rows in date order mostly stay in one month
+  private int monthStart = 1;
+  private int monthEnd = 0;
+  private int year;
+  private int month;
+
+  /**
+   * Opens a writer that replaces the contents of the given file
+   *
+   * @param file the file to write
+   * @throws IOException if the file could not be opened
+   */
+  public ChannelWriter(File file) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    ByteBuffer spare = SPARE_BUFFER.get();
+    if (spare == null) {
+      spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    } else {
+      SPARE_BUFFER.set(null);
+    }
+    this.buffer = spare;
+  }
+
+  /**
+   * Writes one ASCII character
+   *
+   * @param c the character, which must be below 128
+   * @return this writer
+   * @throws IOException if the file could not be written
+   */
+  public ChannelWriter write(char c) throws IOException {
+    ensure(1);
+    buffer.put((byte) c);
+    return this;
+  }
+
+  /**
+   * Writes the given bytes
+   *
+   * @param bytes the bytes to write
+   * @return this writer
+   * @throws IOException if the file could not be written
+   */
+  public ChannelWriter write(byte[] bytes) throws IOException {
+    int pos = 0;
+    while (pos < bytes.length) {
+      ensure(1);
+      int n = Math.min(buffer.remaining(), bytes.length - pos);
+      buffer.put(bytes, pos, n);
+      pos += n;
+    }
+    return this;
+  }
+
+  /**
+   * Writes a string as UTF-8, copying ASCII characters straight into the buffer
+   *
+   * @param text the string to write
+   * @return this writer
+   * @throws IOException if the file could not be written
+   */
+  public ChannelWriter write(String text) throws IOException {
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(i) >= 0x80) {
+        return write(text.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    for (int i = 0; i < length; i++) {
+      ensure(1);
+      buffer.put((byte) text.charAt(i));
+    }
+    return this;
+  }
+
+  /**
+   * Writes a number in decimal
+   *
+   * @param value the number to write
+   * @return this writer
+   * @throws IOException if the file could not be written
+   */
+  public ChannelWriter write(long value) throws IOException {
+    if (value == Long.MIN_VALUE) {
+      return write(Long.toString(value));
+    }
+    ensure(digits.length);
+    if (value < 0) {
+      buffer.put((byte) '-');
+      value = -value;
+    }
+    int n = digits.length;
+    do {
+      digits[--n] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    buffer.put(digits, n, digits.length - n);
+    return this;
+  }
+
+  /**
+   * Writes an epoch day as an ISO date such as 2019-03-07
+   *
+   * @param epochDay the epoch day of a date from year 0 to 9999
+   * @return this writer
+   * @throws IOException if the file could not be written
+   */
+  public ChannelWriter writeDate(int epochDay) throws IOException {
+    if (epochDay < monthStart || epochDay >= monthEnd) {
+      int monthIndex = EpochDays.monthIndex(epochDay);
+      year = EpochDays.yearOf(monthIndex);
+      month = EpochDays.monthOf(monthIndex);
+      monthStart = EpochDays.firstDay(monthIndex);
+      monthEnd = EpochDays.firstDay(monthIndex + 1);
+    }
+    int day = epochDay - monthStart + 1;
+    ensure(10);
+    buffer.put((byte) ('0' + year / 1000)).put((byte) ('0' + year / 100 % 10))
+        .put((byte) ('0' + year / 10 % 10)).put((byte) ('0' + year % 10)).put((byte) '-')
+        .put((byte) ('0' + month / 10)).put((byte) ('0' + month % 10)).put((byte) '-')
+        .put((byte) ('0' + day / 10)).put((byte) ('0' + day % 10));
+    return this;
+  }
+
+  /**
+   * Returns the number of bytes written so far, including any still in the buffer
+   *
+   * @return the number of bytes written
+   */
+  public long getBytesWritten() {
+    return written + buffer.position();
+  }
+
+  /**
+   * Writes the buffered bytes to the channel
+   *
+   * @throws IOException if the file could not be written
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes the buffered bytes and closes the file, giving the buffer back to the thread
+   *
+   * @throws IOException if the file could not be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      buffer.clear();
+      SPARE_BUFFER.set(buffer);
+      channel.close();
+    }
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,450 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Defines a loader that reads a csv file in parallel. The file is split into line-aligned byte
+ * ranges, each range is parsed on a fork-join worker into per-farm partial results, and the partial
+ * results are merged into a FarmTable in file order so that duplicate dates resolve exactly as they
+ * would in a sequential load.
+ *
+ * Several files can be loaded at once. Their ranges are parsed together on the same pool, which
+ * bounds how many run at a time, and merged in the order the files were given, so a later file
+ * wins over an earlier one for the same farm and date just as with Farm.addEntry.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ChunkedCsvLoader {
+  private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+  private static final int PROBE_SIZE = 4096;
+
+  private final ForkJoinPool pool;
+  private final int chunkSize;
+
+  /**
+   * Initializes a loader that runs on the common fork-join pool with the default chunk size
+   */
+  public ChunkedCsvLoader() {
+    this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Initializes a loader that runs on the given pool and splits files into ranges of about the
+   * given number of bytes
+   *
+   * @param pool      the pool to parse the ranges on
+   * @param chunkSize the target number of bytes in each range
+   */
+  public ChunkedCsvLoader(ForkJoinPool pool, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive");
+    }
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Loads the data from the given csv file into the given farm table
+   *
+   * @param csvfile the csv file to load data from
+   * @param table   the farm table to add the entries to
+   * @throws Exception if there was an error reading or parsing the file
+   */
+  public void load(File csvfile, FarmTable table) throws Exception {
+    load(csvfile, table, LoadProgress.NONE);
+  }
+
+  /**
+   * Loads the data from the given csv file into the given farm table, reporting progress to the
+   * given callback after each range is parsed and stopping if it asks to
+   *
+   * @param csvfile  the csv file to load data from
+   * @param table    the farm table to add the entries to
+   * @param progress the callback to report progress to
+   * @throws Exception if there was an error reading or parsing the file
+   */
+  public void load(File csvfile, FarmTable table, LoadProgress progress) throws Exception {
+    load(Collections.singletonList(csvfile), table, progress);
+  }
+
+  /**
+   * Loads the data from the given csv files into the given farm table, reporting progress to the
+   * given callback after each range is parsed and stopping if it asks to. When files have entries
+   * for the same farm and date, the entry from the file later in the list wins.
+   *
+   * @param csvfiles the csv files to load data from, in the order they are applied
+   * @param table    the farm table to add the entries to
+   * @param progress the callback to report progress to
+   * @return the number of rows and parse time of each file, in the order of csvfiles
+   * @throws Exception if there was an error reading or parsing a file
+   */
+  public List<FileLoadResult> load(List<File> csvfiles, FarmTable table, LoadProgress progress)
+      throws Exception {
+    List<long[]> splits = new ArrayList<>(csvfiles.size());
+    long totalBytes = 0;
+    for (File csvfile : csvfiles) {
+      try (FileChannel channel = FileChannel.open(csvfile.toPath(), StandardOpenOption.READ)) {
+        splits.add(split(channel));
+        totalBytes += channel.size();
+      }
+    }
+    Tally tally = new Tally(progress, totalBytes);
+    List<FileStats> stats = new ArrayList<>(csvfiles.size());
+    List<ParseTask> tasks = new ArrayList<>();
+    for (int f = 0; f < csvfiles.size(); f++) {
+      long[] bounds = splits.get(f);
+      FileStats file = new FileStats(csvfiles.get(f), bounds[bounds.length - 1]);
+      stats.add(file);
+      tally.add(bounds[0], 0);
+      for (int i = 0; i + 1 < bounds.length; i++) {
+        tasks.add(new ParseTask(file, bounds[i], bounds[i + 1], table.isByteParser(), tally));
+      }
+    }
+    List<Chunk> chunks;
+    try {
+      chunks = pool.submit(new ParseAll(tasks)).get();
+    } catch (ExecutionException ex) {
+      throw unwrap(ex);
+    }
+    FarmTable.checkCancelled(progress);
+    merge(chunks, table, progress);
+    List<FileLoadResult> results = new ArrayList<>(stats.size());
+    for (FileStats file : stats) {
+      results.add(file.result());
+    }
+    return results;
+  }
+
+  /**
+   * Returns the csv files directly inside the given directory, sorted by name so that loading a
+   * directory always applies its files in the same order
+   *
+   * @param dir the directory to list
+   * @return the csv files in the directory
+   * @throws IOException if dir is not a directory or could not be listed
+   */
+  public static List<File> csvFiles(File dir) throws IOException {
+    File[] files = dir.listFiles(f -> f.isFile() && f.getName().toLowerCase().endsWith(".csv"));
+    if (files == null) {
+      throw new IOException(dir + " is not a readable directory");
+    }
+    Arrays.sort(files, Comparator.comparing(File::getName));
+    return Arrays.asList(files);
+  }
+
+  /**
+   * Returns the line-aligned byte offsets that split the file into ranges, skipping the title line
+   */
+  private long[] split(FileChannel channel) throws IOException {
+    long length = channel.size();
+    long start = nextLineStart(channel, 0);
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(start);
+    long pos = start;
+    while (pos < length) {
+      long next = pos + chunkSize >= length ? length : nextLineStart(channel, pos + chunkSize);
+      bounds.add(next);
+      pos = next;
+    }
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the offset just past the first line break at or after the given offset, or the end of
+   * the file if there is none
+   */
+  private static long nextLineStart(FileChannel channel, long from) throws IOException {
+    ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+    long pos = from;
+    while (true) {
+      probe.clear();
+      int read = channel.read(probe, pos);
+      if (read <= 0) {
+        return channel.size();
+      }
+      for (int i = 0; i < read; i++) {
+        if (probe.get(i) == '\n') {
+          return pos + i + 1;
+        }
+      }
+      pos += read;
+    }
+  }
+
+  /**
+   * Adds every chunk's entries to the table, applying the chunks in file order for each farm
+   */
+  private void merge(List<Chunk> chunks, FarmTable table, LoadProgress progress) {
+    Map<String, List<FarmRows>> byFarm = new LinkedHashMap<>();
+    for (Chunk chunk : chunks) {
+      for (FarmRows rows : chunk.farms.values()) {
+        byFarm.computeIfAbsent(rows.farmId, k -> new ArrayList<>()).add(rows);
+      }
+    }
+    List<MergeTask> tasks = new ArrayList<>();
+    for (Map.Entry<String, List<FarmRows>> e : byFarm.entrySet()) {
+      tasks.add(new MergeTask(table.farmFor(e.getKey()), e.getValue(), progress));
+    }
+    // each farm is written by exactly one task; the rows are added without telling the farms'
+    // listener, since the table's rollup is shared, so it is rebuilt from the farms' rollups
+    // afterwards instead and the table's listeners are told to reload
+    try {
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          ForkJoinTask.invokeAll(tasks);
+        }
+      });
+    } finally {
+      table.reloaded();
+    }
+  }
+
+  private static Exception unwrap(ExecutionException ex) {
+    Throwable cause = ex.getCause();
+    if (cause instanceof UncheckedIOException) {
+      return ((UncheckedIOException) cause).getCause();
+    }
+    if (cause instanceof Exception) {
+      return (Exception) cause;
+    }
+    return ex;
+  }
+
+  /**
+   * Adds up the bytes and rows parsed by every range and reports them to the load's callback
+   */
+  private static class Tally {
+    private final LoadProgress progress;
+    private final long totalBytes;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    private Tally(LoadProgress progress, long totalBytes) {
+      this.progress = progress;
+      this.totalBytes = totalBytes;
+    }
+
+    private void add(long rangeBytes, long rangeRows) {
+      progress.update(bytes.addAndGet(rangeBytes), totalBytes, rows.addAndGet(rangeRows));
+    }
+  }
+
+  /**
+   * The rows parsed from one file so far and the time its ranges took, from the start of the first
+   * range to parse to the end of the last
+   */
+  private static class FileStats {
+    private final File file;
+    private final long bytes;
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastEnd = new AtomicLong(Long.MIN_VALUE);
+
+    private FileStats(File file, long bytes) {
+      this.file = file;
+      this.bytes = bytes;
+    }
+
+    private void add(long start, long end, long rangeRows) {
+      rows.addAndGet(rangeRows);
+      firstStart.accumulateAndGet(start, Math::min);
+      lastEnd.accumulateAndGet(end, Math::max);
+    }
+
+    private FileLoadResult result() {
+      long nanos = lastEnd.get() >= firstStart.get() ? lastEnd.get() - firstStart.get() : 0;
+      return new FileLoadResult(file, bytes, rows.get(), nanos);
+    }
+  }
+
+  /**
+   * The parsed rows of one byte range, grouped by farm in order of first appearance
+   */
+  private static class Chunk {
+    private final Map<String, FarmRows> farms = new LinkedHashMap<>();
+    private FarmRows last;
+    private long rows;
+
+    private void add(String farmId, int day, int weight) {
+      if (last == null || !last.farmId.equals(farmId)) {
+        last = farms.get(farmId);
+        if (last == null) {
+          last = new FarmRows(farmId);
+          farms.put(farmId, last);
+        }
+      }
+      last.add(day, weight);
+      rows++;
+    }
+  }
+
+  /**
+   * The rows of one farm within one byte range, in file order
+   */
+  private static class FarmRows {
+    private final String farmId;
+    private int[] days = new int[64];
+    private int[] weights = new int[64];
+    private int size;
+
+    private FarmRows(String farmId) {
+      this.farmId = farmId;
+    }
+
+    private void add(int day, int weight) {
+      if (size == days.length) {
+        days = Arrays.copyOf(days, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      days[size] = day;
+      weights[size] = weight;
+      size++;
+    }
+  }
+
+  /**
+   * Parses every range and returns the chunks in file order
+   */
+  private static class ParseAll extends RecursiveTask<List<Chunk>> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<ParseTask> tasks;
+
+    private ParseAll(List<ParseTask> tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected List<Chunk> compute() {
+      ForkJoinTask.invokeAll(tasks);
+      List<Chunk> chunks = new ArrayList<>(tasks.size());
+      for (ParseTask task : tasks) {
+        chunks.add(task.join());
+      }
+      return chunks;
+    }
+  }
+
+  /**
+   * Reads and parses one line-aligned byte range of a file
+   */
+  private static class ParseTask extends RecursiveTask<Chunk> {
+    private static final long serialVersionUID = 1L;
+
+    private final FileStats file;
+    private final long start;
+    private final long end;
+    private final boolean byteParser;
+    private final Tally tally;
+
+    private ParseTask(FileStats file, long start, long end, boolean byteParser, Tally tally) {
+      this.file = file;
+      this.start = start;
+      this.end = end;
+      this.byteParser = byteParser;
+      this.tally = tally;
+    }
+
+    @Override
+    protected Chunk compute() {
+      FarmTable.checkCancelled(tally.progress);
+      long startNanos = System.nanoTime();
+      ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+      // each range opens the file itself, so a directory of files never holds many open at once
+      try (FileChannel channel = FileChannel.open(file.file.toPath(), StandardOpenOption.READ)) {
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, start + buffer.position()) < 0) {
+            break;
+          }
+        }
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      Chunk chunk = new Chunk();
+      if (byteParser) {
+        new CsvLineParser().parse(buffer.array(), 0, buffer.position(), true, chunk::add);
+      } else {
+        parseStrings(buffer.array(), buffer.position(), chunk);
+      }
+      file.add(startNanos, System.nanoTime(), chunk.rows);
+      tally.add(end - start, chunk.rows);
+      return chunk;
+    }
+
+    private static void parseStrings(byte[] bytes, int length, Chunk chunk) {
+      Charset charset = Charset.defaultCharset();
+      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
+      int lineStart = 0;
+      while (lineStart < length) {
+        int lineEnd = lineStart;
+        while (lineEnd < length && bytes[lineEnd] != '\n') {
+          lineEnd++;
+        }
+        int next = lineEnd + 1;
+        if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+          lineEnd--;
+        }
+        String line = new String(bytes, lineStart, lineEnd - lineStart, charset);
+        String[] data = line.split(",");
+        chunk.add(data[1], (int) LocalDate.parse(data[0], formatter).toEpochDay(),
+            Integer.parseInt(data[2]));
+        lineStart = next;
+      }
+    }
+  }
+
+  /**
+   * Applies one farm's rows from every chunk to the farm, in chunk order
+   */
+  private static class MergeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Farm farm;
+    private final List<FarmRows> parts;
+    private final LoadProgress progress;
+
+    private MergeTask(Farm farm, List<FarmRows> parts, LoadProgress progress) {
+      this.farm = farm;
+      this.parts = parts;
+      this.progress = progress;
+    }
+
+    @Override
+    protected void compute() {
+      FarmTable.checkCancelled(progress);
+      for (FarmRows rows : parts) {
+        for (int i = 0; i < rows.size; i++) {
+          farm.loadWeight(rows.days[i], rows.weights[i]);
+        }
+      }
+      // each farm's rows are sorted and merged here, in parallel with the other farms'
+      farm.finishLoad();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Defines an EntryStore that keeps a farm's entries as two primitive columns, epoch days and
+ * weights, sorted by day. A reading costs 8 bytes instead of an Entry object, a LocalDate and a
+ * reference to the farm id. Entries handed out by this store are copies made on request, so
+ * changing one does not change the store.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ColumnarStore implements EntryStore {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String farmId;
+  private int[] days;
+  private int[] weights;
+  private int size;
+
+  /**
+   * Initializes a new, empty store for the given farm
+   *
+   * @param farmId the id of the farm whose entries are stored
+   */
+  public ColumnarStore(String farmId) {
+    this.farmId = farmId;
+    this.days = new int[INITIAL_CAPACITY];
+    this.weights = new int[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int find(int epochDay) {
+    // fast path for appends in date order
+    if (size == 0 || epochDay > days[size - 1]) {
+      return -size - 1;
+    }
+    return Arrays.binarySearch(days, 0, size, epochDay);
+  }
+
+  @Override
+  public int dayAt(int pos) {
+    return days[pos];
+  }
+
+  @Override
+  public int weightAt(int pos) {
+    return weights[pos];
+  }
+
+  @Override
+  public Entry entryAt(int pos) {
+    return new Entry(LocalDate.ofEpochDay(days[pos]), farmId, weights[pos]);
+  }
+
+  @Override
+  public boolean holds(int pos, Entry entry) {
+    return weights[pos] == entry.getWeight();
+  }
+
+  @Override
+  public void insert(int pos, int epochDay, int weight, Entry entry) {
+    if (size == days.length) {
+      // grow by half rather than doubling to keep the unused tail of large columns small
+      int capacity = days.length + (days.length >> 1);
+      days = Arrays.copyOf(days, capacity);
+      weights = Arrays.copyOf(weights, capacity);
+    }
+    if (pos < size) {
+      System.arraycopy(days, pos, days, pos + 1, size - pos);
+      System.arraycopy(weights, pos, weights, pos + 1, size - pos);
+    }
+    days[pos] = epochDay;
+    weights[pos] = weight;
+    size++;
+  }
+
+  @Override
+  public void setWeight(int pos, int weight) {
+    weights[pos] = weight;
+  }
+
+  @Override
+  public void remove(int pos) {
+    int moved = size - pos - 1;
+    if (moved > 0) {
+      System.arraycopy(days, pos + 1, days, pos, moved);
+      System.arraycopy(weights, pos + 1, weights, pos, moved);
+    }
+    size--;
+  }
+
+  @Override
+  public void merge(int[] batchDays, int[] batchWeights, int n) {
+    int added = 0;
+    for (int j = 0; j < n; j++) {
+      if (find(batchDays[j]) < 0) {
+        added++;
+      }
+    }
+    ensureCapacity(size + added);
+    int i = size - 1;
+    int w = size + added - 1;
+    for (int j = n - 1; j >= 0; w--) {
+      if (i >= 0 && days[i] > batchDays[j]) {
+        days[w] = days[i];
+        weights[w] = weights[i--];
+      } else {
+        if (i >= 0 && days[i] == batchDays[j]) {
+          i--;
+        }
+        days[w] = batchDays[j];
+        weights[w] = batchWeights[j--];
+      }
+    }
+    size += added;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    // two int arrays with their headers
+    return 2 * (16 + 4L * days.length);
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    if (capacity > days.length) {
+      days = Arrays.copyOf(days, capacity);
+      weights = Arrays.copyOf(weights, capacity);
+    }
+  }
+}
@@ -0,0 +1,353 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Defines a parser that reads lines of the form yyyy-M-d,farmId,weight straight out of a byte
+ * array into primitives. It accepts the same lines as the String based parsing in
+ * FarmTable.loadData, but creates no objects per line: dates become epoch days, weights become
+ * ints, and each distinct farm id is decoded to a String only the first time it is seen.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class CsvLineParser {
+
+  /**
+   * Receives the rows read by a CsvLineParser
+   */
+  public interface RowHandler {
+    /**
+     * Called once for each line that was parsed
+     *
+     * @param farmId   the id of the farm, shared by every row of the same farm
+     * @param epochDay the date of the row as a count of days from 1970-01-01
+     * @param weight   the recorded weight
+     */
+    void row(String farmId, int epochDay, int weight);
+  }
+
+  private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+  private static final int READ_BUFFER_SIZE = 1 << 20;
+
+  private final Charset charset;
+  private byte[][] idBytes = new byte[64][];
+  private String[] idStrings = new String[64];
+  private int[] idHashes = new int[64];
+  private int idCount;
+  private long rows;
+
+  /**
+   * Initializes a parser that decodes farm ids with the platform's default charset, the same one
+   * FileReader uses
+   */
+  public CsvLineParser() {
+    this(Charset.defaultCharset());
+  }
+
+  /**
+   * Initializes a parser that decodes farm ids with the given charset
+   *
+   * @param charset the charset the csv file is encoded in
+   */
+  public CsvLineParser(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Parses a whole csv file, skipping its title line, by reading it sequentially into a reused
+   * byte buffer. Only the buffer and the distinct farm ids are held, so files of any size can be
+   * parsed in bounded memory.
+   *
+   * @param csvfile  the csv file to parse
+   * @param handler  the handler to pass each parsed row to
+   * @param progress the callback to report progress to and check for cancellation
+   * @throws IOException if there was an error reading the file
+   */
+  public void parseFile(File csvfile, RowHandler handler, LoadProgress progress)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(csvfile.toPath(), StandardOpenOption.READ)) {
+      long totalBytes = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+      boolean skippedTitle = false;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        FarmTable.checkCancelled(progress);
+        endOfInput = channel.read(buffer) < 0;
+        byte[] bytes = buffer.array();
+        int start = 0;
+        int end = buffer.position();
+        if (!skippedTitle) {
+          while (start < end && bytes[start] != '\n') {
+            start++;
+          }
+          if (start == end && !endOfInput) {
+            if (!buffer.hasRemaining()) {
+              buffer = grow(buffer);
+            }
+            continue;
+          }
+          skippedTitle = true;
+          start++;
+        }
+        int parsed = parse(bytes, Math.min(start, end), end, endOfInput, handler);
+        buffer.limit(end).position(parsed);
+        buffer.compact();
+        if (!endOfInput && !buffer.hasRemaining()) {
+          buffer = grow(buffer);
+        }
+        progress.update(channel.position() - buffer.position(), totalBytes, rows);
+      }
+    }
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer) {
+    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    larger.put(buffer);
+    return larger;
+  }
+
+  /**
+   * Parses every line in buf between from and to. When endOfInput is false, a last line without a
+   * line break is left unparsed so the caller can complete it with the next read.
+   *
+   * @param buf        the bytes to parse
+   * @param from       the offset of the first byte of the first line
+   * @param to         the offset just past the last byte to parse
+   * @param endOfInput true if no more bytes follow the given range
+   * @param handler    the handler to pass each parsed row to
+   * @return the offset of the first byte that was not parsed
+   */
+  public int parse(byte[] buf, int from, int to, boolean endOfInput, RowHandler handler) {
+    int lineStart = from;
+    while (lineStart < to) {
+      int lineEnd = lineStart;
+      while (lineEnd < to && buf[lineEnd] != '\n') {
+        lineEnd++;
+      }
+      if (lineEnd == to && !endOfInput) {
+        return lineStart;
+      }
+      int next = lineEnd + 1;
+      if (lineEnd > lineStart && buf[lineEnd - 1] == '\r') {
+        lineEnd--;
+      }
+      parseLine(buf, lineStart, lineEnd, handler);
+      lineStart = next;
+    }
+    return Math.min(lineStart, to);
+  }
+
+  /**
+   * Parses a single line, which must not include its line break
+   *
+   * @param buf     the bytes holding the line
+   * @param from    the offset of the first byte of the line
+   * @param to      the offset just past the last byte of the line
+   * @param handler the handler to pass the parsed row to
+   */
+  public void parseLine(byte[] buf, int from, int to, RowHandler handler) {
+    int dateEnd = indexOf(buf, from, to, (byte) ',');
+    if (dateEnd < 0) {
+      throw fieldMissing(buf, from, to);
+    }
+    int idEnd = indexOf(buf, dateEnd + 1, to, (byte) ',');
+    if (idEnd < 0) {
+      throw fieldMissing(buf, from, to);
+    }
+    int weightEnd = indexOf(buf, idEnd + 1, to, (byte) ',');
+    if (weightEnd < 0) {
+      weightEnd = to;
+    }
+    int day = parseDate(buf, from, dateEnd);
+    int weight = parseWeight(buf, idEnd + 1, weightEnd);
+    handler.row(farmId(buf, dateEnd + 1, idEnd), day, weight);
+    rows++;
+  }
+
+  /**
+   * Returns the number of lines this parser has parsed
+   *
+   * @return the number of lines this parser has parsed
+   */
+  public long rowsParsed() {
+    return rows;
+  }
+
+  /**
+   * Returns the number of distinct farm ids this parser has decoded
+   *
+   * @return the number of distinct farm ids this parser has decoded
+   */
+  public int distinctFarmIds() {
+    return idCount;
+  }
+
+  private static int indexOf(byte[] buf, int from, int to, byte b) {
+    for (int i = from; i < to; i++) {
+      if (buf[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses yyyy-M-d into an epoch day, adjusting a day past the end of its month to the last day
+   * of the month as LocalDate.parse does
+   */
+  private int parseDate(byte[] buf, int from, int to) {
+    int pos = from;
+    int year = 0;
+    for (int i = 0; i < 4; i++, pos++) {
+      if (pos >= to || !isDigit(buf[pos])) {
+        throw badDate(buf, from, to);
+      }
+      year = year * 10 + (buf[pos] - '0');
+    }
+    if (year == 0 || pos >= to || buf[pos] != '-') {
+      throw badDate(buf, from, to);
+    }
+    int monthStart = ++pos;
+    int month = 0;
+    while (pos < to && isDigit(buf[pos]) && month <= 12) {
+      month = month * 10 + (buf[pos++] - '0');
+    }
+    if (pos == monthStart || month < 1 || month > 12 || pos >= to || buf[pos] != '-') {
+      throw badDate(buf, from, to);
+    }
+    int dayStart = ++pos;
+    int day = 0;
+    while (pos < to && isDigit(buf[pos]) && day <= 31) {
+      day = day * 10 + (buf[pos++] - '0');
+    }
+    if (pos == dayStart || pos != to || day < 1 || day > 31) {
+      throw badDate(buf, from, to);
+    }
+    int length = DAYS_IN_MONTH[month - 1];
+    if (month == 2 && EpochDays.isLeapYear(year)) {
+      length = 29;
+    }
+    return EpochDays.of(year, month, Math.min(day, length));
+  }
+
+  /**
+   * Parses a weight with the same rules as Integer.parseInt
+   */
+  private static int parseWeight(byte[] buf, int from, int to) {
+    int pos = from;
+    boolean negative = false;
+    if (pos < to && (buf[pos] == '-' || buf[pos] == '+')) {
+      negative = buf[pos] == '-';
+      pos++;
+    }
+    if (pos >= to) {
+      throw badWeight(buf, from, to);
+    }
+    long value = 0;
+    while (pos < to) {
+      if (!isDigit(buf[pos])) {
+        throw badWeight(buf, from, to);
+      }
+      value = value * 10 + (buf[pos++] - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        throw badWeight(buf, from, to);
+      }
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE) {
+      throw badWeight(buf, from, to);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Returns the String for the farm id in the given bytes, decoding it only if it has not been
+   * seen before
+   */
+  private String farmId(byte[] buf, int from, int to) {
+    int hash = 1;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + buf[i];
+    }
+    int mask = idBytes.length - 1;
+    int slot = mix(hash) & mask;
+    while (idBytes[slot] != null) {
+      if (idHashes[slot] == hash && sameBytes(idBytes[slot], buf, from, to)) {
+        return idStrings[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    String id = new String(buf, from, to - from, charset);
+    idBytes[slot] = Arrays.copyOfRange(buf, from, to);
+    idStrings[slot] = id;
+    idHashes[slot] = hash;
+    if (++idCount * 2 > idBytes.length) {
+      grow();
+    }
+    return id;
+  }
+
+  private void grow() {
+    byte[][] oldBytes = idBytes;
+    String[] oldStrings = idStrings;
+    int[] oldHashes = idHashes;
+    idBytes = new byte[oldBytes.length * 2][];
+    idStrings = new String[oldBytes.length * 2];
+    idHashes = new int[oldBytes.length * 2];
+    int mask = idBytes.length - 1;
+    for (int i = 0; i < oldBytes.length; i++) {
+      if (oldBytes[i] != null) {
+        int slot = mix(oldHashes[i]) & mask;
+        while (idBytes[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        idBytes[slot] = oldBytes[i];
+        idStrings[slot] = oldStrings[i];
+        idHashes[slot] = oldHashes[i];
+      }
+    }
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean sameBytes(byte[] known, byte[] buf, int from, int to) {
+    if (known.length != to - from) {
+      return false;
+    }
+    for (int i = 0; i < known.length; i++) {
+      if (known[i] != buf[from + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private RuntimeException fieldMissing(byte[] buf, int from, int to) {
+    return new IllegalArgumentException(
+        "Expected date,farmId,weight but found: " + new String(buf, from, to - from, charset));
+  }
+
+  private RuntimeException badDate(byte[] buf, int from, int to) {
+    String text = new String(buf, from, to - from, charset);
+    return new DateTimeParseException("Text '" + text + "' could not be parsed", text, 0);
+  }
+
+  private static RuntimeException badWeight(byte[] buf, int from, int to) {
+    return new NumberFormatException(
+        "For input string: \"" + new String(buf, from, to - from) + "\"");
+  }
+}
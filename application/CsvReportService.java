@@ -0,0 +1,205 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines the report logic over csv files that are read as the report runs instead of being loaded
+ * into a FarmTable first, for archives too large to hold as Entry objects. Each file is parsed
+ * once, in order, with the same CsvLineParser rules as FarmTable.loadData, and only the rows the
+ * query covers are kept: as a farm code and epoch day key and a weight in a primitive hash table
+ * that is at most half full, 24 to 48 bytes a row. A later row for the same farm and date
+ * replaces an earlier one, as it does when loading, so the totals and statistics match those of
+ * ReportService over the loaded files. The result has no Entry rows.
+ *
+ * Since every kept row must be remembered to find the later rows that replace it, memory grows
+ * with the rows a query covers rather than with the files. A query that covers more than the
+ * service's row limit is rejected once the limit is passed, before the table grows further.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class CsvReportService {
+  /** the default row limit, which keeps the hash table of a query under about 200 MB */
+  public static final int DEFAULT_MAX_ROWS = 1 << 22;
+
+  private final List<File> csvfiles;
+  private final int maxRows;
+
+  /**
+   * Initializes a report service over the given csv files that keeps at most DEFAULT_MAX_ROWS
+   * rows per query
+   *
+   * @param csvfiles the csv files to report on, in the order they would be loaded
+   */
+  public CsvReportService(List<File> csvfiles) {
+    this(csvfiles, DEFAULT_MAX_ROWS);
+  }
+
+  /**
+   * Initializes a report service over the given csv files that keeps at most the given number of
+   * rows per query
+   *
+   * @param csvfiles the csv files to report on, in the order they would be loaded
+   * @param maxRows  the most distinct farm and date rows a query may cover
+   * @throws IllegalArgumentException if maxRows is less than 1
+   */
+  public CsvReportService(List<File> csvfiles, int maxRows) {
+    if (maxRows < 1) {
+      throw new IllegalArgumentException("maxRows must be at least 1");
+    }
+    this.csvfiles = new ArrayList<>(csvfiles);
+    this.maxRows = maxRows;
+  }
+
+  /**
+   * Runs the given query in one pass over the csv files. Memory grows with the distinct farm and
+   * date rows the query covers, 24 to 48 bytes each, so a query covering more than the service's
+   * row limit is rejected; narrow its dates or farm, or load the files into a FarmTable.
+   *
+   * @param query the report to generate
+   * @return the statistics and per-farm totals of the report, with no rows
+   * @throws IOException              if there was an error reading a file
+   * @throws IllegalArgumentException if the query covers more rows than the row limit
+   */
+  public ReportResult run(ReportQuery query) throws IOException {
+    return run(query, LoadProgress.NONE);
+  }
+
+  /**
+   * Runs the given query in one pass over the csv files, reporting how many bytes have been read.
+   * As with run(query), a query covering more than the row limit is rejected.
+   *
+   * @param query    the report to generate
+   * @param progress the callback to report progress to and check for cancellation
+   * @return the statistics and per-farm totals of the report, with no rows
+   * @throws IOException              if there was an error reading a file
+   * @throws IllegalArgumentException if the query covers more rows than the row limit
+   */
+  public ReportResult run(ReportQuery query, LoadProgress progress) throws IOException {
+    long totalBytes = 0;
+    for (File csvfile : csvfiles) {
+      totalBytes += csvfile.length();
+    }
+    FarmIdDictionary ids = new FarmIdDictionary();
+    RowWeights covered = new RowWeights(maxRows);
+    CsvLineParser parser = new CsvLineParser();
+    CsvLineParser.RowHandler handler = new CsvLineParser.RowHandler() {
+      private String lastId;
+      private int lastCode;
+
+      @Override
+      public void row(String farmId, int epochDay, int weight) {
+        if (epochDay < query.getFromDay() || epochDay >= query.getToDay()) {
+          return;
+        }
+        // the parser returns the same String for every row of a farm
+        if (farmId != lastId) {
+          lastId = farmId;
+          lastCode = query.isSingleFarm() && !query.getFarmId().equals(farmId) ? -1
+              : ids.codeOf(farmId);
+        }
+        if (lastCode >= 0) {
+          covered.put(lastCode, epochDay, weight);
+        }
+      }
+    };
+    long done = 0;
+    for (File csvfile : csvfiles) {
+      long before = done;
+      long total = totalBytes;
+      parser.parseFile(csvfile, handler, new LoadProgress() {
+        @Override
+        public void update(long bytesRead, long totalFileBytes, long rows) {
+          progress.update(before + bytesRead, total, rows);
+        }
+
+        @Override
+        public boolean isCancelled() {
+          return progress.isCancelled();
+        }
+      });
+      done += csvfile.length();
+    }
+    return covered.toResult(query, ids);
+  }
+
+  /**
+   * Defines an open addressing hash table from a farm code and epoch day to the latest weight read
+   * for them, kept in parallel primitive arrays, that refuses to hold more than a limit of rows
+   */
+  private static class RowWeights {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int maxRows;
+    private long[] keys = newKeys(1 << 10);
+    private int[] weights = new int[1 << 10];
+    private int size;
+
+    private RowWeights(int maxRows) {
+      this.maxRows = maxRows;
+    }
+
+    private static long[] newKeys(int capacity) {
+      long[] keys = new long[capacity];
+      Arrays.fill(keys, EMPTY);
+      return keys;
+    }
+
+    private void put(int code, int epochDay, int weight) {
+      long key = ((long) code << 32) | (epochDay & 0xFFFFFFFFL);
+      int slot = indexOf(keys, key);
+      boolean added = keys[slot] == EMPTY;
+      if (added && size == maxRows) {
+        throw new IllegalArgumentException("the report covers more than " + maxRows
+            + " rows; narrow its dates or farm, or load the files instead");
+      }
+      keys[slot] = key;
+      weights[slot] = weight;
+      if (added && ++size * 2 > keys.length) {
+        grow();
+      }
+    }
+
+    private static int indexOf(long[] keys, long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      int mask = keys.length - 1;
+      int slot = (int) (h ^ (h >>> 32)) & mask;
+      while (keys[slot] != EMPTY && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      int[] oldWeights = weights;
+      keys = newKeys(oldKeys.length * 2);
+      weights = new int[keys.length];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != EMPTY) {
+          int slot = indexOf(keys, oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          weights[slot] = oldWeights[i];
+        }
+      }
+    }
+
+    private ReportResult toResult(ReportQuery query, FarmIdDictionary ids) {
+      int[] covered = new int[size];
+      int n = 0;
+      FarmTotals byFarm = new FarmTotals(ids);
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != EMPTY) {
+          covered[n++] = weights[i];
+          byFarm.add((int) (keys[i] >>> 32), 1, weights[i]);
+        }
+      }
+      return new ReportResult(query, Collections.<Entry>emptyList(),
+          WeightStatistics.ofOwned(covered, n), byFarm);
+    }
+  }
+}
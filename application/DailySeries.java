@@ -0,0 +1,241 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Defines a time series of the weight recorded on each day, for one farm or averaged over every
+ * farm of a report, holding only the days that have entries. A series is never changed once
+ * built, so it can be built and downsampled on a background thread and drawn on the JavaFX
+ * thread. Charts draw a downsampled copy with about one point per pixel, picked by
+ * Largest-Triangle-Three-Buckets so that peaks and dips survive.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class DailySeries {
+  private final String name;
+  private final int[] days;
+  private final long[] weights;
+
+  /**
+   * Initializes a series over the given days and weights
+   *
+   * @param name    the name of the series
+   * @param days    the epoch days, in ascending order
+   * @param weights the weight of each day
+   */
+  DailySeries(String name, int[] days, long[] weights) {
+    this.name = name;
+    this.days = days;
+    this.weights = weights;
+  }
+
+  /**
+   * Returns the series of a report: the daily totals of the report's largest farms after the
+   * daily average entry of every farm, which is on the same scale, or only the farm's own series
+   * for a single-farm report
+   *
+   * @param result the report
+   * @param farms  the largest number of farms to give a series of their own
+   * @return the series of the report, with the every-farm series first
+   */
+  public static List<DailySeries> of(ReportResult result, int farms) {
+    List<Entry> rows = result.getRows();
+    List<DailySeries> series = new ArrayList<>();
+    if (rows.isEmpty()) {
+      return series;
+    }
+    if (result.getQuery().isSingleFarm()) {
+      series.add(build(result.getQuery().getFarmId(), rows, null, false));
+      return series;
+    }
+    series.add(build("Average of all farms", rows, null, true));
+    FarmTotals totals = result.getFarmTotals();
+    for (int code : totals.topCodes(farms)) {
+      series.add(build(totals.getFarmId(code), rows, totals.getFarmId(code), false));
+    }
+    return series;
+  }
+
+  /**
+   * Adds up, or averages, the weights of each day of the given rows, keeping only those of the
+   * given farm if it is not null
+   */
+  private static DailySeries build(String name, List<Entry> rows, String farmId,
+      boolean average) {
+    int first = Integer.MAX_VALUE;
+    int last = Integer.MIN_VALUE;
+    for (Entry row : rows) {
+      if (farmId == null || farmId.equals(row.getFarmId())) {
+        int day = (int) row.getDate().toEpochDay();
+        first = Math.min(first, day);
+        last = Math.max(last, day);
+      }
+    }
+    if (first > last) {
+      return new DailySeries(name, new int[0], new long[0]);
+    }
+    // rows come farm by farm, so the days are added up by offset rather than sorted
+    long[] totals = new long[last - first + 1];
+    int[] entries = new int[totals.length];
+    int count = 0;
+    for (Entry row : rows) {
+      if (farmId == null || farmId.equals(row.getFarmId())) {
+        int offset = (int) row.getDate().toEpochDay() - first;
+        totals[offset] += row.getWeight();
+        if (entries[offset]++ == 0) {
+          count++;
+        }
+      }
+    }
+    int[] days = new int[count];
+    long[] weights = new long[count];
+    int n = 0;
+    for (int offset = 0; offset < totals.length; offset++) {
+      if (entries[offset] > 0) {
+        days[n] = first + offset;
+        weights[n++] = average ? Math.round((double) totals[offset] / entries[offset])
+            : totals[offset];
+      }
+    }
+    return new DailySeries(name, days, weights);
+  }
+
+  /**
+   * Returns the name of the series
+   *
+   * @return the name of the series
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the number of days in the series
+   *
+   * @return the number of days with entries
+   */
+  public int size() {
+    return days.length;
+  }
+
+  /**
+   * Returns the epoch day at the given position
+   *
+   * @param i the position, from 0 to size() - 1
+   * @return the epoch day
+   */
+  public int getDay(int i) {
+    return days[i];
+  }
+
+  /**
+   * Returns the weight of the day at the given position
+   *
+   * @param i the position, from 0 to size() - 1
+   * @return the weight of the day
+   */
+  public long getWeight(int i) {
+    return weights[i];
+  }
+
+  /**
+   * Returns the first day of the series
+   *
+   * @return the first epoch day, or 0 if the series is empty
+   */
+  public int getFirstDay() {
+    return days.length == 0 ? 0 : days[0];
+  }
+
+  /**
+   * Returns the last day of the series
+   *
+   * @return the last epoch day, or 0 if the series is empty
+   */
+  public int getLastDay() {
+    return days.length == 0 ? 0 : days[days.length - 1];
+  }
+
+  /**
+   * Returns at most the given number of points of this series between two days, picked by
+   * Largest-Triangle-Three-Buckets. The day just outside each end is kept too, so a line drawn
+   * through the points runs to the edges of the range.
+   *
+   * @param fromDay the first day to include
+   * @param toDay   the last day to include
+   * @param points  the largest number of points to return, about the width of the chart in pixels
+   * @return the downsampled series, which is this series if it already fits
+   */
+  public DailySeries downsample(int fromDay, int toDay, int points) {
+    int from = Math.max(lowerBound(fromDay) - 1, 0);
+    int to = Math.min(lowerBound(toDay + 1) + 1, days.length);
+    if (to - from <= Math.max(points, 2)) {
+      if (from == 0 && to == days.length) {
+        return this;
+      }
+      return new DailySeries(name, Arrays.copyOfRange(days, from, to),
+          Arrays.copyOfRange(weights, from, to));
+    }
+    int[] picked = largestTriangles(from, to, Math.max(points, 3));
+    int[] sampledDays = new int[picked.length];
+    long[] sampledWeights = new long[picked.length];
+    for (int i = 0; i < picked.length; i++) {
+      sampledDays[i] = days[picked[i]];
+      sampledWeights[i] = weights[picked[i]];
+    }
+    return new DailySeries(name, sampledDays, sampledWeights);
+  }
+
+  /**
+   * Picks the given number of positions from [from, to): the first and last, then from each of
+   * the equal buckets between them the point making the largest triangle with the point picked in
+   * the bucket before and the average of the bucket after
+   */
+  private int[] largestTriangles(int from, int to, int points) {
+    int[] picked = new int[points];
+    int n = 0;
+    picked[n++] = from;
+    double bucket = (double) (to - from - 2) / (points - 2);
+    int a = from;
+    for (int b = 0; b < points - 2; b++) {
+      int start = from + 1 + (int) (b * bucket);
+      int end = b == points - 3 ? to - 1 : from + 1 + (int) ((b + 1) * bucket);
+      int nextEnd = Math.min(from + 1 + (int) ((b + 2) * bucket), to);
+      // the average of the next bucket, or the last point for the last bucket
+      double avgX = 0;
+      double avgY = 0;
+      int next = Math.max(nextEnd - end, 1);
+      for (int i = end; i < end + next && i < to; i++) {
+        avgX += days[i];
+        avgY += weights[i];
+      }
+      avgX /= next;
+      avgY /= next;
+      double ax = days[a];
+      double ay = weights[a];
+      double largest = -1;
+      int chosen = start;
+      for (int i = start; i < end; i++) {
+        double area = Math.abs((ax - avgX) * (weights[i] - ay) - (ax - days[i]) * (avgY - ay));
+        if (area > largest) {
+          largest = area;
+          chosen = i;
+        }
+      }
+      picked[n++] = chosen;
+      a = chosen;
+    }
+    picked[n++] = to - 1;
+    return picked;
+  }
+
+  /**
+   * Returns the position of the first day on or after the given day
+   */
+  private int lowerBound(int day) {
+    int pos = Arrays.binarySearch(days, day);
+    return pos >= 0 ? pos : -pos - 1;
+  }
+}
@@ -0,0 +1,164 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Defines an EntryStore that keeps a farm's Entry objects in a sorted index keyed by their date,
+ * stored as primitive epoch days. Lookups are binary searches over the key array, and appending a
+ * date later than every stored date (the usual case when loading a csv file in date order) is
+ * amortized constant time. Inserting or removing an earlier date shifts the entries after it.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class DateIndex implements EntryStore {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String farmId;
+  private final boolean replaceOnWrite;
+  private int[] days;
+  private Entry[] entries;
+  private int size;
+
+  /**
+   * Initializes a new, empty date index for the given farm
+   *
+   * @param farmId the id of the farm whose entries are indexed
+   */
+  public DateIndex(String farmId) {
+    this(farmId, false);
+  }
+
+  /**
+   * Initializes a new, empty date index for the given farm. If replaceOnWrite is true a changed
+   * weight is stored in a new Entry rather than set on the old one, so entries already handed out
+   * never change; a concurrent farm needs this, as its entries are read outside its lock.
+   *
+   * @param farmId         the id of the farm whose entries are indexed
+   * @param replaceOnWrite true to replace an entry whose weight changes instead of changing it
+   */
+  public DateIndex(String farmId, boolean replaceOnWrite) {
+    this.farmId = farmId;
+    this.replaceOnWrite = replaceOnWrite;
+    this.days = new int[INITIAL_CAPACITY];
+    this.entries = new Entry[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int find(int epochDay) {
+    // fast path for appends in date order
+    if (size == 0 || epochDay > days[size - 1]) {
+      return -size - 1;
+    }
+    return Arrays.binarySearch(days, 0, size, epochDay);
+  }
+
+  @Override
+  public int dayAt(int pos) {
+    return days[pos];
+  }
+
+  @Override
+  public Entry entryAt(int pos) {
+    return entries[pos];
+  }
+
+  @Override
+  public int weightAt(int pos) {
+    return entries[pos].getWeight();
+  }
+
+  @Override
+  public boolean holds(int pos, Entry entry) {
+    return entries[pos] == entry;
+  }
+
+  @Override
+  public void insert(int pos, int epochDay, int weight, Entry entry) {
+    if (entry == null) {
+      entry = new Entry(LocalDate.ofEpochDay(epochDay), farmId, weight);
+    } else if (entry.getFarmId() != farmId && farmId.equals(entry.getFarmId())) {
+      // share the farm's id rather than keeping one String per parsed line
+      entry.setFarmId(farmId);
+    }
+    if (size == days.length) {
+      int capacity = days.length * 2;
+      days = Arrays.copyOf(days, capacity);
+      entries = Arrays.copyOf(entries, capacity);
+    }
+    if (pos < size) {
+      System.arraycopy(days, pos, days, pos + 1, size - pos);
+      System.arraycopy(entries, pos, entries, pos + 1, size - pos);
+    }
+    days[pos] = epochDay;
+    entries[pos] = entry;
+    size++;
+  }
+
+  @Override
+  public void setWeight(int pos, int weight) {
+    if (replaceOnWrite) {
+      entries[pos] = new Entry(LocalDate.ofEpochDay(days[pos]), farmId, weight);
+    } else {
+      entries[pos].setWeight(weight);
+    }
+  }
+
+  @Override
+  public void remove(int pos) {
+    int moved = size - pos - 1;
+    if (moved > 0) {
+      System.arraycopy(days, pos + 1, days, pos, moved);
+      System.arraycopy(entries, pos + 1, entries, pos, moved);
+    }
+    size--;
+    entries[size] = null;
+  }
+
+  @Override
+  public void merge(int[] batchDays, int[] batchWeights, int n) {
+    int added = 0;
+    for (int j = 0; j < n; j++) {
+      if (find(batchDays[j]) < 0) {
+        added++;
+      }
+    }
+    ensureCapacity(size + added);
+    int i = size - 1;
+    int w = size + added - 1;
+    for (int j = n - 1; j >= 0; w--) {
+      if (i >= 0 && days[i] > batchDays[j]) {
+        days[w] = days[i];
+        entries[w] = entries[i--];
+      } else if (i >= 0 && days[i] == batchDays[j]) {
+        days[w] = days[i];
+        entries[w] = entries[i--];
+        setWeight(w, batchWeights[j--]);
+      } else {
+        days[w] = batchDays[j];
+        entries[w] = new Entry(LocalDate.ofEpochDay(batchDays[j]), farmId, batchWeights[j--]);
+      }
+    }
+    size += added;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    // the day and reference arrays, then an Entry and its LocalDate for each entry
+    return 16 + 4L * days.length + 16 + 4L * entries.length + (24 + 24) * (long) size;
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    if (capacity > days.length) {
+      days = Arrays.copyOf(days, capacity);
+      entries = Arrays.copyOf(entries, capacity);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Defines a sorted set of epoch days that keeps a count of how many entries fall on each day, so
+ * that removing one of several entries on a day keeps the day and removing the last one drops it.
+ * The days are kept in a sorted int array, so they can be listed or cut to a range without looking
+ * at any entries. The total weight of each day is kept alongside its count, and running totals of
+ * both give the number of entries and total weight of any range of days from two binary searches.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class DistinctDays {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] days;
+  private int[] counts;
+  private long[] weights;
+  private int size;
+  private PrefixSums countSums;
+  private PrefixSums weightSums;
+
+  /**
+   * Initializes an empty set of days
+   */
+  public DistinctDays() {
+    this.days = new int[INITIAL_CAPACITY];
+    this.counts = new int[INITIAL_CAPACITY];
+    this.weights = new long[INITIAL_CAPACITY];
+    this.size = 0;
+    this.countSums = new PrefixSums();
+    this.weightSums = new PrefixSums();
+  }
+
+  /**
+   * Records one more entry on the given day, adding the day if it is new
+   *
+   * @param epochDay the day of the entry
+   * @param weight   the weight of the entry
+   */
+  public void add(int epochDay, int weight) {
+    // entries mostly arrive in date order, so check the last day before searching
+    int pos = size > 0 && days[size - 1] == epochDay ? size - 1
+        : Arrays.binarySearch(days, 0, size, epochDay);
+    if (pos >= 0) {
+      counts[pos]++;
+      weights[pos] += weight;
+      invalidateFrom(pos);
+      return;
+    }
+    pos = -pos - 1;
+    if (size == days.length) {
+      days = Arrays.copyOf(days, size * 2);
+      counts = Arrays.copyOf(counts, size * 2);
+      weights = Arrays.copyOf(weights, size * 2);
+    }
+    System.arraycopy(days, pos, days, pos + 1, size - pos);
+    System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+    System.arraycopy(weights, pos, weights, pos + 1, size - pos);
+    days[pos] = epochDay;
+    counts[pos] = 1;
+    weights[pos] = weight;
+    size++;
+    invalidateFrom(pos);
+  }
+
+  /**
+   * Records one entry on each day of the given store, merging its days into this set in one pass
+   * rather than searching for each one
+   *
+   * @param store the store whose days to add
+   */
+  public void addAll(EntryStore store) {
+    int n = store.size();
+    if (n == 0) {
+      return;
+    }
+    int[] mergedDays = new int[Math.max(size + n, INITIAL_CAPACITY)];
+    int[] mergedCounts = new int[mergedDays.length];
+    long[] mergedWeights = new long[mergedDays.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < size || j < n) {
+      if (j == n || (i < size && days[i] < store.dayAt(j))) {
+        mergedDays[k] = days[i];
+        mergedWeights[k] = weights[i];
+        mergedCounts[k] = counts[i++];
+      } else if (i == size || store.dayAt(j) < days[i]) {
+        mergedDays[k] = store.dayAt(j);
+        mergedWeights[k] = store.weightAt(j++);
+        mergedCounts[k] = 1;
+      } else {
+        mergedDays[k] = days[i];
+        mergedWeights[k] = weights[i] + store.weightAt(j++);
+        mergedCounts[k] = counts[i++] + 1;
+      }
+      k++;
+    }
+    days = mergedDays;
+    counts = mergedCounts;
+    weights = mergedWeights;
+    size = k;
+    invalidateFrom(0);
+  }
+
+  /**
+   * Changes the weight of one entry on the given day
+   *
+   * @param epochDay  the day of the entry
+   * @param oldWeight the entry's weight before the change
+   * @param newWeight the entry's weight after the change
+   */
+  public void update(int epochDay, int oldWeight, int newWeight) {
+    int pos = Arrays.binarySearch(days, 0, size, epochDay);
+    if (pos >= 0) {
+      weights[pos] += (long) newWeight - oldWeight;
+      invalidateFrom(pos);
+    }
+  }
+
+  /**
+   * Records one less entry on the given day, dropping the day if it has no entries left
+   *
+   * @param epochDay the day of the removed entry
+   * @param weight   the weight of the removed entry
+   */
+  public void remove(int epochDay, int weight) {
+    int pos = Arrays.binarySearch(days, 0, size, epochDay);
+    if (pos < 0) {
+      return;
+    }
+    weights[pos] -= weight;
+    if (--counts[pos] == 0) {
+      System.arraycopy(days, pos + 1, days, pos, size - pos - 1);
+      System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+      System.arraycopy(weights, pos + 1, weights, pos, size - pos - 1);
+      size--;
+    }
+    invalidateFrom(pos);
+  }
+
+  /**
+   * Removes every day
+   */
+  public void clear() {
+    size = 0;
+    invalidateFrom(0);
+  }
+
+  private void invalidateFrom(int pos) {
+    countSums.invalidateFrom(pos);
+    weightSums.invalidateFrom(pos);
+  }
+
+  /**
+   * Returns the number of distinct days
+   *
+   * @return the number of distinct days
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the days from the given day up to but not including the other, in ascending order
+   *
+   * @param fromDay the first day to include
+   * @param toDay   the first day to leave out
+   * @return the days in the range
+   */
+  public int[] between(int fromDay, int toDay) {
+    int from = Arrays.binarySearch(days, 0, size, fromDay);
+    int to = Arrays.binarySearch(days, 0, size, toDay);
+    from = from >= 0 ? from : -from - 1;
+    to = to >= 0 ? to : -to - 1;
+    return Arrays.copyOfRange(days, from, Math.max(from, to));
+  }
+
+  /**
+   * Returns the number of entries and total weight from the given day up to but not including the
+   * other
+   *
+   * @param fromDay the first day to include
+   * @param toDay   the first day to leave out
+   * @return the number of entries and total weight in the range
+   */
+  public RangeTotals totalsBetween(int fromDay, int toDay) {
+    int from = Arrays.binarySearch(days, 0, size, fromDay);
+    int to = Arrays.binarySearch(days, 0, size, toDay);
+    from = from >= 0 ? from : -from - 1;
+    to = to >= 0 ? to : -to - 1;
+    return new RangeTotals(countSums.sum(from, to, i -> counts[i]),
+        weightSums.sum(from, to, i -> weights[i]));
+  }
+
+  /**
+   * Returns every day in ascending order
+   *
+   * @return every day
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(days, size);
+  }
+}
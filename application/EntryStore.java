@@ -0,0 +1,113 @@
+package application;
+
+/**
+ * Defines the storage behind a single Farm: the farm's entries kept sorted by date, with at most
+ * one entry per date. Positions are indexes into that date order. Lookups are binary searches;
+ * insert and remove shift the entries after the position, so bulk loads sort their rows and merge
+ * them in with one call instead of inserting them one at a time.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public interface EntryStore {
+
+  /**
+   * Returns the number of entries in this store
+   *
+   * @return the number of entries in this store
+   */
+  int size();
+
+  /**
+   * Returns the position of the entry with the given epoch day, or (-(insertion point) - 1) if
+   * there is no entry for that day
+   *
+   * @param epochDay the epoch day to search for
+   * @return the position of the entry, or (-(insertion point) - 1) if it is not present
+   */
+  int find(int epochDay);
+
+  /**
+   * Returns the epoch day stored at the given position
+   *
+   * @param pos the position in the store
+   * @return the epoch day stored at the position
+   */
+  int dayAt(int pos);
+
+  /**
+   * Returns the weight stored at the given position
+   *
+   * @param pos the position in the store
+   * @return the weight stored at the position
+   */
+  int weightAt(int pos);
+
+  /**
+   * Returns an Entry for the given position. Stores that do not keep Entry objects return a new
+   * Entry holding a copy of the position's values.
+   *
+   * @param pos the position in the store
+   * @return an Entry for the position
+   */
+  Entry entryAt(int pos);
+
+  /**
+   * Returns true if the given entry is the one stored at the given position
+   *
+   * @param pos   the position in the store
+   * @param entry the entry to compare against
+   * @return true if the entry is the one stored at the position
+   */
+  boolean holds(int pos, Entry entry);
+
+  /**
+   * Inserts an entry at the given position, which must be the insertion point returned by find
+   *
+   * @param pos      the insertion point for the entry
+   * @param epochDay the epoch day of the entry
+   * @param weight   the weight of the entry
+   * @param entry    the Entry object for the values if the caller has one, or null
+   */
+  void insert(int pos, int epochDay, int weight, Entry entry);
+
+  /**
+   * Changes the weight stored at the given position
+   *
+   * @param pos    the position in the store
+   * @param weight the new weight
+   */
+  void setWeight(int pos, int weight);
+
+  /**
+   * Removes the entry at the given position
+   *
+   * @param pos the position of the entry to remove
+   */
+  void remove(int pos);
+
+  /**
+   * Puts a batch of entries into the store in one backward pass, replacing the weight of each day
+   * that is already stored. Only the stored entries after the batch's first day move, and each
+   * moves once, so a batch costs O(n + k) however its days interleave with the stored ones.
+   *
+   * @param days    the days of the batch, ascending and without repeats
+   * @param weights the weight of each day of the batch
+   * @param n       the number of entries in the batch
+   */
+  void merge(int[] days, int[] weights, int n);
+
+  /**
+   * Makes room for at least the given number of entries, so a caller that knows how many entries
+   * it is about to add avoids repeated growth
+   *
+   * @param capacity the number of entries to make room for
+   */
+  void ensureCapacity(int capacity);
+
+  /**
+   * Returns an estimate of the heap used by this store's arrays and the objects they hold
+   *
+   * @return the estimated number of bytes used
+   */
+  long estimatedBytes();
+}
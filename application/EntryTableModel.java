@@ -0,0 +1,133 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Defines a live list of every entry in a FarmTable for the data screen's TableView. The list is
+ * kept sorted by date and then farm id, and follows the table through a FarmListener: adding,
+ * changing or removing one entry inserts, replaces or removes one row, found by binary search,
+ * instead of rebuilding the list.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class EntryTableModel implements FarmListener {
+  /** the order of the rows: by date, then by farm id */
+  public static final Comparator<Entry> ORDER =
+      Comparator.comparing(Entry::getDate).thenComparing(Entry::getFarmId);
+
+  private final ObservableList<Entry> rows = FXCollections.observableArrayList();
+  private FarmTable table;
+
+  /**
+   * Returns the rows of the table this model is bound to, sorted by date and then farm id
+   *
+   * @return the rows of the bound table
+   */
+  public ObservableList<Entry> getRows() {
+    return rows;
+  }
+
+  /**
+   * Makes this model follow the given table instead of the one it followed before, replacing
+   * every row
+   *
+   * @param table the table to follow
+   */
+  public void bind(FarmTable table) {
+    if (this.table != null) {
+      this.table.removeListener(this);
+    }
+    this.table = table;
+    table.addListener(this);
+    reload();
+  }
+
+  private void reload() {
+    List<Entry> all = new ArrayList<>();
+    for (Farm farm : table.getFarms().values()) {
+      all.addAll(farm.getEntries());
+    }
+    all.sort(ORDER);
+    rows.setAll(all);
+  }
+
+  @Override
+  public void entryAdded(Farm farm, int epochDay, int weight) {
+    Entry row = new Entry(LocalDate.ofEpochDay(epochDay), farm.getID(), weight);
+    onFxThread(() -> {
+      int pos = find(epochDay, farm.getID());
+      if (pos < 0) {
+        rows.add(-pos - 1, row);
+      } else {
+        rows.set(pos, row);
+      }
+    });
+  }
+
+  @Override
+  public void entryChanged(Farm farm, int epochDay, int oldWeight, int newWeight) {
+    Entry row = new Entry(LocalDate.ofEpochDay(epochDay), farm.getID(), newWeight);
+    onFxThread(() -> {
+      int pos = find(epochDay, farm.getID());
+      if (pos >= 0) {
+        rows.set(pos, row);
+      } else {
+        rows.add(-pos - 1, row);
+      }
+    });
+  }
+
+  @Override
+  public void entryRemoved(Farm farm, int epochDay, int weight) {
+    onFxThread(() -> {
+      int pos = find(epochDay, farm.getID());
+      if (pos >= 0) {
+        rows.remove(pos);
+      }
+    });
+  }
+
+  @Override
+  public void entriesReloaded(FarmTable table) {
+    onFxThread(this::reload);
+  }
+
+  /**
+   * Returns the position of the row for the given date and farm, or (-(insertion point) - 1) if
+   * there is none
+   */
+  private int find(int epochDay, String farmId) {
+    int lo = 0;
+    int hi = rows.size() - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      Entry row = rows.get(mid);
+      int cmp = Long.compare(row.getDate().toEpochDay(), epochDay);
+      if (cmp == 0) {
+        cmp = row.getFarmId().compareTo(farmId);
+      }
+      if (cmp < 0) {
+        lo = mid + 1;
+      } else if (cmp > 0) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -lo - 1;
+  }
+
+  private static void onFxThread(Runnable change) {
+    if (Platform.isFxApplicationThread()) {
+      change.run();
+    } else {
+      Platform.runLater(change);
+    }
+  }
+}
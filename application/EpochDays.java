@@ -0,0 +1,107 @@
+package application;
+
+/**
+ * Defines helpers for working with dates stored as epoch days (a count of days from 1970-01-01)
+ * without creating LocalDate objects. Months are numbered by a month index, year * 12 + (month -
+ * 1), so that consecutive months have consecutive indexes.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public final class EpochDays {
+  private static final int DAYS_0000_TO_1970 = 719528;
+
+  private EpochDays() {}
+
+  /**
+   * Returns the epoch day of the given date, computed the same way as LocalDate.toEpochDay
+   *
+   * @param year  the year, from 0
+   * @param month the month of the year, from 1 to 12
+   * @param day   the day of the month, from 1
+   * @return the epoch day of the date
+   */
+  public static int of(int year, int month, int day) {
+    long y = year;
+    long total = 365 * y;
+    total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!isLeapYear(year)) {
+        total--;
+      }
+    }
+    return (int) (total - DAYS_0000_TO_1970);
+  }
+
+  /**
+   * Returns the month index of the month containing the given epoch day
+   *
+   * @param epochDay the epoch day
+   * @return the month index of the day's month
+   */
+  public static int monthIndex(int epochDay) {
+    // civil-from-days over 400 year eras, with years starting on March 1
+    long z = epochDay + 719468L;
+    long era = Math.floorDiv(z, 146097);
+    long doe = z - era * 146097;
+    long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    long mp = (5 * doy + 2) / 153;
+    long month = mp < 10 ? mp + 3 : mp - 9;
+    long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+    return (int) (year * 12 + month - 1);
+  }
+
+  /**
+   * Returns the month index of the given month
+   *
+   * @param year  the year
+   * @param month the month of the year, from 1 to 12
+   * @return the month index of the month
+   */
+  public static int monthIndex(int year, int month) {
+    return year * 12 + month - 1;
+  }
+
+  /**
+   * Returns the year of the given month index
+   *
+   * @param monthIndex the month index
+   * @return the year the month is in
+   */
+  public static int yearOf(int monthIndex) {
+    return Math.floorDiv(monthIndex, 12);
+  }
+
+  /**
+   * Returns the month of the year, from 1 to 12, of the given month index
+   *
+   * @param monthIndex the month index
+   * @return the month of the year
+   */
+  public static int monthOf(int monthIndex) {
+    return Math.floorMod(monthIndex, 12) + 1;
+  }
+
+  /**
+   * Returns the epoch day of the first day of the given month index
+   *
+   * @param monthIndex the month index
+   * @return the epoch day of the first day of the month
+   */
+  public static int firstDay(int monthIndex) {
+    return of(yearOf(monthIndex), monthOf(monthIndex), 1);
+  }
+
+  /**
+   * Returns true if the given year is a leap year in the ISO calendar
+   *
+   * @param year the year
+   * @return true if the year is a leap year
+   */
+  public static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+}
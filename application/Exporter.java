@@ -0,0 +1,239 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Defines the export of a whole FarmTable or of one report to a csv or json file. Rows are
+ * streamed through a ChannelWriter, so an export of any size holds one buffer and one farm id at a
+ * time. Csv files use the same date,farm_id,weight columns as the files the table loads, so an
+ * export can be loaded again. Main refuses farm ids holding a comma, quote or line break, which the
+ * loader cannot read; such an id from data saved before then is still quoted as in RFC 4180. Json
+ * files hold an array of row objects, and a report's json file also holds the report's statistics.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class Exporter {
+
+  /**
+   * The file formats an export can be written in
+   */
+  public enum Format {
+    CSV, JSON;
+
+    /**
+     * Returns the format named by the extension of the given file, .json for json and anything
+     * else for csv
+     *
+     * @param file the file to export to
+     * @return the format of the file
+     */
+    public static Format of(File file) {
+      return file.getName().toLowerCase(Locale.ROOT).endsWith(".json") ? JSON : CSV;
+    }
+  }
+
+  private static final String CSV_HEADER = "date,farm_id,weight\n";
+
+  private final Format format;
+
+  /**
+   * Initializes an exporter that writes the given format
+   *
+   * @param format the format to write
+   */
+  public Exporter(Format format) {
+    this.format = format;
+  }
+
+  /**
+   * Returns the format this exporter writes
+   *
+   * @return the format this exporter writes
+   */
+  public Format getFormat() {
+    return format;
+  }
+
+  /**
+   * Writes every entry of the given table to the given file, farm by farm in order of farm id and
+   * by date within each farm. Each farm of a concurrent table is locked only while its own rows
+   * are written.
+   *
+   * @param table the table to export
+   * @param file  the file to write, which is replaced
+   * @return the number of rows written
+   * @throws IOException if the file could not be written
+   */
+  public long exportTable(FarmTable table, File file) throws IOException {
+    long start = System.nanoTime();
+    long rows = 0;
+    try (ChannelWriter out = new ChannelWriter(file)) {
+      begin(out);
+      for (String farmId : new TreeSet<>(table.getFarms().keySet())) {
+        Farm farm = table.getFarm(farmId);
+        if (farm == null) {
+          continue;
+        }
+        byte[] id = encode(farmId);
+        long stamp = farm.readLock();
+        try {
+          EntryStore store = farm.getStore();
+          for (int i = 0; i < store.size(); i++) {
+            row(out, rows++, store.dayAt(i), id, store.weightAt(i));
+          }
+        } finally {
+          farm.unlockRead(stamp);
+        }
+      }
+      end(out);
+    }
+    recordExport(rows, start);
+    return rows;
+  }
+
+  /**
+   * Writes the rows of the given report to the given file. A json file also names the report and
+   * holds its statistics.
+   *
+   * @param result the report to export
+   * @param file   the file to write, which is replaced
+   * @return the number of rows written
+   * @throws IOException if the file could not be written
+   */
+  public long exportReport(ReportResult result, File file) throws IOException {
+    long start = System.nanoTime();
+    long rows = 0;
+    try (ChannelWriter out = new ChannelWriter(file)) {
+      if (format == Format.JSON) {
+        reportHeader(out, result);
+      }
+      begin(out);
+      // a report's rows come farm by farm, so each farm id is encoded once
+      String lastId = null;
+      byte[] id = null;
+      for (Entry entry : result.getRows()) {
+        if (!entry.getFarmId().equals(lastId)) {
+          lastId = entry.getFarmId();
+          id = encode(lastId);
+        }
+        row(out, rows++, (int) entry.getDate().toEpochDay(), id, entry.getWeight());
+      }
+      end(out);
+      if (format == Format.JSON) {
+        out.write('}').write('\n');
+      }
+    }
+    recordExport(rows, start);
+    return rows;
+  }
+
+  /**
+   * Writes what comes before the first row: the csv header or the start of the json array
+   */
+  private void begin(ChannelWriter out) throws IOException {
+    out.write(format == Format.CSV ? CSV_HEADER : "[\n");
+  }
+
+  /**
+   * Writes one row, with the farm id already quoted for the format
+   */
+  private void row(ChannelWriter out, long index, int epochDay, byte[] farmId, int weight)
+      throws IOException {
+    if (format == Format.CSV) {
+      out.writeDate(epochDay).write(',').write(farmId).write(',').write(weight).write('\n');
+      return;
+    }
+    if (index > 0) {
+      out.write(',').write('\n');
+    }
+    out.write("{\"date\":\"").writeDate(epochDay).write("\",\"farm_id\":").write(farmId)
+        .write(",\"weight\":").write(weight).write('}');
+  }
+
+  /**
+   * Writes what comes after the last row: nothing for csv or the end of the json array
+   */
+  private void end(ChannelWriter out) throws IOException {
+    if (format == Format.JSON) {
+      out.write('\n').write(']');
+    }
+  }
+
+  /**
+   * Writes the start of a report's json object, up to the name of its rows array
+   */
+  private static void reportHeader(ChannelWriter out, ReportResult result) throws IOException {
+    ReportQuery query = result.getQuery();
+    WeightStatistics stats = result.getStatistics();
+    out.write("{\"report\":").write(jsonString(query.getDescription()));
+    out.write(",\"type\":\"").write(query.getType().name()).write('"');
+    out.write(",\"from\":").write(jsonDate(query.getFromDay(), Integer.MIN_VALUE));
+    out.write(",\"to\":").write(jsonDate(query.getToDay() - 1, Integer.MAX_VALUE - 1));
+    out.write(",\n\"statistics\":{\"count\":").write(stats.getCount());
+    out.write(",\"total\":").write(stats.getTotal());
+    out.write(",\"min\":").write(stats.getMin());
+    out.write(",\"max\":").write(stats.getMax());
+    out.write(",\"mean\":").write(Double.toString(stats.getMean()));
+    out.write(",\"median\":").write(Double.toString(stats.getMedian()));
+    out.write(",\"mode\":").write(stats.getMode());
+    out.write(",\"standard_deviation\":").write(Double.toString(stats.getStandardDeviation()));
+    out.write("},\n\"rows\":");
+  }
+
+  /**
+   * Returns the given epoch day as a json string, or null if it is the unbounded end of a query
+   */
+  private static String jsonDate(int epochDay, int unbounded) {
+    return epochDay == unbounded ? "null" : '"' + LocalDate.ofEpochDay(epochDay).toString() + '"';
+  }
+
+  /**
+   * Returns a farm id quoted for the format as UTF-8 bytes
+   */
+  private byte[] encode(String farmId) {
+    String quoted = format == Format.CSV ? csvField(farmId) : jsonString(farmId);
+    return quoted.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns a csv field holding the given text, quoted only if it holds a comma, quote or line
+   * break
+   */
+  static String csvField(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+        return '"' + text.replace("\"", "\"\"") + '"';
+      }
+    }
+    return text;
+  }
+
+  /**
+   * Returns a json string literal holding the given text
+   */
+  static String jsonString(String text) {
+    StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    return json.append('"').toString();
+  }
+
+  private static void recordExport(long rows, long startNanos) {
+    Metrics.DEFAULT.counter("export.rows").add(rows);
+    Metrics.DEFAULT.histogram("export.time").recordSince(startNanos);
+  }
+}
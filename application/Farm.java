@@ -1,131 +1,747 @@
-package application;
-
-import java.time.LocalDate;
-import java.util.ArrayList;
-
-/**
- * Defines a single farm with an ArrayList of entries to store milk weights for one farm id over
- * specific dates.
- * 
- * @author Matthew Woo, Param Bhandare, Russell Cheng
- */
-public class Farm {
-  private String id;
-  private ArrayList<Entry> entries;
-
-  /**
-   * Initializes a new farm with the given farm id
-   * 
-   * @param id the String id of the farm
-   */
-  public Farm(String id) {
-    this.id = id;
-    entries = new ArrayList<>();
-  }
-
-  /**
-   * Calculates and returns the total milk weight for a given month in a given year for this farm.
-   * 
-   * @param month the month to calculate the total for
-   * @param year  the year for the month total
-   * @return the total weight for the given month in the given year
-   */
-  public int getMonthTotal(int month, int year) {
-    int total = 0;
-    for (Entry e : entries) {
-      if (e.getDate().getYear() == year && e.getDate().getMonthValue() == month) {
-        total += e.getWeight();
-      }
-    }
-    return total;
-  }
-
-  /**
-   * Adds an entry to this Farm's Entry ArrayList
-   * 
-   * @param entry the Entry to add
-   */
-  public void addEntry(Entry entry) {
-    for (Entry e : entries) {
-      if (e.getDate().equals(entry.getDate())) {
-        this.editEntry(entry.getDate(), entry.getWeight());
-        return;
-      }
-    }
-    entries.add(entry);
-  }
-
-  /**
-   * Adds an entry to this Farm's Entry ArrayList
-   * 
-   * @param date   the date of the entry
-   * @param weight the recorded weight on the date
-   */
-  public void addEntry(LocalDate date, int weight) {
-    for (Entry e : entries) {
-      if (e.getDate().equals(date)) {
-        this.editEntry(date, weight);
-        return;
-      }
-    }
-    entries.add(new Entry(date, this.id, weight));
-  }
-
-  /**
-   * Removes a given entry from this Farm's Entry ArrayList
-   * 
-   * @param entry the Entry to remove
-   * @return true if the entry was successfully removed and false otherwise
-   */
-  public boolean removeEntry(Entry entry) {
-    return entries.remove(entry);
-  }
-
-  /**
-   * Removes the entry at a given date from this Farm's Entry ArrayList
-   * 
-   * @param date the date of the Entry to remove
-   * @return true if the entry was successfully removed and false otherwise
-   */
-  public boolean removeEntry(LocalDate date) {
-    for (int i = 0; i < entries.size(); i++) {
-      if (entries.get(i).getDate().equals(date)) {
-        entries.remove(i);
-        return true;
-      }
-    }
-    return false;
-  }
-
-  /**
-   * Modifies an entry at a given date to have a new given weight
-   * 
-   * @param date   the date of the Entry to modify
-   * @param weight the new weight for the Entry at the given date
-   */
-  public void editEntry(LocalDate date, int weight) {
-    for (Entry e : entries) {
-      if (e.getDate().equals(date)) {
-        e.setWeight(weight);
-      }
-    }
-  }
-
-  /**
-   * Returns the ArrayList of entries associated with this farm
-   * 
-   * @return the ArrayList of entries associated with this farm
-   */
-  public ArrayList<Entry> getEntries() {
-    return entries;
-  }
-
-  /**
-   * Returns the ID of this farm
-   * 
-   * @return the ID of this farm
-   */
-  public String getID() {
-    return id;
-  }
-}
+package application;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Defines a single farm with an EntryStore of entries to store milk weights for one farm id over
+ * specific dates. Each date holds at most one entry, and adding an entry for a date that is already
+ * present replaces that date's weight.
+ * 
+ * A farm of a concurrent FarmTable guards its entries and rollup with a StampedLock: changes take
+ * the write lock, reads of single totals are optimistic, and reads of entries take the read lock.
+ * Reports only read, so they run in parallel with each other: a change recomputes any monthly
+ * minimum or maximum it made stale before releasing the lock, and the running totals and month
+ * sketches that reads fill in lazily can be filled in by several readers at once. A farm of an
+ * ordinary table has no lock and must only be used by one thread at a time.
+ * 
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class Farm {
+  /** returned by daySpan when the farm has no entries */
+  static final long NO_DAYS = Long.MIN_VALUE;
+
+  private String id;
+  private EntryStore entries;
+  private MonthlyRollup rollup;
+  private PrefixSums weightSums;
+  private MonthlySketches sketches;
+  private FarmListener listener;
+  private LoadBatch loading;
+  private int code = -1;
+  private final StampedLock lock;
+  private final LongAdder lockWaits = new LongAdder();
+
+  /**
+   * Initializes a new farm with the given farm id that stores Entry objects
+   * 
+   * @param id the String id of the farm
+   */
+  public Farm(String id) {
+    this(id, FarmTable.Storage.OBJECTS);
+  }
+
+  /**
+   * Initializes a new farm with the given farm id and kind of storage
+   * 
+   * @param id      the String id of the farm
+   * @param storage how the farm's entries are stored
+   */
+  public Farm(String id, FarmTable.Storage storage) {
+    this(id, storage, false);
+  }
+
+  /**
+   * Initializes a new farm with the given farm id and kind of storage, which can be changed and
+   * read by several threads at once if concurrent is true
+   * 
+   * @param id         the String id of the farm
+   * @param storage    how the farm's entries are stored
+   * @param concurrent true to guard the farm with a lock
+   */
+  public Farm(String id, FarmTable.Storage storage, boolean concurrent) {
+    this.id = id;
+    this.lock = concurrent ? new StampedLock() : null;
+    if (storage == FarmTable.Storage.COLUMNAR) {
+      entries = new ColumnarStore(id);
+    } else {
+      entries = new DateIndex(id, concurrent);
+    }
+    rollup = new MonthlyRollup(this::scanMonth);
+    weightSums = new PrefixSums();
+    sketches = new MonthlySketches(MonthlySketches.scanning(this::scanMonth));
+  }
+
+  /**
+   * Returns the total milk weight for a given month in a given year for this farm, read from the
+   * farm's monthly rollup.
+   * 
+   * @param month the month to calculate the total for
+   * @param year  the year for the month total
+   * @return the total weight for the given month in the given year
+   */
+  public int getMonthTotal(int month, int year) {
+    int monthIndex = EpochDays.monthIndex(year, month);
+    if (lock == null) {
+      return (int) rollup.getTotal(monthIndex);
+    }
+    long stamp = lock.tryOptimisticRead();
+    long total = rollup.getTotal(monthIndex);
+    if (!lock.validate(stamp)) {
+      stamp = readLock();
+      try {
+        total = rollup.getTotal(monthIndex);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return (int) total;
+  }
+
+  /**
+   * Returns the total milk weight for a given year for this farm
+   * 
+   * @param year the year to calculate the total for
+   * @return the total weight for the given year
+   */
+  public long getYearTotal(int year) {
+    if (lock == null) {
+      return rollup.getYearTotal(year);
+    }
+    long stamp = lock.tryOptimisticRead();
+    long total = rollup.getYearTotal(year);
+    if (!lock.validate(stamp)) {
+      stamp = readLock();
+      try {
+        total = rollup.getYearTotal(year);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns the number of entries and total weight of this farm from start to end, including both
+   * dates. The running totals of the farm's weights make this two binary searches once they are up
+   * to date.
+   * 
+   * @param start the first date to include
+   * @param end   the last date to include
+   * @return the number of entries and total weight between the dates
+   */
+  public RangeTotals getRangeTotals(LocalDate start, LocalDate end) {
+    return rangeTotals((int) start.toEpochDay(), (int) end.toEpochDay() + 1);
+  }
+
+  /**
+   * Returns the number of entries and total weight of this farm from one epoch day up to but not
+   * including another
+   * 
+   * @param fromDay the first day to include
+   * @param toDay   the first day to leave out
+   * @return the number of entries and total weight in the range
+   */
+  RangeTotals rangeTotals(int fromDay, int toDay) {
+    long stamp = readLock();
+    try {
+      int from = ReportService.lowerBound(entries, fromDay);
+      int to = ReportService.lowerBound(entries, toDay);
+      if (to <= from) {
+        return new RangeTotals(0, 0);
+      }
+      return new RangeTotals(to - from, weightSums.sum(from, to, entries::weightAt));
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the per-month totals, counts, minimums and maximums of this farm's weights. The rollup
+   * of a concurrent farm is only safe to read while no other thread changes the farm.
+   * 
+   * @return the monthly rollup of this farm's weights
+   */
+  public MonthlyRollup getRollup() {
+    return rollup;
+  }
+
+  /**
+   * Adds an entry to this Farm, replacing the weight of the existing entry if one is already
+   * stored for the entry's date
+   * 
+   * @param entry the Entry to add
+   */
+  public void addEntry(Entry entry) {
+    put(entry, true);
+  }
+
+  /**
+   * Adds an entry to this Farm, replacing the weight of the existing entry if one is already
+   * stored for the given date
+   * 
+   * @param date   the date of the entry
+   * @param weight the recorded weight on the date
+   */
+  public void addEntry(LocalDate date, int weight) {
+    putWeight((int) date.toEpochDay(), weight);
+  }
+
+  /**
+   * Adds a weight for the given epoch day, replacing the weight already stored for that day. Used
+   * by the loaders so that no LocalDate is created when a day is overwritten.
+   * 
+   * @param epochDay the date of the entry as a count of days from 1970-01-01
+   * @param weight   the recorded weight on the date
+   */
+  void putWeight(int epochDay, int weight) {
+    put(epochDay, weight, true);
+  }
+
+  /**
+   * Queues a weight for a bulk load without telling the listener. The queued rows are not part of
+   * the farm until finishLoad sorts them and merges them in with one pass, so a file in any date
+   * order loads in O(n log n) rather than shifting the stored entries for every row. A later row
+   * for the same day wins, as with putWeight.
+   * 
+   * @param epochDay the date of the entry as a count of days from 1970-01-01
+   * @param weight   the recorded weight on the date
+   */
+  void loadWeight(int epochDay, int weight) {
+    long stamp = writeLock();
+    try {
+      if (loading == null) {
+        loading = new LoadBatch(16);
+      }
+      loading.add(epochDay, weight);
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Adds every weight queued by loadWeight to the farm, without telling the listener. Bulk loads
+   * call this, directly or through FarmTable.reloaded, before the table's listeners are told.
+   */
+  void finishLoad() {
+    long stamp = writeLock();
+    try {
+      LoadBatch batch = loading;
+      loading = null;
+      if (batch == null || batch.size == 0) {
+        return;
+      }
+      int n = batch.sortDistinct();
+      int[] days = batch.days;
+      int[] weights = batch.weights;
+      // the old weight of each day already stored, found before the merge moves them
+      int[] old = new int[n];
+      boolean[] stored = new boolean[n];
+      int first = entries.find(days[0]);
+      for (int j = 0; j < n; j++) {
+        int pos = entries.find(days[j]);
+        if (pos >= 0) {
+          stored[j] = true;
+          old[j] = entries.weightAt(pos);
+        }
+      }
+      entries.merge(days, weights, n);
+      weightSums.invalidateFrom(first >= 0 ? first : -first - 1);
+      for (int j = 0; j < n; j++) {
+        if (stored[j]) {
+          rollup.update(days[j], old[j], weights[j]);
+        } else {
+          rollup.add(days[j], weights[j]);
+        }
+        sketches.invalidate(days[j]);
+      }
+      // the days are sorted, so each month is settled once
+      int settled = Integer.MIN_VALUE;
+      for (int j = 0; j < n; j++) {
+        int month = EpochDays.monthIndex(days[j]);
+        if (month != settled && stored[j]) {
+          rollup.settle(month);
+          settled = month;
+        }
+      }
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  private void put(Entry entry, boolean notify) {
+    int day = (int) entry.getDate().toEpochDay();
+    long stamp = writeLock();
+    try {
+      int pos = entries.find(day);
+      if (pos >= 0) {
+        replaceWeight(pos, entry.getWeight(), notify);
+      } else {
+        insert(-pos - 1, day, entry.getWeight(), entry, notify);
+      }
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  private void put(int epochDay, int weight, boolean notify) {
+    long stamp = writeLock();
+    try {
+      int pos = entries.find(epochDay);
+      if (pos >= 0) {
+        replaceWeight(pos, weight, notify);
+      } else {
+        insert(-pos - 1, epochDay, weight, null, notify);
+      }
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes a given entry from this Farm
+   * 
+   * @param entry the Entry to remove
+   * @return true if the entry was successfully removed and false otherwise
+   */
+  public boolean removeEntry(Entry entry) {
+    long stamp = writeLock();
+    try {
+      int pos = entries.find((int) entry.getDate().toEpochDay());
+      if (pos < 0 || !entries.holds(pos, entry)) {
+        return false;
+      }
+      delete(pos);
+      return true;
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the entry at a given date from this Farm
+   * 
+   * @param date the date of the Entry to remove
+   * @return true if the entry was successfully removed and false otherwise
+   */
+  public boolean removeEntry(LocalDate date) {
+    long stamp = writeLock();
+    try {
+      int pos = entries.find((int) date.toEpochDay());
+      if (pos < 0) {
+        return false;
+      }
+      delete(pos);
+      return true;
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Modifies an entry at a given date to have a new given weight
+   * 
+   * @param date   the date of the Entry to modify
+   * @param weight the new weight for the Entry at the given date
+   */
+  public void editEntry(LocalDate date, int weight) {
+    long stamp = writeLock();
+    try {
+      int pos = entries.find((int) date.toEpochDay());
+      if (pos >= 0) {
+        replaceWeight(pos, weight, true);
+      }
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  private void insert(int pos, int epochDay, int weight, Entry entry, boolean notify) {
+    entries.insert(pos, epochDay, weight, entry);
+    rollup.add(epochDay, weight);
+    weightSums.invalidateFrom(pos);
+    sketches.invalidate(epochDay);
+    if (notify && listener != null) {
+      listener.entryAdded(this, epochDay, weight);
+    }
+  }
+
+  private void replaceWeight(int pos, int weight, boolean notify) {
+    int day = entries.dayAt(pos);
+    int old = entries.weightAt(pos);
+    entries.setWeight(pos, weight);
+    rollup.update(day, old, weight);
+    rollup.settle(EpochDays.monthIndex(day));
+    weightSums.invalidateFrom(pos);
+    sketches.invalidate(day);
+    if (notify && listener != null) {
+      listener.entryChanged(this, day, old, weight);
+    }
+  }
+
+  private void delete(int pos) {
+    int day = entries.dayAt(pos);
+    int old = entries.weightAt(pos);
+    entries.remove(pos);
+    rollup.remove(day, old);
+    rollup.settle(EpochDays.monthIndex(day));
+    weightSums.invalidateFrom(pos);
+    sketches.invalidate(day);
+    if (listener != null) {
+      listener.entryRemoved(this, day, old);
+    }
+  }
+
+  /**
+   * Passes every weight this farm recorded in the given month to the given consumer. Called by the
+   * rollup and the month sketches, so a concurrent farm's lock is already held.
+   */
+  private void scanMonth(int monthIndex, IntConsumer weights) {
+    int from = EpochDays.firstDay(monthIndex);
+    int to = EpochDays.firstDay(monthIndex + 1);
+    int pos = entries.find(from);
+    for (int i = pos >= 0 ? pos : -pos - 1; i < entries.size() && entries.dayAt(i) < to; i++) {
+      weights.accept(entries.weightAt(i));
+    }
+  }
+
+  /**
+   * Returns the entry recorded on the given date
+   * 
+   * @param date the date of the Entry to get
+   * @return the entry recorded on the given date, or null if there is none
+   */
+  public Entry getEntry(LocalDate date) {
+    long stamp = readLock();
+    try {
+      int pos = entries.find((int) date.toEpochDay());
+      return pos >= 0 ? entries.entryAt(pos) : null;
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns a read-only list of the entries associated with this farm, in date order. For a
+   * concurrent farm the list is a copy taken under the read lock; otherwise it is a view that
+   * follows later changes.
+   * 
+   * @return a read-only list of the entries associated with this farm
+   */
+  public List<Entry> getEntries() {
+    if (lock != null) {
+      long stamp = readLock();
+      try {
+        List<Entry> copy = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+          copy.add(entries.entryAt(i));
+        }
+        return Collections.unmodifiableList(copy);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return new AbstractList<Entry>() {
+      @Override
+      public Entry get(int index) {
+        if (index < 0 || index >= entries.size()) {
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + entries.size());
+        }
+        return entries.entryAt(index);
+      }
+
+      @Override
+      public int size() {
+        return entries.size();
+      }
+    };
+  }
+
+  /**
+   * Returns the number of entries associated with this farm
+   * 
+   * @return the number of entries associated with this farm
+   */
+  public int getEntryCount() {
+    long stamp = readLock();
+    try {
+      return entries.size();
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the first and last epoch day with an entry, packed as first << 32 | last
+   * 
+   * @return the packed first and last day, or NO_DAYS if the farm has no entries
+   */
+  long daySpan() {
+    long stamp = readLock();
+    try {
+      if (entries.size() == 0) {
+        return NO_DAYS;
+      }
+      return ((long) entries.dayAt(0) << 32) | (entries.dayAt(entries.size() - 1) & 0xFFFFFFFFL);
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Makes room for the given number of entries beyond those already stored, before a bulk load
+   * 
+   * @param additional the number of entries about to be added
+   */
+  void reserve(int additional) {
+    long stamp = writeLock();
+    try {
+      entries.ensureCapacity(entries.size() + additional);
+      if (loading == null) {
+        loading = new LoadBatch(additional);
+      }
+    } finally {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the store holding this farm's entries, for code that reads the primitive values
+   * without creating Entry objects. Readers of a concurrent farm's store hold its read lock.
+   * 
+   * @return the store holding this farm's entries
+   */
+  EntryStore getStore() {
+    return entries;
+  }
+
+  /**
+   * Acquires the read lock of a concurrent farm, blocking changes until unlockRead is called
+   * 
+   * @return the stamp to pass to unlockRead, or 0 if the farm is not concurrent
+   */
+  long readLock() {
+    if (lock == null) {
+      return 0;
+    }
+    long stamp = lock.tryReadLock();
+    if (stamp == 0) {
+      lockWaits.increment();
+      stamp = lock.readLock();
+    }
+    return stamp;
+  }
+
+  /**
+   * Releases a read lock acquired with readLock
+   * 
+   * @param stamp the stamp returned by readLock
+   */
+  void unlockRead(long stamp) {
+    if (lock != null) {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private long writeLock() {
+    if (lock == null) {
+      return 0;
+    }
+    long stamp = lock.tryWriteLock();
+    if (stamp == 0) {
+      lockWaits.increment();
+      stamp = lock.writeLock();
+    }
+    return stamp;
+  }
+
+  /**
+   * Returns how many times a thread had to wait for this farm's lock because another thread held
+   * it in a conflicting mode. Readers never wait for each other, so this only grows while the
+   * farm is being changed.
+   * 
+   * @return the number of waits for this farm's lock, or 0 if the farm is not concurrent
+   */
+  public long getLockWaits() {
+    return lockWaits.sum();
+  }
+
+  private void unlockWrite(long stamp) {
+    if (lock != null) {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Adds this farm's monthly rollup to the given one
+   * 
+   * @param target the rollup to add this farm's months to
+   */
+  void addRollupTo(MonthlyRollup target) {
+    long stamp = readLock();
+    try {
+      target.addAll(rollup);
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Passes this farm's minimum and maximum weight of the given month to the given consumer, if
+   * the farm has weights in that month
+   * 
+   * @param monthIndex the month index
+   * @param weights    the consumer to pass the minimum and maximum to
+   */
+  void scanExtremes(int monthIndex, IntConsumer weights) {
+    long stamp = readLock();
+    try {
+      if (rollup.getCount(monthIndex) > 0) {
+        weights.accept(rollup.getMin(monthIndex));
+        weights.accept(rollup.getMax(monthIndex));
+      }
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the quantile sketch of this farm's weights in the given month, built from the month's
+   * entries the first time it is asked for and kept until a weight in the month changes
+   * 
+   * @param monthIndex the month index
+   * @param k          the accuracy parameter of the sketch
+   * @return the sketch of the month, which must not be changed
+   */
+  QuantileSketch monthSketch(int monthIndex, int k) {
+    long stamp = readLock();
+    try {
+      return sketches.get(monthIndex, k);
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Adds this farm's weights from one epoch day up to but not including another to the given
+   * sketch
+   * 
+   * @param sketch  the sketch to add the weights to
+   * @param fromDay the first day to include
+   * @param toDay   the first day to leave out
+   */
+  void addWeightsTo(QuantileSketch sketch, int fromDay, int toDay) {
+    long stamp = readLock();
+    try {
+      int end = ReportService.lowerBound(entries, toDay);
+      for (int i = ReportService.lowerBound(entries, fromDay); i < end; i++) {
+        sketch.add(entries.weightAt(i));
+      }
+    } finally {
+      unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Sets the listener that is told about every change to this farm's weights
+   * 
+   * @param listener the listener, or null for none
+   */
+  void setListener(FarmListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Sets the code the table's farm id dictionary gave this farm's id
+   * 
+   * @param code the code of this farm's id
+   */
+  void setCode(int code) {
+    this.code = code;
+  }
+
+  /**
+   * Returns the code the table's farm id dictionary gave this farm's id, which indexes arrays that
+   * group entries by farm
+   * 
+   * @return the code of this farm's id, or -1 if the farm is not in a table
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * Returns the ID of this farm
+   * 
+   * @return the ID of this farm
+   */
+  public String getID() {
+    return id;
+  }
+
+  /**
+   * Holds the rows queued by loadWeight in the order they were read
+   */
+  private static class LoadBatch {
+    private int[] days;
+    private int[] weights;
+    private int size;
+    private boolean sorted = true;
+
+    private LoadBatch(int capacity) {
+      days = new int[Math.max(capacity, 16)];
+      weights = new int[days.length];
+    }
+
+    private void add(int epochDay, int weight) {
+      if (size == days.length) {
+        days = Arrays.copyOf(days, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      if (size > 0 && epochDay <= days[size - 1]) {
+        sorted = false;
+      }
+      days[size] = epochDay;
+      weights[size++] = weight;
+    }
+
+    /**
+     * Sorts the rows by day, keeping only the last row read for each day, and returns how many
+     * are left at the front of the arrays
+     */
+    private int sortDistinct() {
+      if (sorted) {
+        return size;
+      }
+      // the day in the high half and the read order in the low half sorts repeats in read order
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = ((long) days[i] << 32) | i;
+      }
+      Arrays.sort(keys);
+      int[] sortedDays = new int[size];
+      int[] sortedWeights = new int[size];
+      int n = 0;
+      for (int i = 0; i < size; i++) {
+        int day = (int) (keys[i] >> 32);
+        int weight = weights[(int) keys[i]];
+        if (n > 0 && sortedDays[n - 1] == day) {
+          sortedWeights[n - 1] = weight;
+        } else {
+          sortedDays[n] = day;
+          sortedWeights[n++] = weight;
+        }
+      }
+      days = sortedDays;
+      weights = sortedWeights;
+      return n;
+    }
+  }
+}
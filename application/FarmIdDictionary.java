@@ -0,0 +1,90 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defines a dictionary that gives every farm id a dense int code, 0 for the first id added, 1 for
+ * the next and so on, and keeps one shared String for each id. Codes are never reused, so code
+ * indexed arrays can group entries by farm without hashing or comparing Strings. Ids can be added
+ * and looked up from several threads at once.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class FarmIdDictionary {
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+  private volatile String[] ids = new String[64];
+  private volatile int size;
+
+  /**
+   * Returns the code of the given farm id, giving it the next code if it has none yet
+   *
+   * @param id the farm id
+   * @return the code of the farm id
+   */
+  public int codeOf(String id) {
+    Integer code = codes.get(id);
+    if (code != null) {
+      return code;
+    }
+    synchronized (this) {
+      code = codes.get(id);
+      if (code != null) {
+        return code;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size] = id;
+      // publish the id before its code so that a reader with the code can always find the id
+      size++;
+      codes.put(id, size - 1);
+      return size - 1;
+    }
+  }
+
+  /**
+   * Returns the code of the given farm id without adding it
+   *
+   * @param id the farm id
+   * @return the code of the farm id, or -1 if it has none
+   */
+  public int find(String id) {
+    Integer code = codes.get(id);
+    return code == null ? -1 : code;
+  }
+
+  /**
+   * Returns the farm id with the given code
+   *
+   * @param code the code of the farm id
+   * @return the shared String of the farm id
+   * @throws IndexOutOfBoundsException if no id has the code
+   */
+  public String idOf(int code) {
+    if (code < 0 || code >= size) {
+      throw new IndexOutOfBoundsException("No farm id has code " + code);
+    }
+    return ids[code];
+  }
+
+  /**
+   * Returns the shared String equal to the given farm id, adding the id if it is new
+   *
+   * @param id the farm id
+   * @return the shared String equal to id
+   */
+  public String intern(String id) {
+    return idOf(codeOf(id));
+  }
+
+  /**
+   * Returns the number of farm ids, which is one more than the largest code
+   *
+   * @return the number of farm ids
+   */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,45 @@
+package application;
+
+/**
+ * Defines a listener that is told about every change to the weights stored in a Farm
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public interface FarmListener {
+
+  /**
+   * Called after an entry is added for a date the farm had no entry for
+   *
+   * @param farm     the farm that changed
+   * @param epochDay the date of the entry as a count of days from 1970-01-01
+   * @param weight   the weight of the new entry
+   */
+  void entryAdded(Farm farm, int epochDay, int weight);
+
+  /**
+   * Called after the weight of an existing entry is replaced
+   *
+   * @param farm      the farm that changed
+   * @param epochDay  the date of the entry as a count of days from 1970-01-01
+   * @param oldWeight the weight before the change
+   * @param newWeight the weight after the change
+   */
+  void entryChanged(Farm farm, int epochDay, int oldWeight, int newWeight);
+
+  /**
+   * Called after an entry is removed
+   *
+   * @param farm     the farm that changed
+   * @param epochDay the date of the removed entry as a count of days from 1970-01-01
+   * @param weight   the weight of the removed entry
+   */
+  void entryRemoved(Farm farm, int epochDay, int weight);
+
+  /**
+   * Called after a table's entries were changed in bulk without a call for each entry, such as
+   * by a parallel load. Listeners that keep their own copy of the data should rebuild it.
+   *
+   * @param table the table whose entries changed
+   */
+  default void entriesReloaded(FarmTable table) {}
+}
@@ -1,180 +1,1023 @@
-package application;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-
-/**
- * Defines a FarmTable class for storing all of the Farms in a HashMap where the keys are the ids 
- * of the farms
- * @author Matthew Woo, Param Bhandare, Russell Cheng
- */
-public class FarmTable {
-  private HashMap<String, Farm> farms;
-  
-  /**
-   * Initializes the HashMap of farms
-   */
-  public FarmTable() {
-    this.farms = new HashMap<>();
-  }
-  
-  /**
-   * Loads the data for a given csvfile that was selected from the main screen.
-   * @param csvfile the csv file to load data from
-   * @throws IOException if there was an error reading the file
-   */
-  public void loadData(File csvfile) throws Exception  {
-    BufferedReader br = new BufferedReader(new FileReader(csvfile));
-    String line = br.readLine(); // skip title line
-    while ((line = br.readLine()) != null) {
-      String[] data = line.split(",");
-      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
-      Entry e = new Entry(LocalDate.parse(data[0], formatter), data[1], Integer.parseInt(data[2]));
-      if (farms.keySet().contains(e.getFarmId())) {
-        farms.get(e.getFarmId()).addEntry(e);
-      } else {
-        Farm farm = new Farm(e.getFarmId());
-        farm.addEntry(e);
-        farms.put(e.getFarmId(), farm);
-      }
-    }
-    br.close();
-  }
-  
-  /**
-   * Returns the HashMap of farms
-   * @return the HashMap of farms
-   */
-  public HashMap<String, Farm> getFarms() {
-    return farms;
-  }
-  
-  /**
-   * Returns the Farm associated with the given farmId
-   * @param farmId the id of the farm to get
-   * @return the Farm associated with the given farmId
-   */
-  public Farm getFarm(String farmId) {
-    return farms.get(farmId);
-  }
-  
-  /**
-   * Adds a given entry to the correct Farm in the FarmTable
-   * @param entry the Entry to add
-   */
-  public void addEntry(Entry entry) {
-    String farmId = entry.getFarmId();
-    if (!farms.keySet().contains(farmId)) {
-      farms.put(farmId, new Farm(farmId));
-    }
-    farms.get(farmId).addEntry(entry);
-  }
-  
-  /**
-   * Adds a new entry to the correct farm in the FarmTable
-   * @param date the date of the entry
-   * @param farmId the Farm to add the entry to
-   * @param weight the recorded weight on the given date
-   */
-  public void addEntry(LocalDate date, String farmId, int weight) {
-    if (!farms.keySet().contains(farmId)) {
-      farms.put(farmId, new Farm(farmId));
-    }
-    farms.get(farmId).addEntry(date, weight);
-  }
-  
-  /**
-   * Removes a given entry from the correct farm in the FarmTable
-   * @param entry the entry to remove
-   * @return true if the entry was successfully removed and false otherwise
-   */
-  public boolean removeEntry(Entry entry) {
-    String farmId = entry.getFarmId();
-    if (!farms.keySet().contains(farmId)) return false;
-    return farms.get(farmId).removeEntry(entry);
-  }
-  
-  /**
-   * Removes an entry at the given date from the given farmId in the FarmTable
-   * @param date the date of the entry to remove
-   * @param farmId the Farm to remove the entry from 
-   * @return true if the entry was successfully removed and false otherwise
-   */
-  public boolean removeEntry(LocalDate date, String farmId) {
-    if (!farms.keySet().contains(farmId)) return false;
-    return farms.get(farmId).removeEntry(date);
-  }
-  
-  /**
-   * Edits all of the attributes of a given entry
-   * @param entry the entry to modify
-   * @param newDate the new date for the entry
-   * @param newFarmId the new farmId for the entry
-   * @param newWeight the new weight for the entry
-   * @return true if the entry was successfully edited and false otherwise
-   */
-  public boolean editEntry(Entry entry, LocalDate newDate, String newFarmId, int newWeight) {
-    String farmId = entry.getFarmId();
-    if (!farms.keySet().contains(farmId)) {
-      return false;
-    }
-    farms.get(farmId).removeEntry(entry);
-    this.addEntry(newDate, newFarmId, newWeight);
-    return true;
-  }
-  
-  /**
-   * Edits the date of a given entry
-   * @param entry the entry to modify
-   * @param newDate the new date for the entry
-   * @return true if the entry was successfully edited and false otherwise
-   */
-  public boolean editEntry(Entry entry, LocalDate newDate) {
-    String farmId = entry.getFarmId();
-    if (!farms.keySet().contains(farmId)) {
-      return false;
-    }
-    farms.get(farmId).editEntry(newDate, entry.getWeight());
-    return true;
-  }
-  
-  /**
-   * Edits the weight of a given entry
-   * @param entry the entry to modify
-   * @param newWeight the new weight for the entry
-   * @return true if the entry was successfully edited and false otherwise
-   */
-  public boolean editEntry(Entry entry, int newWeight) {
-    String farmId = entry.getFarmId();
-    if (!farms.keySet().contains(farmId)) {
-      return false;
-    }
-    farms.get(farmId).editEntry(entry.getDate(), newWeight);
-    return true;
-  }
-  
-  /**
-   * Edits the farmId of the entry, moving it to a different farm in the FarmTable
-   * @param entry the entry to modify
-   * @param newFarmId the new farmId for the entry
-   * @return true if the entry was successfully edited and false otherwise
-   */
-  public boolean editEntry(Entry entry, String newFarmId) {
-    String farmId = entry.getFarmId();
-    if (!farms.keySet().contains(farmId)) {
-      return false;
-    }
-    if (!farms.keySet().contains(newFarmId)) {
-      farms.put(newFarmId, new Farm(newFarmId));
-    }
-    farms.get(farmId).removeEntry(entry);
-    entry.setFarmId(newFarmId);
-    farms.get(newFarmId).addEntry(entry);
-    return true;
-  }
-}
+package application;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Defines a FarmTable class for storing all of the Farms in a HashMap where the keys are the ids 
+ * of the farms
+ * 
+ * A concurrent table keeps its farms in a ConcurrentHashMap and gives each farm its own lock, so
+ * threads loading or editing different farms never wait for each other and reports read while
+ * entries are added. It keeps no table-wide rollup, since updating one on every change would be
+ * a global lock; table totals are added up from the farms' rollups when they are read instead.
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class FarmTable {
+  /**
+   * The ways a FarmTable can store its farms' entries
+   */
+  public enum Storage {
+    /** each reading is an Entry object, the original layout */
+    OBJECTS,
+    /** each farm keeps its readings as primitive columns of epoch days and weights */
+    COLUMNAR
+  }
+  
+  private static final int PROGRESS_ROWS = 1 << 16;
+
+  private Map<String, Farm> farms;
+  private boolean byteParser;
+  private Storage storage;
+  private boolean concurrent;
+  private MonthlyRollup rollup;
+  private DistinctDays days;
+  private FarmIdDictionary ids;
+  private MonthlySketches sketches;
+  private int sketchK = QuantileSketch.DEFAULT_K;
+  private FarmListener changes;
+  private List<FarmListener> listeners;
+  private volatile OperationLog log;
+  private final AtomicLong version = new AtomicLong();
+  private final Map<Integer, Long> monthVersions = new ConcurrentHashMap<>();
+  private final ConcurrentSkipListMap<Long, Long> cellVersions = new ConcurrentSkipListMap<>();
+  private volatile long reloadVersion;
+  
+  /**
+   * Initializes the HashMap of farms
+   */
+  public FarmTable() {
+    this(Storage.OBJECTS);
+  }
+  
+  /**
+   * Initializes the HashMap of farms, which will store their entries in the given way
+   * @param storage how the farms' entries are stored
+   */
+  public FarmTable(Storage storage) {
+    this(storage, false);
+  }
+  
+  /**
+   * Initializes the map of farms, which will store their entries in the given way and can be
+   * changed and read by several threads at once if concurrent is true
+   * @param storage how the farms' entries are stored
+   * @param concurrent true for a table that is safe to use from several threads
+   */
+  public FarmTable(Storage storage, boolean concurrent) {
+    this.farms = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    this.byteParser = true;
+    this.storage = storage;
+    this.concurrent = concurrent;
+    this.rollup = new MonthlyRollup(this::scanMonth);
+    this.days = new DistinctDays();
+    this.ids = new FarmIdDictionary();
+    this.sketches = new MonthlySketches(MonthlySketches.merging(this::farmSketches));
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.changes = new FarmListener() {
+      @Override
+      public void entryAdded(Farm farm, int epochDay, int weight) {
+        changed(farm, epochDay);
+        if (!concurrent) {
+          rollup.add(epochDay, weight);
+          days.add(epochDay, weight);
+          sketches.invalidate(epochDay);
+        }
+        for (FarmListener listener : listeners) {
+          listener.entryAdded(farm, epochDay, weight);
+        }
+        OperationLog current = log;
+        if (current != null) {
+          current.put(farm.getID(), epochDay, weight);
+        }
+      }
+
+      @Override
+      public void entryChanged(Farm farm, int epochDay, int oldWeight, int newWeight) {
+        changed(farm, epochDay);
+        if (!concurrent) {
+          rollup.update(epochDay, oldWeight, newWeight);
+          days.update(epochDay, oldWeight, newWeight);
+          sketches.invalidate(epochDay);
+        }
+        for (FarmListener listener : listeners) {
+          listener.entryChanged(farm, epochDay, oldWeight, newWeight);
+        }
+        OperationLog current = log;
+        if (current != null) {
+          current.put(farm.getID(), epochDay, newWeight);
+        }
+      }
+
+      @Override
+      public void entryRemoved(Farm farm, int epochDay, int weight) {
+        changed(farm, epochDay);
+        if (!concurrent) {
+          rollup.remove(epochDay, weight);
+          days.remove(epochDay, weight);
+          sketches.invalidate(epochDay);
+        }
+        for (FarmListener listener : listeners) {
+          listener.entryRemoved(farm, epochDay, weight);
+        }
+        OperationLog current = log;
+        if (current != null) {
+          current.delete(farm.getID(), epochDay);
+        }
+      }
+    };
+  }
+  
+  /**
+   * Loads the data for a given csvfile that was selected from the main screen.
+   * @param csvfile the csv file to load data from
+   * @throws IOException if there was an error reading the file
+   */
+  public void loadData(File csvfile) throws Exception  {
+    loadData(csvfile, false, LoadProgress.NONE);
+  }
+  
+  /**
+   * Loads the data for a given csvfile, optionally parsing the file on multiple threads. A 
+   * parallel load adds exactly the same entries as a sequential one, including which weight wins
+   * when a farm has more than one line for the same date.
+   * @param csvfile the csv file to load data from
+   * @param parallel true to split the file into ranges that are parsed in parallel
+   * @throws Exception if there was an error reading the file
+   */
+  public void loadData(File csvfile, boolean parallel) throws Exception {
+    loadData(csvfile, parallel, LoadProgress.NONE);
+  }
+  
+  /**
+   * Loads the data for a given csvfile, reporting progress to the given callback and stopping if
+   * it asks to
+   * @param csvfile the csv file to load data from
+   * @param parallel true to split the file into ranges that are parsed in parallel
+   * @param progress the callback to report progress to
+   * @throws Exception if there was an error reading the file
+   * @throws CancellationException if the callback cancelled the load
+   */
+  public void loadData(File csvfile, boolean parallel, LoadProgress progress) throws Exception {
+    // loads add their rows without telling the listeners or the operation log about each one,
+    // then tell the listeners once when they finish; callers checkpoint the log after a load
+    long start = System.nanoTime();
+    long rows;
+    try {
+      if (parallel) {
+        rows = totalRows(
+            new ChunkedCsvLoader().load(Collections.singletonList(csvfile), this, progress));
+      } else if (byteParser) {
+        rows = loadBytes(csvfile, progress);
+      } else {
+        rows = loadStrings(csvfile, progress);
+      }
+    } catch (RuntimeException e) {
+      countFailure(e);
+      throw e;
+    }
+    recordLoad(rows, start);
+  }
+  
+  /**
+   * Loads several csv files in parallel. When files have entries for the same farm and date, the
+   * entry from the file later in the list wins, as if the files had been loaded one after another.
+   * @param csvfiles the csv files to load data from, in the order they are applied
+   * @param progress the callback to report progress to and check for cancellation
+   * @return the number of rows and parse time of each file, in the order of csvfiles
+   * @throws Exception if there was an error reading or parsing a file, or the load was cancelled
+   */
+  public List<FileLoadResult> loadFiles(List<File> csvfiles, LoadProgress progress)
+      throws Exception {
+    long start = System.nanoTime();
+    List<FileLoadResult> results;
+    try {
+      results = new ChunkedCsvLoader().load(csvfiles, this, progress);
+    } catch (RuntimeException e) {
+      countFailure(e);
+      throw e;
+    }
+    recordLoad(totalRows(results), start);
+    return results;
+  }
+  
+  private static long totalRows(List<FileLoadResult> results) {
+    long rows = 0;
+    for (FileLoadResult result : results) {
+      rows += result.getRows();
+    }
+    return rows;
+  }
+  
+  /**
+   * Records a finished load's rows and time in the metrics, from which load.rowsPerSecond is read
+   */
+  private static void recordLoad(long rows, long startNanos) {
+    Metrics.DEFAULT.counter("load.rows").add(rows);
+    Metrics.DEFAULT.histogram("load.time").recordSince(startNanos);
+  }
+  
+  /**
+   * Returns the rows loaded per second over every load so far, from the rows and time each load
+   * records in the default metrics. Main and BatchMain register it as the load.rowsPerSecond gauge.
+   * @return the rows loaded per second, or 0 if nothing has been loaded
+   */
+  static long loadRowsPerSecond() {
+    long nanos = Metrics.DEFAULT.histogram("load.time").getSum();
+    return nanos == 0 ? 0 : Metrics.DEFAULT.counter("load.rows").get() * 1_000_000_000L / nanos;
+  }
+  
+  /**
+   * Counts a load that stopped on a line it could not parse; a cancelled load is not a failure
+   */
+  private static void countFailure(RuntimeException e) {
+    if (!(e instanceof CancellationException)) {
+      Metrics.DEFAULT.counter("load.parseFailures").increment();
+    }
+  }
+  
+  /**
+   * Loads every csv file directly inside a directory in parallel, applying them in order of name
+   * @param dir the directory to load the csv files of
+   * @param progress the callback to report progress to and check for cancellation
+   * @return the number of rows and parse time of each file, in order of name
+   * @throws Exception if the directory could not be listed, there was an error reading or parsing
+   *     a file, or the load was cancelled
+   */
+  public List<FileLoadResult> loadDirectory(File dir, LoadProgress progress) throws Exception {
+    return loadFiles(ChunkedCsvLoader.csvFiles(dir), progress);
+  }
+  
+  /**
+   * Loads a csvfile one line at a time, parsing each line as a String
+   * @param csvfile the csv file to load data from
+   * @param progress the callback to report progress to
+   * @return the number of lines parsed
+   * @throws Exception if there was an error reading the file
+   */
+  private long loadStrings(File csvfile, LoadProgress progress) throws Exception {
+    long totalBytes = csvfile.length();
+    long bytesRead = 0;
+    long rows = 0;
+    BufferedReader br = new BufferedReader(new FileReader(csvfile));
+    try {
+      String line = br.readLine(); // skip title line
+      while ((line = br.readLine()) != null) {
+        String[] data = line.split(",");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
+        LocalDate date = LocalDate.parse(data[0], formatter);
+        int weight = Integer.parseInt(data[2]);
+        farmFor(data[1]).loadWeight((int) date.toEpochDay(), weight);
+        // characters rather than bytes, which is close enough for progress
+        bytesRead += line.length() + 1;
+        if (++rows % PROGRESS_ROWS == 0) {
+          checkCancelled(progress);
+          progress.update(bytesRead, totalBytes, rows);
+        }
+      }
+    } finally {
+      br.close();
+      reloaded();
+    }
+    progress.update(totalBytes, totalBytes, rows);
+    return rows;
+  }
+  
+  /**
+   * Loads a csvfile by parsing it with CsvLineParser.parseFile, so that no objects are created
+   * for a line unless it adds a new entry
+   * @param csvfile the csv file to load data from
+   * @param progress the callback to report progress to
+   * @return the number of lines parsed
+   * @throws IOException if there was an error reading the file
+   */
+  private long loadBytes(File csvfile, LoadProgress progress) throws IOException {
+    CsvLineParser.RowHandler handler = new CsvLineParser.RowHandler() {
+      private String lastId;
+      private Farm lastFarm;
+
+      @Override
+      public void row(String farmId, int epochDay, int weight) {
+        // the parser returns the same String for every row of a farm
+        if (farmId != lastId) {
+          lastFarm = farmFor(farmId);
+          lastId = farmId;
+        }
+        lastFarm.loadWeight(epochDay, weight);
+      }
+    };
+    CsvLineParser parser = new CsvLineParser();
+    try {
+      parser.parseFile(csvfile, handler, progress);
+    } finally {
+      reloaded();
+    }
+    return parser.rowsParsed();
+  }
+  
+  /**
+   * Throws a CancellationException if the given callback asked the load to stop
+   * @param progress the callback of the running load
+   */
+  static void checkCancelled(LoadProgress progress) {
+    if (progress.isCancelled()) {
+      throw new CancellationException("The load was cancelled");
+    }
+  }
+  
+  /**
+   * Returns a deep copy of this table that stores its entries the same way and shares no Farm or
+   * Entry objects with this table. The copy has no operation log.
+   * @return a copy of this table
+   */
+  public FarmTable copy() {
+    FarmTable copy = new FarmTable(storage, concurrent);
+    copy.byteParser = byteParser;
+    // keep every farm's code, so code indexed results stay valid across a load
+    for (int code = 0; code < ids.size(); code++) {
+      copy.ids.codeOf(ids.idOf(code));
+    }
+    for (Farm farm : farms.values()) {
+      Farm target = copy.farmFor(farm.getID());
+      long stamp = farm.readLock();
+      try {
+        EntryStore store = farm.getStore();
+        target.reserve(store.size());
+        for (int i = 0; i < store.size(); i++) {
+          target.loadWeight(store.dayAt(i), store.weightAt(i));
+        }
+      } finally {
+        farm.unlockRead(stamp);
+      }
+    }
+    copy.reloaded();
+    return copy;
+  }
+  
+  /**
+   * Chooses how lines are parsed by loadData. The byte parser is the default; the String parser is
+   * the original split and LocalDate.parse path, kept so the two can be compared.
+   * @param byteParser true to parse with a CsvLineParser and false to parse Strings
+   */
+  public void setByteParser(boolean byteParser) {
+    this.byteParser = byteParser;
+  }
+  
+  /**
+   * Returns whether loadData parses lines with a CsvLineParser
+   * @return true if loadData parses lines with a CsvLineParser and false if it parses Strings
+   */
+  public boolean isByteParser() {
+    return byteParser;
+  }
+  
+  /**
+   * Returns how this table stores its farms' entries
+   * @return how this table stores its farms' entries
+   */
+  public Storage getStorage() {
+    return storage;
+  }
+  
+  /**
+   * Returns the dictionary that gives each of this table's farm ids a dense int code
+   * @return the farm id dictionary of this table
+   */
+  public FarmIdDictionary getFarmIds() {
+    return ids;
+  }
+  
+  /**
+   * Returns whether this table is safe to change and read from several threads at once
+   * @return true if this table is concurrent
+   */
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+  
+  /**
+   * Creates an empty farm that uses this table's storage and reports its changes to this table's
+   * rollup, without adding it to the table
+   * @param farmId the id of the farm
+   * @return the new farm
+   */
+  private Farm createFarm(String farmId) {
+    int code = ids.codeOf(farmId);
+    Farm farm = new Farm(ids.idOf(code), storage, concurrent);
+    farm.setCode(code);
+    farm.setListener(changes);
+    return farm;
+  }
+  
+  /**
+   * Returns the farm with the given id, creating and adding it if there is none. In a concurrent
+   * table two threads asking for the same new farm get the same one.
+   * @param farmId the id of the farm
+   * @return the farm with the given id
+   */
+  Farm farmFor(String farmId) {
+    if (concurrent) {
+      return farms.computeIfAbsent(farmId, this::createFarm);
+    }
+    Farm farm = farms.get(farmId);
+    if (farm == null) {
+      farm = createFarm(farmId);
+      farms.put(farmId, farm);
+    }
+    return farm;
+  }
+  
+  /**
+   * Merges the rows every farm queued for a bulk load, recomputes this table's rollup and distinct
+   * days from its farms and tells the listeners that the entries were reloaded. Used after farms
+   * were changed without telling their listener.
+   */
+  void reloaded() {
+    for (Farm farm : farms.values()) {
+      farm.finishLoad();
+    }
+    reloadVersion = version.incrementAndGet();
+    if (!concurrent) {
+      rollup.clear();
+      for (Farm farm : farms.values()) {
+        farm.addRollupTo(rollup);
+      }
+      days.clear();
+      addDaysTo(days);
+      sketches.clear();
+    }
+    for (FarmListener listener : listeners) {
+      listener.entriesReloaded(this);
+    }
+  }
+  
+  /**
+   * Sets the operation log that every added, changed and removed entry is appended to. Entries
+   * added by loadData are not logged, so the log should be checkpointed after a load. Once the log
+   * fails to write, a change is still made to the table but then throws the log's
+   * UncheckedIOException, so the caller can tell the user it was not saved.
+   * @param log the log to append changes to, or null for none
+   */
+  public void setOperationLog(OperationLog log) {
+    this.log = log;
+  }
+  
+  /**
+   * Returns the operation log that changes to this table are appended to
+   * @return the operation log, or null if changes are not logged
+   */
+  public OperationLog getOperationLog() {
+    return log;
+  }
+  
+  /**
+   * Adds a listener that is told about every change to the entries of this table's farms
+   * @param listener the listener to add
+   */
+  public void addListener(FarmListener listener) {
+    listeners.add(listener);
+  }
+  
+  /**
+   * Removes a listener added with addListener
+   * @param listener the listener to remove
+   */
+  public void removeListener(FarmListener listener) {
+    listeners.remove(listener);
+  }
+  
+  /**
+   * Returns the total milk weight of every farm for a given month in a given year
+   * @param month the month to get the total for
+   * @param year the year of the month
+   * @return the total weight of every farm for the month
+   */
+  public long getMonthTotal(int month, int year) {
+    if (concurrent) {
+      long total = 0;
+      for (Farm farm : farms.values()) {
+        total += farm.getMonthTotal(month, year);
+      }
+      return total;
+    }
+    return rollup.getTotal(EpochDays.monthIndex(year, month));
+  }
+  
+  /**
+   * Returns the total milk weight of every farm for a given year
+   * @param year the year to get the total for
+   * @return the total weight of every farm for the year
+   */
+  public long getYearTotal(int year) {
+    if (concurrent) {
+      long total = 0;
+      for (Farm farm : farms.values()) {
+        total += farm.getYearTotal(year);
+      }
+      return total;
+    }
+    return rollup.getYearTotal(year);
+  }
+  
+  /**
+   * Returns the per-month totals, counts, minimums and maximums of every farm's weights. A
+   * concurrent table returns a new rollup added up from its farms, which later changes do not
+   * affect.
+   * @return the monthly rollup of every farm's weights
+   */
+  public MonthlyRollup getRollup() {
+    if (concurrent) {
+      MonthlyRollup sum = new MonthlyRollup(this::scanMonth);
+      for (Farm farm : farms.values()) {
+        farm.addRollupTo(sum);
+      }
+      return sum;
+    }
+    return rollup;
+  }
+  
+  /**
+   * Returns the years that have at least one entry, in ascending order, read from the rollup
+   * @return the years with entries
+   */
+  public List<Integer> getYears() {
+    MonthlyRollup months = getRollup();
+    List<Integer> years = new ArrayList<>();
+    int last = Integer.MIN_VALUE;
+    for (int m = months.firstMonth(); m < months.endMonth(); m++) {
+      int year = EpochDays.yearOf(m);
+      if (months.getCount(m) > 0 && year != last) {
+        years.add(year);
+        last = year;
+      }
+    }
+    return years;
+  }
+  
+  /**
+   * Returns the months of the given year that have at least one entry, read from the rollup
+   * @param year the year
+   * @return the months with entries, numbered 1 to 12 in ascending order
+   */
+  public List<Integer> getMonths(int year) {
+    MonthlyRollup months = getRollup();
+    List<Integer> result = new ArrayList<>();
+    for (int m = 1; m <= 12; m++) {
+      if (months.getCount(EpochDays.monthIndex(year, m)) > 0) {
+        result.add(m);
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * Returns the dates that have at least one entry, in ascending order
+   * @return the dates with entries
+   */
+  public List<LocalDate> getDates() {
+    return getDates(LocalDate.MIN);
+  }
+  
+  /**
+   * Returns the dates on or after the given date that have at least one entry, in ascending order.
+   * An ordinary table keeps its distinct dates up to date as entries change; a concurrent table
+   * collects them from its farms.
+   * @param start the first date to include
+   * @return the dates with entries from start on
+   */
+  public List<LocalDate> getDates(LocalDate start) {
+    int fromDay = (int) Math.max(Integer.MIN_VALUE, start.toEpochDay());
+    int[] distinct;
+    if (concurrent) {
+      DistinctDays collected = new DistinctDays();
+      addDaysTo(collected);
+      distinct = collected.between(fromDay, Integer.MAX_VALUE);
+    } else {
+      distinct = days.between(fromDay, Integer.MAX_VALUE);
+    }
+    List<LocalDate> dates = new ArrayList<>(distinct.length);
+    for (int day : distinct) {
+      dates.add(LocalDate.ofEpochDay(day));
+    }
+    return dates;
+  }
+  
+  /**
+   * Returns the number of entries and total weight of every farm from start to end, including both
+   * dates. An ordinary table reads them from the running totals of its distinct days in two binary
+   * searches; a concurrent table adds up the running totals of its farms.
+   *
+   * @param start the first date to include
+   * @param end   the last date to include
+   * @return the number of entries and total weight between the dates
+   */
+  public RangeTotals getRangeTotals(LocalDate start, LocalDate end) {
+    return rangeTotals((int) start.toEpochDay(), (int) end.toEpochDay() + 1);
+  }
+
+  /**
+   * Returns the number of entries and total weight of every farm from one epoch day up to but not
+   * including another
+   *
+   * @param fromDay the first day to include
+   * @param toDay   the first day to leave out
+   * @return the number of entries and total weight in the range
+   */
+  RangeTotals rangeTotals(int fromDay, int toDay) {
+    if (!concurrent) {
+      return days.totalsBetween(fromDay, toDay);
+    }
+    RangeTotals totals = new RangeTotals(0, 0);
+    for (Farm farm : farms.values()) {
+      totals = totals.plus(farm.rangeTotals(fromDay, toDay));
+    }
+    return totals;
+  }
+
+  /**
+   * Returns the number of entries of every farm
+   * @return the number of entries in this table
+   */
+  public long getEntryCount() {
+    long count = 0;
+    for (Farm farm : farms.values()) {
+      count += farm.getEntryCount();
+    }
+    return count;
+  }
+  
+  /**
+   * Returns an estimate of the heap used by every farm's stored entries
+   * @return the estimated number of bytes used by the entries
+   */
+  public long estimateEntryBytes() {
+    long bytes = 0;
+    for (Farm farm : farms.values()) {
+      long stamp = farm.readLock();
+      try {
+        bytes += farm.getStore().estimatedBytes();
+      } finally {
+        farm.unlockRead(stamp);
+      }
+    }
+    return bytes;
+  }
+  
+  /**
+   * Returns how many times a thread had to wait for a farm's lock, added up over every farm of a
+   * concurrent table. Report readers never wait for each other, only for changes.
+   * @return the number of waits for the farms' locks, or 0 if the table is not concurrent
+   */
+  public long getLockWaits() {
+    long waits = 0;
+    for (Farm farm : farms.values()) {
+      waits += farm.getLockWaits();
+    }
+    return waits;
+  }
+
+  /**
+   * Returns the version of this table's entries, which grows with every change. A result computed
+   * after reading the version is out of date if changedSince later returns true for it.
+   * @return the current version
+   */
+  public long getVersion() {
+    return version.get();
+  }
+  
+  /**
+   * Returns whether any entry the given query covers may have changed after the given version.
+   * Versions are kept per farm and month, and the query's cells are checked: the query's farm in
+   * each of its months for a single-farm query, or every farm in each of its months otherwise. A
+   * bulk load counts as a change to every entry.
+   * @param since the version read before the result was computed
+   * @param query the query the result answers
+   * @return true if the result may be out of date
+   */
+  public boolean changedSince(long since, ReportQuery query) {
+    if (reloadVersion > since) {
+      return true;
+    }
+    int first = EpochDays.monthIndex(query.getFromDay());
+    int last = EpochDays.monthIndex(query.getToDay() - 1);
+    if (query.isSingleFarm()) {
+      int code = ids.find(query.getFarmId());
+      if (code < 0) {
+        return false;
+      }
+      // only the months of the farm that ever changed are stored, so this skips the others
+      for (long cellVersion : cellVersions.subMap(cell(code, first), true, cell(code, last), true)
+          .values()) {
+        if (cellVersion > since) {
+          return true;
+        }
+      }
+      return false;
+    }
+    // a month's version is the newest of every farm's cell in that month
+    for (int m = first; m <= last; m++) {
+      if (monthVersions.getOrDefault(m, 0L) > since) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Records that an entry of the given farm on the given day changed, after the change was made
+   */
+  private void changed(Farm farm, int epochDay) {
+    long next = version.incrementAndGet();
+    int month = EpochDays.monthIndex(epochDay);
+    // two threads can finish in either order, so keep the larger version
+    cellVersions.merge(cell(farm.getCode(), month), next, Math::max);
+    monthVersions.merge(month, next, Math::max);
+  }
+  
+  /**
+   * Returns the key of the version of a farm's month, ordered by farm and then by month
+   */
+  private static long cell(int code, int monthIndex) {
+    // flipping the sign bit orders negative month indexes before positive ones
+    return ((long) code << 32) | ((monthIndex ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+  }
+  
+  /**
+   * Sets the accuracy parameter of the quantile sketches returned by getQuantiles. Larger values
+   * give more accurate quantiles from larger sketches; cached sketches are rebuilt on next use.
+   * @param k the accuracy parameter, at least QuantileSketch.MIN_K
+   * @throws IllegalArgumentException if k is less than QuantileSketch.MIN_K
+   */
+  public void setQuantileAccuracy(int k) {
+    if (k < QuantileSketch.MIN_K) {
+      throw new IllegalArgumentException("k must be at least " + QuantileSketch.MIN_K);
+    }
+    this.sketchK = k;
+  }
+  
+  /**
+   * Returns the accuracy parameter of the quantile sketches returned by getQuantiles
+   * @return the accuracy parameter
+   */
+  public int getQuantileAccuracy() {
+    return sketchK;
+  }
+  
+  /**
+   * Returns a quantile sketch of every farm's weights from start to end, including both dates,
+   * for reading approximate medians and percentiles without collecting the weights
+   * @param start the first date to include
+   * @param end   the last date to include
+   * @return a new sketch of the weights between the dates
+   */
+  public QuantileSketch getQuantiles(LocalDate start, LocalDate end) {
+    return quantiles(null, (int) start.toEpochDay(), (int) end.toEpochDay() + 1);
+  }
+  
+  /**
+   * Returns a quantile sketch of one farm's or every farm's weights from one epoch day up to but
+   * not including another. Whole months are merged from the cached sketches of each farm and
+   * month; an ordinary table also caches each month's merge across its farms. The days of a
+   * partial month at either end are added one weight at a time.
+   * @param farmId  the id of the farm, or null for every farm
+   * @param fromDay the first day to include
+   * @param toDay   the first day to leave out
+   * @return a new sketch of the weights in the range
+   */
+  QuantileSketch quantiles(String farmId, int fromDay, int toDay) {
+    int k = sketchK;
+    QuantileSketch result = new QuantileSketch(k);
+    Collection<Farm> covered;
+    if (farmId == null) {
+      covered = farms.values();
+    } else {
+      Farm farm = farms.get(farmId);
+      if (farm == null) {
+        return result;
+      }
+      covered = Collections.singletonList(farm);
+    }
+    // clamping to the days that have entries keeps the month arithmetic in range
+    int from = Integer.MAX_VALUE;
+    int to = Integer.MIN_VALUE;
+    for (Farm farm : covered) {
+      long span = farm.daySpan();
+      if (span != Farm.NO_DAYS) {
+        from = Math.min(from, (int) (span >> 32));
+        to = Math.max(to, (int) span + 1);
+      }
+    }
+    from = Math.max(from, fromDay);
+    to = Math.min(to, toDay);
+    if (from >= to) {
+      return result;
+    }
+    int firstWhole = EpochDays.monthIndex(from);
+    if (EpochDays.firstDay(firstWhole) < from) {
+      firstWhole++;
+    }
+    int endWhole = EpochDays.monthIndex(to);
+    if (firstWhole >= endWhole) {
+      addWeights(covered, result, from, to);
+      return result;
+    }
+    addWeights(covered, result, from, EpochDays.firstDay(firstWhole));
+    for (int m = firstWhole; m < endWhole; m++) {
+      if (farmId != null) {
+        result.merge(covered.iterator().next().monthSketch(m, k));
+      } else if (!concurrent) {
+        if (rollup.getCount(m) > 0) {
+          result.merge(sketches.get(m, k));
+        }
+      } else {
+        for (QuantileSketch part : farmSketches(m)) {
+          result.merge(part);
+        }
+      }
+    }
+    addWeights(covered, result, EpochDays.firstDay(endWhole), to);
+    return result;
+  }
+  
+  private static void addWeights(Collection<Farm> covered, QuantileSketch sketch, int fromDay,
+      int toDay) {
+    if (fromDay < toDay) {
+      for (Farm farm : covered) {
+        farm.addWeightsTo(sketch, fromDay, toDay);
+      }
+    }
+  }
+  
+  /**
+   * Returns the sketch of the given month of each farm that has entries in it
+   */
+  private List<QuantileSketch> farmSketches(int monthIndex) {
+    List<QuantileSketch> parts = new ArrayList<>();
+    for (Farm farm : farms.values()) {
+      QuantileSketch part = farm.monthSketch(monthIndex, sketchK);
+      if (part.getCount() > 0) {
+        parts.add(part);
+      }
+    }
+    return parts;
+  }
+  
+  /**
+   * Adds the day and weight of every entry of every farm to the given set
+   */
+  private void addDaysTo(DistinctDays target) {
+    for (Farm farm : farms.values()) {
+      long stamp = farm.readLock();
+      try {
+        target.addAll(farm.getStore());
+      } finally {
+        farm.unlockRead(stamp);
+      }
+    }
+  }
+  
+  /**
+   * Passes each farm's minimum and maximum for the given month to the given consumer
+   */
+  private void scanMonth(int monthIndex, IntConsumer weights) {
+    for (Farm farm : farms.values()) {
+      farm.scanExtremes(monthIndex, weights);
+    }
+  }
+  
+  /**
+   * Returns the map of farms, a ConcurrentHashMap if this table is concurrent
+   * @return the map of farms
+   */
+  public Map<String, Farm> getFarms() {
+    return farms;
+  }
+  
+  /**
+   * Returns the Farm associated with the given farmId
+   * @param farmId the id of the farm to get
+   * @return the Farm associated with the given farmId
+   */
+  public Farm getFarm(String farmId) {
+    return farms.get(farmId);
+  }
+  
+  /**
+   * Adds a given entry to the correct Farm in the FarmTable
+   * @param entry the Entry to add
+   */
+  public void addEntry(Entry entry) {
+    farmFor(entry.getFarmId()).addEntry(entry);
+  }
+  
+  /**
+   * Adds a new entry to the correct farm in the FarmTable
+   * @param date the date of the entry
+   * @param farmId the Farm to add the entry to
+   * @param weight the recorded weight on the given date
+   */
+  public void addEntry(LocalDate date, String farmId, int weight) {
+    farmFor(farmId).addEntry(date, weight);
+  }
+  
+  /**
+   * Removes a given entry from the correct farm in the FarmTable
+   * @param entry the entry to remove
+   * @return true if the entry was successfully removed and false otherwise
+   */
+  public boolean removeEntry(Entry entry) {
+    Farm farm = farms.get(entry.getFarmId());
+    return farm != null && farm.removeEntry(entry);
+  }
+  
+  /**
+   * Removes an entry at the given date from the given farmId in the FarmTable
+   * @param date the date of the entry to remove
+   * @param farmId the Farm to remove the entry from 
+   * @return true if the entry was successfully removed and false otherwise
+   */
+  public boolean removeEntry(LocalDate date, String farmId) {
+    Farm farm = farms.get(farmId);
+    return farm != null && farm.removeEntry(date);
+  }
+  
+  /**
+   * Edits all of the attributes of a given entry
+   * @param entry the entry to modify
+   * @param newDate the new date for the entry
+   * @param newFarmId the new farmId for the entry
+   * @param newWeight the new weight for the entry
+   * @return true if the entry was successfully edited and false if it is no longer in the table
+   */
+  public boolean editEntry(Entry entry, LocalDate newDate, String newFarmId, int newWeight) {
+    Farm farm = farms.get(entry.getFarmId());
+    if (farm == null || !farm.removeEntry(entry)) {
+      return false;
+    }
+    this.addEntry(newDate, newFarmId, newWeight);
+    return true;
+  }
+  
+  /**
+   * Edits the date of a given entry
+   * @param entry the entry to modify
+   * @param newDate the new date for the entry
+   * @return true if the entry was successfully edited and false otherwise
+   */
+  public boolean editEntry(Entry entry, LocalDate newDate) {
+    String farmId = entry.getFarmId();
+    if (!farms.keySet().contains(farmId)) {
+      return false;
+    }
+    farms.get(farmId).editEntry(newDate, entry.getWeight());
+    return true;
+  }
+  
+  /**
+   * Edits the weight of a given entry
+   * @param entry the entry to modify
+   * @param newWeight the new weight for the entry
+   * @return true if the entry was successfully edited and false otherwise
+   */
+  public boolean editEntry(Entry entry, int newWeight) {
+    String farmId = entry.getFarmId();
+    if (!farms.keySet().contains(farmId)) {
+      return false;
+    }
+    farms.get(farmId).editEntry(entry.getDate(), newWeight);
+    return true;
+  }
+  
+  /**
+   * Edits the farmId of the entry, moving it to a different farm in the FarmTable. The moved
+   * entry is a new Entry, so the given one, which other threads may still be reading, keeps its
+   * old farmId.
+   * @param entry the entry to modify
+   * @param newFarmId the new farmId for the entry
+   * @return true if the entry was successfully edited and false if it is no longer in the table
+   */
+  public boolean editEntry(Entry entry, String newFarmId) {
+    Farm farm = farms.get(entry.getFarmId());
+    if (farm == null || !farm.removeEntry(entry)) {
+      return false;
+    }
+    farmFor(newFarmId).addEntry(new Entry(entry.getDate(), newFarmId, entry.getWeight()));
+    return true;
+  }
+}
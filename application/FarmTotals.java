@@ -0,0 +1,143 @@
+package application;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Defines the total weight and number of entries of each farm in a report, kept in arrays indexed
+ * by the farms' dictionary codes so that grouping rows by farm is an array update rather than a
+ * String lookup.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class FarmTotals {
+  private final FarmIdDictionary ids;
+  private long[] totals;
+  private int[] counts;
+  private int farms;
+
+  /**
+   * Initializes empty totals for the farms of the given dictionary
+   *
+   * @param ids the dictionary giving the farms' codes
+   */
+  public FarmTotals(FarmIdDictionary ids) {
+    this.ids = ids;
+    this.totals = new long[Math.max(ids.size(), 1)];
+    this.counts = new int[totals.length];
+  }
+
+  /**
+   * Adds entries to the totals of the farm with the given code
+   *
+   * @param code   the code of the farm
+   * @param count  the number of entries to add
+   * @param weight the total weight of those entries
+   */
+  public void add(int code, int count, long weight) {
+    if (code >= totals.length) {
+      totals = Arrays.copyOf(totals, Math.max(code + 1, totals.length * 2));
+      counts = Arrays.copyOf(counts, totals.length);
+    }
+    if (counts[code] == 0 && count > 0) {
+      farms++;
+    }
+    totals[code] += weight;
+    counts[code] += count;
+  }
+
+  /**
+   * Returns the number of farms with at least one entry
+   *
+   * @return the number of farms with entries
+   */
+  public int size() {
+    return farms;
+  }
+
+  /**
+   * Returns the codes of the farms with at least one entry, in ascending order
+   *
+   * @return the codes of the farms with entries
+   */
+  public int[] codes() {
+    int[] codes = new int[counts.length];
+    int n = 0;
+    for (int code = 0; code < counts.length; code++) {
+      if (counts[code] > 0) {
+        codes[n++] = code;
+      }
+    }
+    return Arrays.copyOf(codes, n);
+  }
+
+  /**
+   * Returns the codes of the k farms with the largest total weights, largest first, with ties going
+   * to the smaller code. Only k farms are held at once, so this stays cheap with thousands of
+   * farms.
+   *
+   * @param k the largest number of farms to return
+   * @return the codes of up to k farms with entries, by descending total weight
+   */
+  public int[] topCodes(int k) {
+    if (k <= 0) {
+      return new int[0];
+    }
+    // the head of the queue is the smallest of the farms kept so far
+    PriorityQueue<Integer> kept = new PriorityQueue<>(k, this::compareTotals);
+    for (int code = 0; code < counts.length; code++) {
+      if (counts[code] == 0) {
+        continue;
+      }
+      if (kept.size() < k) {
+        kept.add(code);
+      } else if (compareTotals(code, kept.peek()) > 0) {
+        kept.poll();
+        kept.add(code);
+      }
+    }
+    int[] top = new int[kept.size()];
+    for (int i = top.length - 1; i >= 0; i--) {
+      top[i] = kept.poll();
+    }
+    return top;
+  }
+
+  /**
+   * Orders farms by total weight, and a smaller code above a larger one with the same total
+   */
+  private int compareTotals(int a, int b) {
+    int cmp = Long.compare(totals[a], totals[b]);
+    return cmp != 0 ? cmp : Integer.compare(b, a);
+  }
+
+  /**
+   * Returns the id of the farm with the given code
+   *
+   * @param code the code of the farm
+   * @return the id of the farm
+   */
+  public String getFarmId(int code) {
+    return ids.idOf(code);
+  }
+
+  /**
+   * Returns the total weight of the farm with the given code
+   *
+   * @param code the code of the farm
+   * @return the farm's total weight, or 0 if it has no entries
+   */
+  public long getTotal(int code) {
+    return code < totals.length ? totals[code] : 0;
+  }
+
+  /**
+   * Returns the number of entries of the farm with the given code
+   *
+   * @param code the code of the farm
+   * @return the farm's number of entries
+   */
+  public int getCount(int code) {
+    return code < counts.length ? counts[code] : 0;
+  }
+}
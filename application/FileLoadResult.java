@@ -0,0 +1,74 @@
+package application;
+
+import java.io.File;
+
+/**
+ * Defines what loading one csv file of a multi-file load did: how large the file was, how many
+ * rows were parsed from it and how long parsing it took.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class FileLoadResult {
+  private final File file;
+  private final long bytes;
+  private final long rows;
+  private final long parseNanos;
+
+  /**
+   * Initializes the result of loading one file
+   *
+   * @param file       the file that was loaded
+   * @param bytes      the size of the file in bytes
+   * @param rows       the number of rows parsed from the file
+   * @param parseNanos the time from the start of parsing the file to the end, in nanoseconds
+   */
+  public FileLoadResult(File file, long bytes, long rows, long parseNanos) {
+    this.file = file;
+    this.bytes = bytes;
+    this.rows = rows;
+    this.parseNanos = parseNanos;
+  }
+
+  /**
+   * Returns the file that was loaded
+   *
+   * @return the file that was loaded
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the size of the file in bytes
+   *
+   * @return the size of the file in bytes
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the number of rows parsed from the file, including rows later replaced by a later
+   * row or file with the same farm and date
+   *
+   * @return the number of rows parsed from the file
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the time from when the first part of the file started parsing to when the last part
+   * finished, in milliseconds. Parts of other files may have been parsed in the same time.
+   *
+   * @return the time spent parsing the file in milliseconds
+   */
+  public double getParseMillis() {
+    return parseNanos / 1e6;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %,d rows in %.1f ms", file.getName(), rows, getParseMillis());
+  }
+}
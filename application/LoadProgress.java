@@ -0,0 +1,39 @@
+package application;
+
+/**
+ * Defines a callback that follows the progress of a FarmTable.loadData call and can ask it to
+ * stop. Loads call update from whichever thread is doing the work, so implementations must be
+ * safe to call from several threads.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public interface LoadProgress {
+
+  /** a LoadProgress that ignores updates and never cancels */
+  LoadProgress NONE = new LoadProgress() {
+    @Override
+    public void update(long bytesRead, long totalBytes, long rows) {}
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+  };
+
+  /**
+   * Called every so often while a file is loading
+   *
+   * @param bytesRead  the number of bytes of the file that have been processed so far
+   * @param totalBytes the size of the file in bytes
+   * @param rows       the number of rows that have been parsed so far
+   */
+  void update(long bytesRead, long totalBytes, long rows);
+
+  /**
+   * Returns true if the load should stop. A stopped load throws a CancellationException and may
+   * leave the table partly loaded.
+   *
+   * @return true if the load should stop
+   */
+  boolean isCancelled();
+}
@@ -0,0 +1,65 @@
+package application;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import javafx.concurrent.Task;
+
+/**
+ * Defines a background task that loads csv files into a copy of a FarmTable. The table being
+ * displayed is never touched while the files load; the task's value is the copy with the files'
+ * data added, which the caller swaps in on the JavaFX application thread once the task succeeds.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class LoadTask extends Task<FarmTable> {
+  private static final double MB = 1024 * 1024;
+
+  private final FarmTable base;
+  private final List<File> csvfiles;
+  private volatile List<FileLoadResult> results = Collections.emptyList();
+
+  /**
+   * Initializes a task that loads the given files on top of the given table's data, later files
+   * winning over earlier ones for the same farm and date
+   *
+   * @param base     the table whose data the loaded table starts from
+   * @param csvfiles the csv files to load
+   */
+  public LoadTask(FarmTable base, List<File> csvfiles) {
+    this.base = base;
+    this.csvfiles = csvfiles;
+  }
+
+  /**
+   * Returns the number of rows and parse time of each file once the task has succeeded
+   *
+   * @return the result of loading each file, in the order they were given
+   */
+  public List<FileLoadResult> getResults() {
+    return results;
+  }
+
+  @Override
+  protected FarmTable call() throws Exception {
+    updateMessage(csvfiles.size() == 1 ? "Preparing " + csvfiles.get(0).getName() + "..."
+        : "Preparing " + csvfiles.size() + " files...");
+    FarmTable next = base.copy();
+    long start = System.nanoTime();
+    results = next.loadFiles(csvfiles, new LoadProgress() {
+      @Override
+      public void update(long bytesRead, long totalBytes, long rows) {
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+        updateProgress(bytesRead, totalBytes);
+        updateMessage(String.format("%.1f of %.1f MB, %,d rows (%.1f MB/s, %,.0f rows/s)",
+            bytesRead / MB, totalBytes / MB, rows, bytesRead / MB / seconds, rows / seconds));
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return LoadTask.this.isCancelled();
+      }
+    });
+    return next;
+  }
+}
@@ -1,686 +1,944 @@
-
-package application;
-
-import java.io.File;
-import java.time.LocalDate;
-import java.time.Month;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
-import javafx.application.Application;
-import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
-import javafx.geometry.Pos;
-import javafx.scene.Scene;
-import javafx.scene.chart.BarChart;
-import javafx.scene.chart.CategoryAxis;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.PieChart;
-import javafx.scene.control.Alert;
-import javafx.scene.control.Button;
-import javafx.scene.control.ChoiceDialog;
-import javafx.scene.control.ComboBox;
-import javafx.scene.control.Label;
-import javafx.scene.control.TableColumn;
-import javafx.scene.control.TableView;
-import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.control.Alert.AlertType;
-import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.Region;
-import javafx.scene.layout.VBox;
-import javafx.scene.text.Font;
-import javafx.scene.text.TextAlignment;
-import javafx.stage.FileChooser;
-import javafx.stage.Stage;
-
-/**
- * Main class for GUI for Milk Weights ATEAM project
- *
- * @author Matthew Woo, Param Bhandare, Russell Cheng
- */
-public class Main extends Application {
-
-  private static final int WINDOW_WIDTH = 650;
-  private static final int WINDOW_HEIGHT = 470;
-  private static final String APP_TITLE = "Milk Weights";
-  private static FarmTable farmTable = new FarmTable();
-
-  /**
-   * Starts the program and adds all components to the screen
-   * 
-   * @param primaryStage
-   * @throws Exception
-   */
-  @Override
-  public void start(Stage primaryStage) throws Exception {
-    VBox root = new VBox(10);
-
-    root.setAlignment(Pos.CENTER);
-
-    // Add the vertical box to the center of the root pane
-    Label titleLabel = new Label("Welcome to Milk Weights");
-    titleLabel.setTextAlignment(TextAlignment.CENTER);
-    titleLabel.setFont(new Font("Cambria", 40));
-
-    Label promptLabel = new Label("Please upload a data file to begin parsing:");
-    promptLabel.setTextAlignment(TextAlignment.CENTER);
-    promptLabel.setFont(new Font("Cambria", 28));
-    promptLabel.setMaxWidth(350);
-    promptLabel.setWrapText(true);
-    FileChooser fileChooser = new FileChooser();
-    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
-    Button uploadButton = new Button("Upload Here");
-    uploadButton.setOnAction(new EventHandler<ActionEvent>() {
-      @Override
-      public void handle(ActionEvent arg0) {
-        File selected = fileChooser.showOpenDialog(primaryStage);
-        try {
-          farmTable.loadData(selected);
-          dataScreen(primaryStage);
-        } catch (Exception ex) {
-          ex.printStackTrace();
-          errorPopup("There was an error reading the file.");
-        }
-      }
-    });
-    Button skipButton = new Button("Skip");
-    skipButton.setOnAction(new EventHandler<ActionEvent>() {
-      @Override
-      public void handle(ActionEvent arg0) {
-        dataScreen(primaryStage);
-      }
-    });
-    Region spacer = new Region();
-    spacer.setMinHeight(100);
-    root.getChildren().add(titleLabel);
-    root.getChildren().add(spacer);
-    root.getChildren().add(promptLabel);
-    root.getChildren().add(uploadButton);
-    root.getChildren().add(skipButton);
-    Scene mainScene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
-
-    // Add the stuff and set the primary stage
-    primaryStage.setTitle(APP_TITLE);
-    primaryStage.setScene(mainScene);
-    primaryStage.show();
-  }
-
-  /**
-   * Displays an error when thrown by the program to user
-   * 
-   * @param errorText to be thrown
-   */
-  public void errorPopup(String errorText) {
-    // display error popup
-    Alert error = new Alert(AlertType.ERROR);
-    error.setTitle("Error");
-    error.setHeaderText("Error occured during...");
-    error.setContentText(errorText);
-
-    error.showAndWait();
-  }
-
-  /**
-   * Displays the data loaded in from the home screen.
-   * 
-   * @param primaryStage
-   */
-  public void dataScreen(Stage primaryStage) {
-    VBox root = new VBox(10);
-    root.setAlignment(Pos.CENTER);
-
-    HBox reportRow = new HBox(20);
-    reportRow.setAlignment(Pos.CENTER);
-    Label reportLabel = new Label("Generate Report: ");
-    reportLabel.setFont(new Font("Cambria", 20));
-    Button farm = new Button("Farm");
-    Button annual = new Button("Annual");
-    Button monthly = new Button("Monthly");
-    Button range = new Button("Range");
-    reportRow.getChildren().add(reportLabel);
-    reportRow.getChildren().add(farm);
-    reportRow.getChildren().add(annual);
-    reportRow.getChildren().add(monthly);
-    reportRow.getChildren().add(range);
-
-    farm.setOnAction(e -> reportGenerationIntermediaryFarm(primaryStage));
-    annual.setOnAction(e -> reportGenerationIntermediaryYear(primaryStage));
-    monthly.setOnAction(e -> reportGenerationIntermediaryMonth(primaryStage));
-    range.setOnAction(e -> reportGenerationIntermediaryRange(primaryStage));
-
-    HBox tableRow = new HBox(30);
-    tableRow.setAlignment(Pos.CENTER);
-    TableView<Entry> tableView = new TableView<>();
-
-    VBox buttons = new VBox(10);
-    buttons.setAlignment(Pos.CENTER);
-    HBox farmIdBox = new HBox(5);
-    farmIdBox.setAlignment(Pos.CENTER_LEFT);
-    Label farmIdLabel = new Label("Farm ID:");
-    TextField farmIdField = new TextField();
-    farmIdBox.getChildren().addAll(farmIdLabel, farmIdField);
-    HBox dateBox = new HBox(5);
-    dateBox.setAlignment(Pos.CENTER_LEFT);
-    Label dateLabel = new Label("Date:");
-    TextField dateField = new TextField();
-    dateBox.getChildren().addAll(dateLabel, dateField);
-    HBox weightBox = new HBox(5);
-    weightBox.setAlignment(Pos.CENTER_LEFT);
-    Label weightLabel = new Label("Weight:");
-    TextField weightField = new TextField();
-    weightBox.getChildren().addAll(weightLabel, weightField);
-
-    Button add = new Button("Add");
-
-    add.setOnAction(new EventHandler<ActionEvent>() {
-      @Override
-      public void handle(ActionEvent arg0) {
-        String farmId = farmIdField.getText();
-        LocalDate date;
-        int weight;
-        try {
-          DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
-          date = LocalDate.parse(dateField.getText(), formatter);
-        } catch (DateTimeParseException e) {
-          errorPopup("Please enter the date in the form yyyy-M-d.");
-          return;
-        }
-        try {
-          weight = Integer.parseInt(weightField.getText());
-        } catch (NumberFormatException e) {
-          errorPopup("Please enter an integer for the weight.");
-          return;
-        }
-        farmTable.addEntry(date, farmId, weight);
-        dataScreen(primaryStage);
-      }
-    });
-
-    Button del = new Button("Del");
-
-    del.setOnAction(new EventHandler<ActionEvent>() {
-      @Override
-      public void handle(ActionEvent arg0) {
-        String farmId = farmIdField.getText();
-        LocalDate date;
-        try {
-          DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
-          date = LocalDate.parse(dateField.getText(), formatter);
-        } catch (DateTimeParseException e) {
-          errorPopup("Please enter the date in the form yyyy-M-d.");
-          return;
-        }
-        if (farmTable.removeEntry(date, farmId)) {
-          dataScreen(primaryStage);
-        } else {
-          errorPopup("The entry could not be removed");
-        }
-      }
-    });
-
-    FileChooser fileChooser = new FileChooser();
-    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
-    Button uploadButton = new Button("Upload Files Here");
-    uploadButton.setOnAction(new EventHandler<ActionEvent>() {
-      @Override
-      public void handle(ActionEvent arg0) {
-        File selected = fileChooser.showOpenDialog(primaryStage);
-        try {
-          farmTable.loadData(selected);
-          dataScreen(primaryStage);
-        } catch (Exception ex) {
-          ex.printStackTrace();
-          errorPopup("There was an error reading the file.");
-        }
-      }
-    });
-
-    buttons.getChildren().addAll(farmIdBox, dateBox, weightBox, add, del, uploadButton);
-
-
-    tableRow.getChildren().add(tableView);
-    tableRow.getChildren().add(buttons);
-
-    TableColumn<Entry, Entry> dateCol = new TableColumn<>("Date");
-    dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
-    tableView.getColumns().add(dateCol);
-    // change to have each column be a farm
-    TableColumn<Entry, Entry> farmCol = new TableColumn<>("Farm ID");
-    farmCol.setCellValueFactory(new PropertyValueFactory<>("farmId"));
-    tableView.getColumns().add(farmCol);
-    TableColumn<Entry, Entry> weightCol = new TableColumn<>("Weight");
-    weightCol.setCellValueFactory(new PropertyValueFactory<>("weight"));
-    tableView.getColumns().add(weightCol);
-    for (String farmId : farmTable.getFarms().keySet()) {
-      for (Entry e : farmTable.getFarms().get(farmId).getEntries()) {
-        tableView.getItems().add(e);
-      }
-    }
-    tableView.getSortOrder().addAll(dateCol, farmCol, weightCol);
-
-    root.getChildren().add(reportRow);
-    root.getChildren().add(tableRow);
-
-    Scene dataScene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
-
-    primaryStage.setScene(dataScene);
-    primaryStage.show();
-  }
-
-  public void reportGenerationIntermediaryFarm(Stage primaryStage) {
-    List<String> choices = new ArrayList<>();
-    for (String farmID : farmTable.getFarms().keySet()) {
-      choices.add(farmTable.getFarms().get(farmID).getID());
-    }
-
-    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
-    dialog.setTitle("Farm Selection");
-    dialog.setHeaderText("Please select a farm to generate a report of...");
-    dialog.setContentText("Choose your farm: ");
-
-    Optional<String> result = dialog.showAndWait();
-    if (result.isPresent()) {
-      System.out.println("Your choice: " + result.get());
-      reportGeneratedScreen(primaryStage, result.get(), "");
-    }
-  }
-
-  public void reportGenerationIntermediaryMonth(Stage primaryStage) {
-    List<String> choices = new ArrayList<>();
-    for (String farmID : farmTable.getFarms().keySet()) {
-      for (Entry entries : farmTable.getFarms().get(farmID).getEntries()) {
-        if (choices.contains(Integer.toString(entries.getDate().getYear()))) {
-          continue;
-        }
-        choices.add(Integer.toString(entries.getDate().getYear()));
-      }
-    }
-
-    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
-    dialog.setTitle("Month Selection");
-    dialog.setHeaderText("First, please select a single year to genereate a report of...");
-    dialog.setContentText("Choose your year: ");
-
-    Optional<String> result = dialog.showAndWait();
-    if (result.isPresent()) {
-      System.out.println("Your choice: " + result.get());
-      monthIntermediary(primaryStage, result.get());
-    }
-  }
-
-  public void monthIntermediary(Stage primaryStage, String selectedYear) {
-    List<String> choices = new ArrayList<>();
-    for (String farmID : farmTable.getFarms().keySet()) {
-      for (Entry entries : farmTable.getFarms().get(farmID).getEntries()) {
-        if (choices.contains(entries.getDate().getMonth().toString())) {
-          continue;
-        }
-        if (entries.getDate().getYear() == Integer.parseInt(selectedYear)) {
-          choices.add(entries.getDate().getMonth().toString());
-        }
-      }
-    }
-
-    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
-    dialog.setTitle("Month Selection");
-    dialog.setHeaderText(
-        "Please select a single month from year " + selectedYear + " to generate a report of...");
-    dialog.setContentText("Choose your month: ");
-
-    Optional<String> result = dialog.showAndWait();
-    if (result.isPresent()) {
-      System.out.println("Your choice: " + result.get());
-      reportGeneratedScreen(primaryStage, result.get(), selectedYear);
-    }
-  }
-
-  public void reportGenerationIntermediaryYear(Stage primaryStage) {
-    List<String> choices = new ArrayList<>();
-    for (String farmID : farmTable.getFarms().keySet()) {
-      for (Entry entries : farmTable.getFarms().get(farmID).getEntries()) {
-        if (choices.contains(Integer.toString(entries.getDate().getYear()))) {
-          continue;
-        }
-        choices.add(Integer.toString(entries.getDate().getYear()));
-      }
-    }
-
-    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
-    dialog.setTitle("Year Selection");
-    dialog.setHeaderText("Please select a single year to genereate a report of...");
-    dialog.setContentText("Choose your year: ");
-
-    Optional<String> result = dialog.showAndWait();
-    if (result.isPresent()) {
-      System.out.println("Your choice: " + result.get());
-      reportGeneratedScreen(primaryStage, result.get(), "");
-    }
-  }
-
-  public void reportGenerationIntermediaryRange(Stage primaryStage) {
-    List<String> choices = new ArrayList<>();
-    for (String farmID : farmTable.getFarms().keySet()) {
-      for (Entry entries : farmTable.getFarms().get(farmID).getEntries()) {
-        if (choices.contains(entries.getDate().toString())) {
-          continue;
-        }
-        choices.add(entries.getDate().toString());
-      }
-    }
-
-    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
-    dialog.setTitle("Date Selection");
-    dialog.setHeaderText("Please select start date to genereate a report starting from...");
-    dialog.setContentText("Choose your day: ");
-
-    Optional<String> result = dialog.showAndWait();
-    if (result.isPresent()) {
-      System.out.println("Your choice: " + result.get());
-      chooseEndDateInRange(primaryStage, result.get());
-    }
-  }
-
-  public void chooseEndDateInRange(Stage primaryStage, String selectedDate) {
-    List<String> choices = new ArrayList<>();
-    for (String farmID : farmTable.getFarms().keySet()) {
-      for (Entry entries : farmTable.getFarms().get(farmID).getEntries()) {
-        if (choices.contains(entries.getDate().toString())) {
-          continue;
-        }
-        choices.add(entries.getDate().toString());
-      }
-    }
-
-    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
-    dialog.setTitle("Year Selection");
-    dialog.setHeaderText("Please select end date to genereate a report till...");
-    dialog.setContentText("Choose your day: ");
-
-    Optional<String> result = dialog.showAndWait();
-    if (result.isPresent()) {
-      System.out.println("Your choice: " + result.get());
-      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
-      LocalDate endDate = LocalDate.parse(result.get().toString(), formatter);
-      if (endDate.compareTo(LocalDate.parse(selectedDate, formatter)) < 0) {
-        errorPopup("Please choose date in order correctly");
-        chooseEndDateInRange(primaryStage, selectedDate);
-      } else {
-        reportGeneratedScreen(primaryStage, result.get(), selectedDate);
-      }
-    }
-  }
-
-  public void reportGeneratedScreen(Stage primaryStage, String selectedElement,
-      String selectedElement2/* selected date-range, farm or month */) {
-    List<Entry> data = new ArrayList<>();
-    String typeOfData = "";
-    BorderPane root = new BorderPane();
-
-    String cssLayout = "-fx-border-color: black;\n" + "-fx-border-insets: 5;\n"
-        + "-fx-border-width: 3;\n" + "-fx-border-style: solid;\n";
-
-    Label reportGeneratedFor =
-        new Label("Report Generated For: " + selectedElement /* selected farm or month */);
-    if (selectedElement.contains("-") && selectedElement2.contains("-")) {
-      reportGeneratedFor
-          .setText("Report Generated For: " + selectedElement2 + " to " + selectedElement);
-    }
-    reportGeneratedFor.setFont(new Font("Cambria", 20));
-    reportGeneratedFor.setAlignment(Pos.TOP_CENTER);
-    TableView<Entry> tableView = new TableView<>();
-    TableColumn<Entry, Entry> dateCol = new TableColumn<>("Date");
-    dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
-    tableView.getColumns().add(dateCol);
-    TableColumn<Entry, Entry> farmCol = new TableColumn<>("Farm ID");
-    farmCol.setCellValueFactory(new PropertyValueFactory<>("farmId"));
-    tableView.getColumns().add(farmCol);
-    TableColumn<Entry, Entry> weightCol = new TableColumn<>("Weight");
-    weightCol.setCellValueFactory(new PropertyValueFactory<>("weight"));
-    tableView.getColumns().add(weightCol);
-
-    if (selectedElement.contains("Farm") && selectedElement2.equals("")) {
-      typeOfData = "farm";
-      for (Entry e : farmTable.getFarms().get(selectedElement).getEntries()) {
-        tableView.getItems().add(e);
-        data.add(e);
-      }
-    }
-
-    for (Month month : Month.values()) {
-      if (selectedElement.equalsIgnoreCase(month.name())) {
-        typeOfData = "month";
-
-        for (String farmID : farmTable.getFarms().keySet()) {
-          for (Entry e : farmTable.getFarms().get(farmID).getEntries()) {
-            if (e.getDate().getMonth().toString().equals(selectedElement)
-                && e.getDate().getYear() == Integer.parseInt(selectedElement2)) {
-              tableView.getItems().add(e);
-              data.add(e);
-            }
-          }
-        }
-      }
-    }
-
-    try {
-      if (Integer.parseInt(selectedElement) % 1 == 0 && selectedElement2.equals("")) {
-        typeOfData = "year";
-        for (String farmID : farmTable.getFarms().keySet()) {
-          for (Entry e : farmTable.getFarms().get(farmID).getEntries()) {
-            if (e.getDate().getYear() == Integer.parseInt(selectedElement)) {
-              tableView.getItems().add(e);
-              data.add(e);
-            }
-          }
-        }
-      }
-    } catch (NumberFormatException e) {
-    }
-
-
-    LocalDate date1, date2;
-
-    try {
-      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
-      date1 = LocalDate.parse(selectedElement, formatter);
-      date2 = LocalDate.parse(selectedElement2, formatter);
-
-      LocalDate upperDate = date1, lowerDate = date2;
-
-      for (String farmID : farmTable.getFarms().keySet()) {
-        for (Entry e : farmTable.getFarms().get(farmID).getEntries()) {
-          if (e.getDate().compareTo(lowerDate) >= 0 && e.getDate().compareTo(upperDate) <= 0) {
-            System.out
-                .println(e.getDate().compareTo(lowerDate) + " " + e.getDate().compareTo(upperDate));
-            tableView.getItems().add(e);
-            data.add(e);
-          }
-        }
-      }
-    } catch (DateTimeParseException e) {
-    }
-
-    HBox tableRow = new HBox(10);
-    VBox sideRow = new VBox(10);
-    tableRow.setAlignment(Pos.CENTER);
-    sideRow.setAlignment(Pos.CENTER_RIGHT);
-    VBox sortOptions = new VBox();
-    sortOptions.setAlignment(Pos.TOP_LEFT);
-    Label sortLabel = new Label("Sort By:");
-    sortLabel.setFont(new Font("Cambria", 20));
-    sortLabel.setAlignment(Pos.TOP_LEFT);
-    ComboBox<String> options = new ComboBox<>();
-    
-    VBox barChartBox = new VBox(10);
-    CategoryAxis xAxis = new CategoryAxis();
-    NumberAxis yAxis = new NumberAxis();
-    BarChart<String, Number> bc = new BarChart<String, Number>(xAxis, yAxis);
-    bc.setTitle("Visual Statistics");
-    xAxis.setLabel("Category");
-    yAxis.setLabel("Value");
-    
-    String[] uniqueFarmIds = new String[500];
-    int countUniqueFarms = 0;
-    for (int i = 0; i < data.size(); i++) {
-      if (!Arrays.asList(uniqueFarmIds).contains(data.get(i).getFarmId())) {
-        uniqueFarmIds[countUniqueFarms] = data.get(i).getFarmId();
-        countUniqueFarms++;
-      }
-    }
-    
-    int[] sumOfDataFromFarm = new int[uniqueFarmIds.length];
-    for (int i = 0; i < uniqueFarmIds.length; i++) {
-      for (Entry d : data) {
-        if (d.getFarmId().equals(uniqueFarmIds[i])) {
-          sumOfDataFromFarm[i] += d.getWeight();
-        }
-      }
-    }
-    
-    ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
-    for (int i = 0; i < countUniqueFarms; i++) {
-      pieChartData.add(new PieChart.Data(uniqueFarmIds[i], sumOfDataFromFarm[i]));
-    }
-    PieChart pieChart = new PieChart(pieChartData);
-    
-    pieChart.setTitle("Weight Distribution by Farm");
-    pieChart.setClockwise(true);
-    pieChart.setLabelLineLength(25);
-    pieChart.setLabelsVisible(true);
-    pieChart.setStartAngle(180);
-    pieChart.setStyle(cssLayout);
-    
-    barChartBox.getChildren().add(bc);
-    barChartBox.setStyle(cssLayout);
-
-    sortOptions.getChildren().add(sortLabel);
-    sortOptions.getChildren().add(options);
-    tableRow.getChildren().add(tableView);
-
-    VBox statBox = new VBox(10);
-    statBox.setStyle(cssLayout);
-    Label statBoxHeader = new Label("Descriptive Statistics");
-    int meanOfData = 0;
-    for (Entry d : data) {
-      meanOfData += d.getWeight();
-    }
-    meanOfData /= data.size();
-
-    Label mean = new Label("Mean: " + meanOfData);
-
-    int medianOfData = 0;
-    List<Entry> listSortedByWeight = data;
-
-    for (int i = 1; i < listSortedByWeight.size(); i++) {
-      int current = listSortedByWeight.get(i).getWeight();
-      int j = i - 1;
-      while (j >= 0 && current < listSortedByWeight.get(j).getWeight()) {
-        listSortedByWeight.get(j + 1).setWeight(listSortedByWeight.get(j).getWeight());
-        listSortedByWeight.get(j + 1).setDate(listSortedByWeight.get(j).getDate());
-        listSortedByWeight.get(j + 1).setFarmId(listSortedByWeight.get(j).getFarmId());
-        j--;
-      }
-      listSortedByWeight.get(j + 1).setWeight(listSortedByWeight.get(i).getWeight());
-      listSortedByWeight.get(j + 1).setDate(listSortedByWeight.get(i).getDate());
-      listSortedByWeight.get(j + 1).setFarmId(listSortedByWeight.get(i).getFarmId());
-    }
-
-    if (data.size() % 2 == 0) {
-      medianOfData = (int) (data.get((data.size() / 2) - 1).getWeight() / 2
-          + data.get(data.size() / 2).getWeight() / 2);
-    } else {
-      medianOfData = data.get(data.size() / 2).getWeight();
-    }
-
-    Label median = new Label("Median: " + medianOfData);
-
-    int modeValue = 0, modeMax = 0, modeMaxCount = 0;
-    for (int i = 0; i < data.size(); ++i) {
-      int count = 0;
-      for (int j = 0; j < data.size(); ++j) {
-        if (data.get(j).getWeight() == data.get(i).getWeight()) {
-          ++count;
-        }
-      }
-
-      if (count > modeMaxCount) {
-        modeMaxCount = count;
-        modeMax = data.get(i).getWeight();
-      }
-    }
-
-    modeValue = modeMax;
-
-    Label mode = new Label("Mode: " + modeValue);
-
-    int varianceOfData = 0;
-
-    for (Entry d : data) {
-      varianceOfData += Math.pow((d.getWeight() - meanOfData), 2);
-    }
-
-    varianceOfData /= (data.size() - 1);
-
-    Label variance = new Label("Variance: " + (int) Math.pow(varianceOfData, 0.5));
-
-    int totalWeight = 0;
-    for (int i = 0; i < data.size(); i++) {
-      totalWeight += data.get(i).getWeight();
-    }
-
-    Label total = new Label("Total: " + totalWeight);
-
-    statBoxHeader.setAlignment(Pos.CENTER);
-
-    statBox.getChildren().add(statBoxHeader);
-    statBox.getChildren().add(mean);
-    statBox.getChildren().add(median);
-    statBox.getChildren().add(mode);
-    statBox.getChildren().add(variance);
-    statBox.getChildren().add(total);
-
-    //sideRow.getChildren().add(sortOptions);
-    sideRow.getChildren().add(pieChart);
-    sideRow.getChildren().add(statBox);
-
-    HBox bottomRow = new HBox(30);
-
-    Button edit = new Button("Edit");
-    Button exit = new Button("Exit");
-
-    exit.setOnAction(e -> Platform.exit());
-    edit.setOnAction(e -> dataScreen(primaryStage));
-
-    bottomRow.getChildren().add(edit);
-    bottomRow.getChildren().add(exit);
-
-    bottomRow.setAlignment(Pos.BASELINE_RIGHT);
-    reportGeneratedFor.setAlignment(Pos.CENTER);
-
-    root.setTop(reportGeneratedFor);
-    root.setCenter(tableRow);
-    root.setRight(sideRow);
-    root.setBottom(bottomRow);
-
-    Scene reportScene = new Scene(root, 1000, 775);
-
-    primaryStage.setScene(reportScene);
-    primaryStage.show();
-  }
-
-  /**
-   * @param args
-   */
-  public static void main(String[] args) {
-    launch(args);
-  }
-}
+
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.chart.PieChart;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javax.management.JMException;
+
+/**
+ * Main class for GUI for Milk Weights ATEAM project
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class Main extends Application {
+
+  private static final int WINDOW_WIDTH = 650;
+  private static final int WINDOW_HEIGHT = 470;
+  private static final File DATA_DIR = new File("milkweights-data");
+  private static final String APP_TITLE = "Milk Weights";
+  // farms past this many in a report share one Other slice of the pie chart
+  private static final int PIE_CHART_FARMS = 10;
+  private static final int REPORT_CACHE_SIZE = 32;
+  private static final long METRICS_LOG_MINUTES = 5;
+  private static final Logger LOG = Logger.getLogger(Main.class.getName());
+  private static FarmTable farmTable = new FarmTable();
+  private static ReportService reportService = new ReportService(farmTable, REPORT_CACHE_SIZE);
+  // the table gauges read these rather than the farm table, which only the JavaFX thread may use
+  private static volatile long tableFarms;
+  private static volatile long tableEntries;
+  private static volatile long tableEntryBytes;
+  // the estimate last added to tableEntryBytes for each farm, so a change re-reads only its farm
+  private static final Map<Farm, Long> FARM_ENTRY_BYTES = new HashMap<>();
+  private static final FarmListener TABLE_METRICS = new FarmListener() {
+    @Override
+    public void entryAdded(Farm farm, int epochDay, int weight) {
+      tableFarms = farmTable.getFarms().size();
+      tableEntries++;
+      publishEntryBytes(farm);
+    }
+
+    @Override
+    public void entryChanged(Farm farm, int epochDay, int oldWeight, int newWeight) {
+      // a new weight leaves the farms, entries and bytes as they were
+    }
+
+    @Override
+    public void entryRemoved(Farm farm, int epochDay, int weight) {
+      tableEntries--;
+      publishEntryBytes(farm);
+    }
+
+    @Override
+    public void entriesReloaded(FarmTable table) {
+      publishTableMetrics();
+    }
+  };
+  private final EntryTableModel tableModel = new EntryTableModel();
+  private Scene dataScene;
+  private OperationLog operationLog;
+
+  /**
+   * Starts the program and adds all components to the screen
+   * 
+   * @param primaryStage
+   * @throws Exception
+   */
+  @Override
+  public void start(Stage primaryStage) throws Exception {
+    // restore the last session from its snapshot and operation log instead of making the user
+    // parse its csv files again
+    try {
+      operationLog = OperationLog.open(DATA_DIR, farmTable);
+    } catch (IOException e) {
+      errorPopup("The saved data could not be restored: " + e.getMessage());
+    }
+    tableModel.bind(farmTable);
+    farmTable.addListener(TABLE_METRICS);
+    startMetrics();
+    VBox root = new VBox(10);
+
+    root.setAlignment(Pos.CENTER);
+
+    // Add the vertical box to the center of the root pane
+    Label titleLabel = new Label("Welcome to Milk Weights");
+    titleLabel.setTextAlignment(TextAlignment.CENTER);
+    titleLabel.setFont(new Font("Cambria", 40));
+
+    Label promptLabel = new Label("Please upload a data file to begin parsing:");
+    promptLabel.setTextAlignment(TextAlignment.CENTER);
+    promptLabel.setFont(new Font("Cambria", 28));
+    promptLabel.setMaxWidth(350);
+    promptLabel.setWrapText(true);
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+    Button uploadButton = new Button("Upload Here");
+    uploadButton.setOnAction(new EventHandler<ActionEvent>() {
+      @Override
+      public void handle(ActionEvent arg0) {
+        List<File> selected = fileChooser.showOpenMultipleDialog(primaryStage);
+        loadInBackground(primaryStage, selected);
+      }
+    });
+    Button folderButton = new Button("Upload Folder");
+    folderButton.setOnAction(e -> loadFolder(primaryStage));
+    Button skipButton = new Button("Skip");
+    skipButton.setOnAction(new EventHandler<ActionEvent>() {
+      @Override
+      public void handle(ActionEvent arg0) {
+        dataScreen(primaryStage);
+      }
+    });
+    Region spacer = new Region();
+    spacer.setMinHeight(100);
+    root.getChildren().add(titleLabel);
+    root.getChildren().add(spacer);
+    root.getChildren().add(promptLabel);
+    root.getChildren().add(uploadButton);
+    root.getChildren().add(folderButton);
+    root.getChildren().add(skipButton);
+    Scene mainScene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
+
+    // Add the stuff and set the primary stage
+    primaryStage.setTitle(APP_TITLE);
+    primaryStage.setScene(mainScene);
+    primaryStage.show();
+  }
+
+  /**
+   * Displays an error when thrown by the program to user
+   * 
+   * @param errorText to be thrown
+   */
+  public void errorPopup(String errorText) {
+    // display error popup
+    Alert error = new Alert(AlertType.ERROR);
+    error.setTitle("Error");
+    error.setHeaderText("Error occured during...");
+    error.setContentText(errorText);
+
+    error.showAndWait();
+  }
+
+  /**
+   * Tells the user that a change was made to the table but could not be written to the operation
+   * log, which stops logging after its first failed write
+   * 
+   * @param e the failure thrown by the log
+   */
+  private void changeNotSaved(UncheckedIOException e) {
+    LOG.log(Level.SEVERE, "A change could not be written to the operation log", e);
+    errorPopup("The change was made but could not be saved: " + e.getMessage()
+        + ". Later changes will not be saved either, so export the data to keep it.");
+  }
+
+  /**
+   * Returns true if the given farm id can be written to a csv file and loaded again. The loaders
+   * split lines at every comma and do not read quoted fields, so an id holding a comma, quote or
+   * line break would be exported as a quoted field that no load can read back.
+   * 
+   * @param farmId the farm id entered by the user
+   * @return true if the farm id holds no comma, quote or line break
+   */
+  private static boolean isLoadableFarmId(String farmId) {
+    for (int i = 0; i < farmId.length(); i++) {
+      char c = farmId.charAt(i);
+      if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Asks for a folder and loads every csv file directly inside it, in order of name
+   * 
+   * @param primaryStage
+   */
+  private void loadFolder(Stage primaryStage) {
+    File dir = new DirectoryChooser().showDialog(primaryStage);
+    if (dir == null) {
+      return;
+    }
+    List<File> files;
+    try {
+      files = ChunkedCsvLoader.csvFiles(dir);
+    } catch (IOException e) {
+      errorPopup("The folder could not be read: " + e.getMessage());
+      return;
+    }
+    if (files.isEmpty()) {
+      errorPopup("The folder " + dir.getName() + " has no csv files.");
+      return;
+    }
+    loadInBackground(primaryStage, files);
+  }
+
+  /**
+   * Loads csv files on a background thread while a progress window shows how far the load has
+   * got. The loaded data replaces the displayed table in one step when the load finishes, and
+   * cancelling the load leaves the displayed table as it was. When several files are loaded, later
+   * files win over earlier ones for the same farm and date, and the rows and time of each file are
+   * shown afterwards.
+   * 
+   * @param primaryStage
+   * @param selected     the files to load, or null if the user did not choose any
+   */
+  private void loadInBackground(Stage primaryStage, List<File> selected) {
+    if (selected == null || selected.isEmpty()) {
+      return;
+    }
+    LoadTask task = new LoadTask(farmTable, selected);
+
+    Stage progressStage = new Stage();
+    progressStage.initOwner(primaryStage);
+    progressStage.initModality(Modality.WINDOW_MODAL);
+    progressStage.setTitle(selected.size() == 1 ? "Loading " + selected.get(0).getName()
+        : "Loading " + selected.size() + " files");
+    ProgressBar progressBar = new ProgressBar();
+    progressBar.setPrefWidth(350);
+    progressBar.progressProperty().bind(task.progressProperty());
+    Label progressLabel = new Label();
+    progressLabel.textProperty().bind(task.messageProperty());
+    Button cancel = new Button("Cancel");
+    cancel.setOnAction(e -> task.cancel());
+    progressStage.setOnCloseRequest(e -> task.cancel());
+    VBox progressBox = new VBox(10, progressLabel, progressBar, cancel);
+    progressBox.setAlignment(Pos.CENTER);
+    progressStage.setScene(new Scene(progressBox, 420, 130));
+
+    task.setOnSucceeded(e -> {
+      progressStage.close();
+      farmTable.setOperationLog(null);
+      farmTable.removeListener(TABLE_METRICS);
+      farmTable = task.getValue();
+      reportService = new ReportService(farmTable, REPORT_CACHE_SIZE);
+      tableModel.bind(farmTable);
+      farmTable.addListener(TABLE_METRICS);
+      publishTableMetrics();
+      dataScreen(primaryStage);
+      Runnable summary = task.getResults().size() > 1
+          ? () -> fileSummaryPopup(task.getResults()) : null;
+      // the loaded rows were not logged, so they are made durable with a new snapshot
+      if (operationLog != null) {
+        farmTable.setOperationLog(operationLog);
+        saveInBackground(primaryStage, "The loaded data", summary);
+      } else if (summary != null) {
+        summary.run();
+      }
+    });
+    task.setOnFailed(e -> {
+      progressStage.close();
+      LOG.log(Level.SEVERE, "The data could not be loaded", task.getException());
+      errorPopup("There was an error reading the file.");
+    });
+    task.setOnCancelled(e -> progressStage.close());
+
+    Thread loader = new Thread(task, "csv-loader");
+    loader.setDaemon(true);
+    loader.start();
+    progressStage.show();
+  }
+
+  /**
+   * Writes part of the data to a file the user chooses
+   */
+  private interface ExportJob {
+    long export(Exporter exporter, File file) throws IOException;
+  }
+
+  /**
+   * Asks for a csv or json file and exports to it on a background thread. A window shows that the
+   * export is running and keeps the data from being edited until it finishes.
+   * 
+   * @param primaryStage
+   * @param what         what is being exported, for the window titles
+   * @param job          the export to run
+   */
+  private void exportInBackground(Stage primaryStage, String what, ExportJob job) {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Export " + what);
+    fileChooser.getExtensionFilters().addAll(
+        new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+        new FileChooser.ExtensionFilter("JSON Files", "*.json"));
+    File chosen = fileChooser.showSaveDialog(primaryStage);
+    if (chosen == null) {
+      return;
+    }
+    // a name typed without an extension takes the one of the chosen filter
+    File file = chosen.getName().contains(".") ? chosen
+        : new File(chosen.getPath() + fileChooser.getSelectedExtensionFilter().getExtensions()
+            .get(0).substring(1));
+    Exporter exporter = new Exporter(Exporter.Format.of(file));
+    Task<Long> task = new Task<Long>() {
+      @Override
+      protected Long call() throws Exception {
+        return job.export(exporter, file);
+      }
+    };
+
+    Stage progressStage = new Stage();
+    progressStage.initOwner(primaryStage);
+    progressStage.initModality(Modality.WINDOW_MODAL);
+    progressStage.setTitle("Exporting " + what + " to " + file.getName());
+    progressStage.setOnCloseRequest(e -> e.consume());
+    ProgressBar progressBar = new ProgressBar();
+    progressBar.setPrefWidth(350);
+    VBox progressBox = new VBox(10, progressBar);
+    progressBox.setAlignment(Pos.CENTER);
+    progressStage.setScene(new Scene(progressBox, 420, 80));
+
+    task.setOnSucceeded(e -> progressStage.close());
+    task.setOnFailed(e -> {
+      progressStage.close();
+      errorPopup("The export could not be written: " + task.getException().getMessage());
+    });
+
+    Thread exporterThread = new Thread(task, "exporter");
+    exporterThread.setDaemon(true);
+    exporterThread.start();
+    progressStage.show();
+  }
+
+  /**
+   * Writes the farm table as a new snapshot of the operation log on a background thread. A window
+   * shows that the save is running and keeps the data from being edited until it finishes, as the
+   * snapshot must not change while it is written.
+   * 
+   * @param primaryStage
+   * @param what         what is being saved, starting the error shown if the save fails
+   * @param then         what to do on the JavaFX thread once the save has finished, or null
+   */
+  private void saveInBackground(Stage primaryStage, String what, Runnable then) {
+    OperationLog log = operationLog;
+    FarmTable table = farmTable;
+    Task<Void> task = new Task<Void>() {
+      @Override
+      protected Void call() throws Exception {
+        log.checkpoint(table);
+        return null;
+      }
+    };
+
+    Stage progressStage = new Stage();
+    progressStage.initOwner(primaryStage);
+    progressStage.initModality(Modality.WINDOW_MODAL);
+    progressStage.setTitle("Saving " + what.toLowerCase());
+    progressStage.setOnCloseRequest(e -> e.consume());
+    ProgressBar progressBar = new ProgressBar();
+    progressBar.setPrefWidth(350);
+    VBox progressBox = new VBox(10, progressBar);
+    progressBox.setAlignment(Pos.CENTER);
+    progressStage.setScene(new Scene(progressBox, 420, 80));
+
+    task.setOnSucceeded(e -> {
+      progressStage.close();
+      if (then != null) {
+        then.run();
+      }
+    });
+    task.setOnFailed(e -> {
+      progressStage.close();
+      LOG.log(Level.WARNING, "The snapshot could not be written", task.getException());
+      errorPopup(what + " could not be saved: " + task.getException().getMessage());
+      if (then != null) {
+        then.run();
+      }
+    });
+
+    Thread saver = new Thread(task, "snapshot-writer");
+    saver.setDaemon(true);
+    saver.start();
+    progressStage.show();
+  }
+
+  /**
+   * Displays the number of rows and the parse time of each file of a multi-file load
+   * 
+   * @param results the result of loading each file
+   */
+  private void fileSummaryPopup(List<FileLoadResult> results) {
+    StringBuilder text = new StringBuilder();
+    long rows = 0;
+    for (FileLoadResult result : results) {
+      text.append(result).append('\n');
+      rows += result.getRows();
+    }
+    Alert summary = new Alert(AlertType.INFORMATION);
+    summary.setTitle("Files Loaded");
+    summary.setHeaderText(String.format("Loaded %,d rows from %d files", rows, results.size()));
+    summary.setContentText(text.toString());
+    summary.showAndWait();
+  }
+
+  /**
+   * Displays the data loaded in from the home screen. The screen is built once and then reused;
+   * its table follows the farm table through tableModel, so edits only change the affected rows.
+   * 
+   * @param primaryStage
+   */
+  public void dataScreen(Stage primaryStage) {
+    if (dataScene == null) {
+      dataScene = buildDataScene(primaryStage);
+    }
+    primaryStage.setScene(dataScene);
+    primaryStage.show();
+  }
+
+  /**
+   * Builds the data screen's scene
+   * 
+   * @param primaryStage
+   * @return the data screen's scene
+   */
+  private Scene buildDataScene(Stage primaryStage) {
+    VBox root = new VBox(10);
+    root.setAlignment(Pos.CENTER);
+
+    HBox reportRow = new HBox(20);
+    reportRow.setAlignment(Pos.CENTER);
+    Label reportLabel = new Label("Generate Report: ");
+    reportLabel.setFont(new Font("Cambria", 20));
+    Button farm = new Button("Farm");
+    Button annual = new Button("Annual");
+    Button monthly = new Button("Monthly");
+    Button range = new Button("Range");
+    reportRow.getChildren().add(reportLabel);
+    reportRow.getChildren().add(farm);
+    reportRow.getChildren().add(annual);
+    reportRow.getChildren().add(monthly);
+    reportRow.getChildren().add(range);
+
+    farm.setOnAction(e -> reportGenerationIntermediaryFarm(primaryStage));
+    annual.setOnAction(e -> reportGenerationIntermediaryYear(primaryStage));
+    monthly.setOnAction(e -> reportGenerationIntermediaryMonth(primaryStage));
+    range.setOnAction(e -> reportGenerationIntermediaryRange(primaryStage));
+
+    HBox tableRow = new HBox(30);
+    tableRow.setAlignment(Pos.CENTER);
+    TableView<Entry> tableView = new TableView<>();
+
+    VBox buttons = new VBox(10);
+    buttons.setAlignment(Pos.CENTER);
+    HBox farmIdBox = new HBox(5);
+    farmIdBox.setAlignment(Pos.CENTER_LEFT);
+    Label farmIdLabel = new Label("Farm ID:");
+    TextField farmIdField = new TextField();
+    farmIdBox.getChildren().addAll(farmIdLabel, farmIdField);
+    HBox dateBox = new HBox(5);
+    dateBox.setAlignment(Pos.CENTER_LEFT);
+    Label dateLabel = new Label("Date:");
+    TextField dateField = new TextField();
+    dateBox.getChildren().addAll(dateLabel, dateField);
+    HBox weightBox = new HBox(5);
+    weightBox.setAlignment(Pos.CENTER_LEFT);
+    Label weightLabel = new Label("Weight:");
+    TextField weightField = new TextField();
+    weightBox.getChildren().addAll(weightLabel, weightField);
+
+    Button add = new Button("Add");
+
+    add.setOnAction(new EventHandler<ActionEvent>() {
+      @Override
+      public void handle(ActionEvent arg0) {
+        String farmId = farmIdField.getText();
+        if (!isLoadableFarmId(farmId)) {
+          errorPopup("A farm id cannot hold a comma, a quote or a line break.");
+          return;
+        }
+        LocalDate date;
+        int weight;
+        try {
+          DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
+          date = LocalDate.parse(dateField.getText(), formatter);
+        } catch (DateTimeParseException e) {
+          errorPopup("Please enter the date in the form yyyy-M-d.");
+          return;
+        }
+        try {
+          weight = Integer.parseInt(weightField.getText());
+        } catch (NumberFormatException e) {
+          errorPopup("Please enter an integer for the weight.");
+          return;
+        }
+        try {
+          farmTable.addEntry(date, farmId, weight);
+        } catch (UncheckedIOException e) {
+          changeNotSaved(e);
+        }
+      }
+    });
+
+    Button del = new Button("Del");
+
+    del.setOnAction(new EventHandler<ActionEvent>() {
+      @Override
+      public void handle(ActionEvent arg0) {
+        String farmId = farmIdField.getText();
+        LocalDate date;
+        try {
+          DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
+          date = LocalDate.parse(dateField.getText(), formatter);
+        } catch (DateTimeParseException e) {
+          errorPopup("Please enter the date in the form yyyy-M-d.");
+          return;
+        }
+        try {
+          if (!farmTable.removeEntry(date, farmId)) {
+            errorPopup("The entry could not be removed");
+          }
+        } catch (UncheckedIOException e) {
+          changeNotSaved(e);
+        }
+      }
+    });
+
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+    Button uploadButton = new Button("Upload Files Here");
+    uploadButton.setOnAction(new EventHandler<ActionEvent>() {
+      @Override
+      public void handle(ActionEvent arg0) {
+        List<File> selected = fileChooser.showOpenMultipleDialog(primaryStage);
+        loadInBackground(primaryStage, selected);
+      }
+    });
+
+    Button folderButton = new Button("Upload Folder");
+    folderButton.setOnAction(e -> loadFolder(primaryStage));
+
+    Button saveButton = new Button("Save");
+    saveButton.setOnAction(new EventHandler<ActionEvent>() {
+      @Override
+      public void handle(ActionEvent arg0) {
+        if (operationLog == null) {
+          errorPopup("The data could not be saved: the data directory could not be opened");
+          return;
+        }
+        saveInBackground(primaryStage, "The data", null);
+      }
+    });
+
+    Button exportButton = new Button("Export");
+    exportButton.setOnAction(e -> exportInBackground(primaryStage, "the data",
+        (exporter, file) -> exporter.exportTable(farmTable, file)));
+
+    buttons.getChildren().addAll(farmIdBox, dateBox, weightBox, add, del, uploadButton,
+        folderButton, saveButton, exportButton);
+
+
+    tableRow.getChildren().add(tableView);
+    tableRow.getChildren().add(buttons);
+
+    TableColumn<Entry, Entry> dateCol = new TableColumn<>("Date");
+    dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+    tableView.getColumns().add(dateCol);
+    // change to have each column be a farm
+    TableColumn<Entry, Entry> farmCol = new TableColumn<>("Farm ID");
+    farmCol.setCellValueFactory(new PropertyValueFactory<>("farmId"));
+    tableView.getColumns().add(farmCol);
+    TableColumn<Entry, Entry> weightCol = new TableColumn<>("Weight");
+    weightCol.setCellValueFactory(new PropertyValueFactory<>("weight"));
+    tableView.getColumns().add(weightCol);
+    // the model keeps its rows sorted by date and farm; the SortedList applies any column sort
+    // the user picks on top of that incrementally
+    SortedList<Entry> sortedRows = new SortedList<>(tableModel.getRows());
+    sortedRows.comparatorProperty().bind(tableView.comparatorProperty());
+    tableView.setItems(sortedRows);
+
+    root.getChildren().add(reportRow);
+    root.getChildren().add(tableRow);
+
+    return new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
+  }
+
+  public void reportGenerationIntermediaryFarm(Stage primaryStage) {
+    List<String> choices = new ArrayList<>();
+    for (String farmID : farmTable.getFarms().keySet()) {
+      choices.add(farmTable.getFarms().get(farmID).getID());
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
+    dialog.setTitle("Farm Selection");
+    dialog.setHeaderText("Please select a farm to generate a report of...");
+    dialog.setContentText("Choose your farm: ");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      reportGeneratedScreen(primaryStage, ReportQuery.farm(result.get()));
+    }
+  }
+
+  public void reportGenerationIntermediaryMonth(Stage primaryStage) {
+    List<String> choices = new ArrayList<>();
+    for (int year : farmTable.getYears()) {
+      choices.add(Integer.toString(year));
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
+    dialog.setTitle("Month Selection");
+    dialog.setHeaderText("First, please select a single year to genereate a report of...");
+    dialog.setContentText("Choose your year: ");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      monthIntermediary(primaryStage, result.get());
+    }
+  }
+
+  public void monthIntermediary(Stage primaryStage, String selectedYear) {
+    List<String> choices = new ArrayList<>();
+    for (int month : farmTable.getMonths(Integer.parseInt(selectedYear))) {
+      choices.add(Month.of(month).toString());
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
+    dialog.setTitle("Month Selection");
+    dialog.setHeaderText(
+        "Please select a single month from year " + selectedYear + " to generate a report of...");
+    dialog.setContentText("Choose your month: ");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      reportGeneratedScreen(primaryStage, ReportQuery.month(Integer.parseInt(selectedYear),
+          Month.valueOf(result.get()).getValue()));
+    }
+  }
+
+  public void reportGenerationIntermediaryYear(Stage primaryStage) {
+    List<String> choices = new ArrayList<>();
+    for (int year : farmTable.getYears()) {
+      choices.add(Integer.toString(year));
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
+    dialog.setTitle("Year Selection");
+    dialog.setHeaderText("Please select a single year to genereate a report of...");
+    dialog.setContentText("Choose your year: ");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      reportGeneratedScreen(primaryStage, ReportQuery.year(Integer.parseInt(result.get())));
+    }
+  }
+
+  public void reportGenerationIntermediaryRange(Stage primaryStage) {
+    List<String> choices = new ArrayList<>();
+    for (LocalDate date : farmTable.getDates()) {
+      choices.add(date.toString());
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
+    dialog.setTitle("Date Selection");
+    dialog.setHeaderText("Please select start date to genereate a report starting from...");
+    dialog.setContentText("Choose your day: ");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      chooseEndDateInRange(primaryStage, result.get());
+    }
+  }
+
+  public void chooseEndDateInRange(Stage primaryStage, String selectedDate) {
+    List<String> choices = new ArrayList<>();
+    for (LocalDate date : farmTable.getDates(LocalDate.parse(selectedDate))) {
+      choices.add(date.toString());
+    }
+
+    ChoiceDialog<String> dialog = new ChoiceDialog<>("Select Option", choices);
+    dialog.setTitle("Year Selection");
+    dialog.setHeaderText("Please select end date to genereate a report till...");
+    dialog.setContentText("Choose your day: ");
+
+    Optional<String> result = dialog.showAndWait();
+    if (result.isPresent()) {
+      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-M-d");
+      LocalDate endDate = LocalDate.parse(result.get().toString(), formatter);
+      LocalDate startDate = LocalDate.parse(selectedDate, formatter);
+      if (endDate.compareTo(startDate) < 0) {
+        errorPopup("Please choose date in order correctly");
+        chooseEndDateInRange(primaryStage, selectedDate);
+      } else {
+        reportGeneratedScreen(primaryStage, ReportQuery.range(startDate, endDate));
+      }
+    }
+  }
+
+  /**
+   * Generates the given report and displays its entries, chart and statistics
+   * 
+   * @param primaryStage
+   * @param query        the report to generate
+   */
+  public void reportGeneratedScreen(Stage primaryStage, ReportQuery query) {
+    ReportResult result = reportService.run(query);
+    List<Entry> data = result.getRows();
+    BorderPane root = new BorderPane();
+
+    String cssLayout = "-fx-border-color: black;\n" + "-fx-border-insets: 5;\n"
+        + "-fx-border-width: 3;\n" + "-fx-border-style: solid;\n";
+
+    Label reportGeneratedFor = new Label("Report Generated For: " + query.getDescription());
+    reportGeneratedFor.setFont(new Font("Cambria", 20));
+    reportGeneratedFor.setAlignment(Pos.TOP_CENTER);
+    TableView<Entry> tableView = new TableView<>();
+    TableColumn<Entry, Entry> dateCol = new TableColumn<>("Date");
+    dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+    tableView.getColumns().add(dateCol);
+    TableColumn<Entry, Entry> farmCol = new TableColumn<>("Farm ID");
+    farmCol.setCellValueFactory(new PropertyValueFactory<>("farmId"));
+    tableView.getColumns().add(farmCol);
+    TableColumn<Entry, Entry> weightCol = new TableColumn<>("Weight");
+    weightCol.setCellValueFactory(new PropertyValueFactory<>("weight"));
+    tableView.getColumns().add(weightCol);
+    tableView.getItems().setAll(data);
+
+    HBox tableRow = new HBox(10);
+    VBox sideRow = new VBox(10);
+    tableRow.setAlignment(Pos.CENTER);
+    sideRow.setAlignment(Pos.CENTER_RIGHT);
+    VBox sortOptions = new VBox();
+    sortOptions.setAlignment(Pos.TOP_LEFT);
+    Label sortLabel = new Label("Sort By:");
+    sortLabel.setFont(new Font("Cambria", 20));
+    sortLabel.setAlignment(Pos.TOP_LEFT);
+    ComboBox<String> options = new ComboBox<>();
+    
+    VBox chartBox = new VBox(10);
+    // the chart builds and downsamples its lines off the JavaFX thread and fills in when ready
+    TimeSeriesChart dailyChart = new TimeSeriesChart();
+    dailyChart.setTitle("Daily Weights (scroll to zoom, drag to pan, double click to reset)");
+    dailyChart.setPrefHeight(300);
+    dailyChart.show(result);
+    
+    FarmTotals farmTotals = result.getFarmTotals();
+    ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
+    int[] topFarms = farmTotals.topCodes(PIE_CHART_FARMS);
+    long shown = 0;
+    for (int code : topFarms) {
+      pieChartData.add(new PieChart.Data(farmTotals.getFarmId(code), farmTotals.getTotal(code)));
+      shown += farmTotals.getTotal(code);
+    }
+    if (farmTotals.size() > topFarms.length) {
+      int others = farmTotals.size() - topFarms.length;
+      pieChartData.add(new PieChart.Data("Other (" + others + " farms)",
+          result.getStatistics().getTotal() - shown));
+    }
+    PieChart pieChart = new PieChart(pieChartData);
+    
+    pieChart.setTitle("Weight Distribution by Farm");
+    pieChart.setClockwise(true);
+    pieChart.setLabelLineLength(25);
+    pieChart.setLabelsVisible(true);
+    pieChart.setStartAngle(180);
+    pieChart.setStyle(cssLayout);
+    
+    chartBox.getChildren().add(dailyChart);
+    chartBox.setStyle(cssLayout);
+
+    sortOptions.getChildren().add(sortLabel);
+    sortOptions.getChildren().add(options);
+    tableRow.getChildren().add(tableView);
+
+    VBox statBox = new VBox(10);
+    statBox.setStyle(cssLayout);
+    Label statBoxHeader = new Label("Descriptive Statistics");
+    WeightStatistics stats = result.getStatistics();
+
+    Label mean = new Label("Mean: " + String.format("%.2f", stats.getMean()));
+    Label median = new Label("Median: " + String.format("%.1f", stats.getMedian()));
+    Label mode = new Label("Mode: " + stats.getMode());
+    QuantileSketch quantiles = reportService.quantiles(query);
+    Label p90 = new Label("90th Percentile: ~" + quantiles.getQuantile(0.9));
+    Label p99 = new Label("99th Percentile: ~" + quantiles.getQuantile(0.99));
+    Label stdDev =
+        new Label("Std. Deviation: " + String.format("%.2f", stats.getStandardDeviation()));
+    Label total = new Label("Total: " + stats.getTotal());
+
+    statBoxHeader.setAlignment(Pos.CENTER);
+
+    statBox.getChildren().add(statBoxHeader);
+    statBox.getChildren().add(mean);
+    statBox.getChildren().add(median);
+    statBox.getChildren().add(mode);
+    statBox.getChildren().add(p90);
+    statBox.getChildren().add(p99);
+    statBox.getChildren().add(stdDev);
+    statBox.getChildren().add(total);
+
+    //sideRow.getChildren().add(sortOptions);
+    sideRow.getChildren().add(pieChart);
+    sideRow.getChildren().add(statBox);
+
+    HBox bottomRow = new HBox(30);
+
+    Button export = new Button("Export");
+    Button edit = new Button("Edit");
+    Button exit = new Button("Exit");
+
+    export.setOnAction(e -> exportInBackground(primaryStage, "the report",
+        (exporter, file) -> exporter.exportReport(result, file)));
+    exit.setOnAction(e -> Platform.exit());
+    edit.setOnAction(e -> dataScreen(primaryStage));
+
+    bottomRow.getChildren().add(export);
+    bottomRow.getChildren().add(edit);
+    bottomRow.getChildren().add(exit);
+
+    bottomRow.setAlignment(Pos.BASELINE_RIGHT);
+    reportGeneratedFor.setAlignment(Pos.CENTER);
+
+    root.setTop(reportGeneratedFor);
+    tableView.setPrefHeight(300);
+    root.setCenter(new VBox(10, tableRow, chartBox));
+    root.setRight(sideRow);
+    root.setBottom(bottomRow);
+
+    Scene reportScene = new Scene(root, 1000, 775);
+
+    primaryStage.setScene(reportScene);
+    primaryStage.show();
+  }
+
+  /**
+   * Writes the operation log's remaining records to disk when the program exits
+   */
+  @Override
+  public void stop() throws Exception {
+    Metrics.DEFAULT.stopLogging();
+    if (operationLog != null) {
+      operationLog.close();
+    }
+  }
+
+  /**
+   * Registers the gauges over the farm table, exposes the metrics over JMX and starts writing them
+   * to the log every few minutes
+   */
+  private static void startMetrics() {
+    publishTableMetrics();
+    Metrics.DEFAULT.gauge("table.farms", () -> tableFarms);
+    Metrics.DEFAULT.gauge("table.entries", () -> tableEntries);
+    Metrics.DEFAULT.gauge("table.entryBytes", () -> tableEntryBytes);
+    Metrics.DEFAULT.gauge("load.rowsPerSecond", FarmTable::loadRowsPerSecond);
+    try {
+      MetricsMBean.register(Metrics.DEFAULT);
+    } catch (JMException e) {
+      // the metrics are still written to the log without JMX
+      LOG.log(Level.WARNING, "The metrics could not be registered over JMX", e);
+    }
+    Metrics.DEFAULT.startLogging(METRICS_LOG_MINUTES, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Reads the size of the whole farm table into the fields the table gauges report, which the
+   * metrics threads can read safely. Called on the JavaFX thread when the table is loaded or
+   * replaced; single changes update the fields through TABLE_METRICS without walking every farm.
+   */
+  private static void publishTableMetrics() {
+    FARM_ENTRY_BYTES.clear();
+    long bytes = 0;
+    for (Farm farm : farmTable.getFarms().values()) {
+      long stamp = farm.readLock();
+      try {
+        long farmBytes = farm.getStore().estimatedBytes();
+        FARM_ENTRY_BYTES.put(farm, farmBytes);
+        bytes += farmBytes;
+      } finally {
+        farm.unlockRead(stamp);
+      }
+    }
+    tableFarms = farmTable.getFarms().size();
+    tableEntries = farmTable.getEntryCount();
+    tableEntryBytes = bytes;
+  }
+
+  /**
+   * Replaces one farm's share of the entryBytes gauge with a fresh estimate of its entries. Called
+   * by TABLE_METRICS while the farm is being changed, so its store is read without taking its lock.
+   */
+  private static void publishEntryBytes(Farm farm) {
+    long bytes = farm.getStore().estimatedBytes();
+    Long old = FARM_ENTRY_BYTES.put(farm, bytes);
+    tableEntryBytes += bytes - (old == null ? 0 : old);
+  }
+
+  /**
+   * Launches the application, or runs the headless BatchMain job when the first argument is
+   * --batch
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      System.exit(BatchMain.run(Arrays.copyOfRange(args, 1, args.length), System.out, System.err));
+    }
+    launch(args);
+  }
+}
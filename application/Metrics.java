@@ -0,0 +1,347 @@
+package application;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Defines an in-process registry of named counters, histograms and gauges. Counters and histograms
+ * are created the first time their name is asked for and are cheap to update from any thread, so
+ * the loaders and report code record into them unconditionally; gauges are read only when the
+ * metrics are looked at. The registry can be read through a MetricsMBean over JMX and written to
+ * the log every so often.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class Metrics {
+  /** the registry the application records into */
+  public static final Metrics DEFAULT = new Metrics();
+
+  private static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+  private static final String[] SUMMARIES = {"count", "mean", "p50", "p99", "max"};
+
+  private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+  private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+  private ScheduledExecutorService logger;
+
+  /**
+   * Returns the counter with the given name, creating it if there is none
+   *
+   * @param name the name of the counter
+   * @return the counter with the given name
+   */
+  public Counter counter(String name) {
+    return counters.computeIfAbsent(name, k -> new Counter());
+  }
+
+  /**
+   * Returns the histogram with the given name, creating it if there is none. Histograms named
+   * for a time are recorded in nanoseconds.
+   *
+   * @param name the name of the histogram
+   * @return the histogram with the given name
+   */
+  public Histogram histogram(String name) {
+    return histograms.computeIfAbsent(name, k -> new Histogram());
+  }
+
+  /**
+   * Registers a gauge whose value is read from the given supplier whenever the metrics are read,
+   * replacing any gauge with the same name
+   *
+   * @param name  the name of the gauge
+   * @param value the supplier of the gauge's value
+   */
+  public void gauge(String name, LongSupplier value) {
+    gauges.put(name, value);
+  }
+
+  /**
+   * Returns the current value of every counter, gauge and histogram summary, in order of name.
+   * A histogram named h gives h.count, h.mean, h.p50, h.p99 and h.max.
+   *
+   * @return the value of every metric by name
+   */
+  public Map<String, Number> snapshot() {
+    Map<String, Number> values = new ConcurrentSkipListMap<>();
+    for (Map.Entry<String, Counter> counter : counters.entrySet()) {
+      values.put(counter.getKey(), counter.getValue().get());
+    }
+    for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+      try {
+        values.put(gauge.getKey(), gauge.getValue().getAsLong());
+      } catch (RuntimeException e) {
+        // one broken gauge is left out rather than failing the whole snapshot
+        LOG.log(Level.WARNING, "The gauge " + gauge.getKey() + " could not be read", e);
+      }
+    }
+    for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+      for (String summary : SUMMARIES) {
+        values.put(histogram.getKey() + '.' + summary, summary(histogram.getValue(), summary));
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Returns the value of one metric as listed by snapshot, reading only that metric, so that
+   * asking for a counter does not evaluate every gauge
+   *
+   * @param name the name of the metric
+   * @return the value of the metric, or null if there is none
+   */
+  public Number get(String name) {
+    // in the order snapshot lets them replace each other should two share a name
+    int dot = name.lastIndexOf('.');
+    Histogram histogram = dot < 0 ? null : histograms.get(name.substring(0, dot));
+    Number summary = histogram == null ? null : summary(histogram, name.substring(dot + 1));
+    if (summary != null) {
+      return summary;
+    }
+    LongSupplier gauge = gauges.get(name);
+    if (gauge != null) {
+      return gauge.getAsLong();
+    }
+    Counter counter = counters.get(name);
+    return counter == null ? null : counter.get();
+  }
+
+  /**
+   * Returns the name of every metric snapshot lists, in order of name, with the type of its value,
+   * without reading any of them
+   *
+   * @return the type of every metric's value by name
+   */
+  public SortedMap<String, Class<? extends Number>> types() {
+    SortedMap<String, Class<? extends Number>> types = new ConcurrentSkipListMap<>();
+    for (String counter : counters.keySet()) {
+      types.put(counter, Long.class);
+    }
+    for (String gauge : gauges.keySet()) {
+      types.put(gauge, Long.class);
+    }
+    for (String histogram : histograms.keySet()) {
+      for (String summary : SUMMARIES) {
+        types.put(histogram + '.' + summary, summary.equals("mean") ? Double.class : Long.class);
+      }
+    }
+    return types;
+  }
+
+  /**
+   * Returns the given summary of a histogram, or null if there is no such summary
+   */
+  private static Number summary(Histogram h, String summary) {
+    switch (summary) {
+      case "count":
+        return h.getCount();
+      case "mean":
+        return h.getMean();
+      case "p50":
+        return h.getPercentile(0.5);
+      case "p99":
+        return h.getPercentile(0.99);
+      case "max":
+        return h.getMax();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Starts writing every metric to the log at the given period on a daemon thread, replacing any
+   * earlier schedule
+   *
+   * @param period the time between dumps
+   * @param unit   the unit of period
+   */
+  public synchronized void startLogging(long period, TimeUnit unit) {
+    stopLogging();
+    logger = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "metrics-logger");
+      thread.setDaemon(true);
+      return thread;
+    });
+    logger.scheduleAtFixedRate(() -> LOG.info(format()), period, period, unit);
+  }
+
+  /**
+   * Stops writing the metrics to the log
+   */
+  public synchronized void stopLogging() {
+    if (logger != null) {
+      logger.shutdownNow();
+      logger = null;
+    }
+  }
+
+  /**
+   * Returns every metric as one name=value line each
+   *
+   * @return the metrics as text
+   */
+  public String format() {
+    StringBuilder text = new StringBuilder("metrics:");
+    for (Map.Entry<String, Number> value : snapshot().entrySet()) {
+      text.append(System.lineSeparator()).append("  ").append(value.getKey()).append('=');
+      Number n = value.getValue();
+      text.append(n instanceof Double ? String.format("%.1f", n.doubleValue()) : n.toString());
+    }
+    return text.toString();
+  }
+
+  /**
+   * Defines a count that only goes up
+   */
+  public static class Counter {
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Adds one to the count
+     */
+    public void increment() {
+      count.increment();
+    }
+
+    /**
+     * Adds the given amount to the count
+     *
+     * @param amount the amount to add
+     */
+    public void add(long amount) {
+      count.add(amount);
+    }
+
+    /**
+     * Returns the count
+     *
+     * @return the count
+     */
+    public long get() {
+      return count.sum();
+    }
+  }
+
+  /**
+   * Defines a histogram of non-negative values with four buckets per power of two, so that a
+   * percentile is read to within about 20% in constant memory. Times are recorded in nanoseconds.
+   */
+  public static class Histogram {
+    private static final int SUB_BUCKETS = 4;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value
+     *
+     * @param value the value to record, treated as 0 if negative
+     */
+    public void record(long value) {
+      value = Math.max(value, 0);
+      buckets.incrementAndGet(bucket(value));
+      count.increment();
+      sum.add(value);
+      max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Records the time since the given System.nanoTime reading
+     *
+     * @param startNanos the System.nanoTime reading at the start of what is being timed
+     */
+    public void recordSince(long startNanos) {
+      record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of values recorded
+     *
+     * @return the number of values recorded
+     */
+    public long getCount() {
+      return count.sum();
+    }
+
+    /**
+     * Returns the sum of the values recorded
+     *
+     * @return the sum of the values recorded
+     */
+    public long getSum() {
+      return sum.sum();
+    }
+
+    /**
+     * Returns the mean of the values recorded
+     *
+     * @return the mean, or 0 if none were recorded
+     */
+    public double getMean() {
+      long n = count.sum();
+      return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the largest value recorded
+     *
+     * @return the largest value, or 0 if none were recorded
+     */
+    public long getMax() {
+      return max.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the value at the given percentile
+     *
+     * @param q the percentile, from 0 to 1
+     * @return about the value at the percentile, or 0 if none were recorded
+     */
+    public long getPercentile(double q) {
+      long total = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        total += buckets.get(i);
+      }
+      long rank = Math.max(1, (long) Math.ceil(q * total));
+      long seen = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        seen += buckets.get(i);
+        if (seen >= rank) {
+          return Math.min(upperBound(i), getMax());
+        }
+      }
+      return 0;
+    }
+
+    private static int bucket(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int power = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (power - 2)) & (SUB_BUCKETS - 1);
+      return (power - 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      int power = bucket / SUB_BUCKETS + 1;
+      int sub = bucket % SUB_BUCKETS;
+      long width = 1L << (power - 2);
+      return (1L << power) + (sub + 1) * width - 1;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Defines a JMX MBean that shows every metric of a Metrics registry as a read-only attribute, so
+ * that jconsole or any JMX client can watch a running application. The attributes are listed
+ * again each time the MBean's info is read, so metrics created later appear too.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class MetricsMBean implements DynamicMBean {
+  /** the name the application's metrics are registered under */
+  public static final String OBJECT_NAME = "application:type=Metrics";
+
+  private final Metrics metrics;
+
+  /**
+   * Initializes an MBean over the given registry
+   *
+   * @param metrics the registry to expose
+   */
+  public MetricsMBean(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Registers an MBean over the given registry with the platform MBean server, replacing any MBean
+   * already registered under OBJECT_NAME
+   *
+   * @param metrics the registry to expose
+   * @throws JMException if the MBean could not be registered
+   */
+  public static void register(Metrics metrics) throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    server.registerMBean(new MetricsMBean(metrics), name);
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Number value = metrics.get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException("No metric named " + attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      Number value = metrics.get(attribute);
+      if (value != null) {
+        list.add(new Attribute(attribute, value));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName),
+        "Metrics have no operations");
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    // only the names and types are listed, so no gauge is read just to describe the MBean
+    Map<String, Class<? extends Number>> types = metrics.types();
+    MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[types.size()];
+    int i = 0;
+    for (Map.Entry<String, Class<? extends Number>> type : types.entrySet()) {
+      attributes[i++] = new MBeanAttributeInfo(type.getKey(), type.getValue().getName(),
+          type.getKey(), true, false, false);
+    }
+    return new MBeanInfo(getClass().getName(), "Milk Weights metrics", attributes, null, null,
+        null);
+  }
+}
@@ -0,0 +1,309 @@
+package application;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Defines a table of per-month totals, counts, minimums and maximums of milk weights that is
+ * updated in place as weights are added, changed and removed. Month and year totals are read
+ * without looking at any entries.
+ *
+ * Removing the current minimum or maximum of a month cannot be undone from the totals alone, so
+ * that month's minimum and maximum are marked stale and recomputed from the Source the next time
+ * they are read.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class MonthlyRollup {
+
+  /**
+   * Supplies the weights of a month when a stale minimum or maximum has to be recomputed
+   */
+  public interface Source {
+    /**
+     * Passes every weight recorded in the given month to the given consumer. Passing only the
+     * candidates for the month's minimum and maximum is also allowed.
+     *
+     * @param monthIndex the month index to scan
+     * @param weights    the consumer to pass the weights to
+     */
+    void scan(int monthIndex, IntConsumer weights);
+  }
+
+  private final Source source;
+  private int base;
+  private long[] totals;
+  private int[] counts;
+  private int[] mins;
+  private int[] maxs;
+  private boolean[] stale;
+  private int scanMin;
+  private int scanMax;
+
+  /**
+   * Initializes an empty rollup
+   *
+   * @param source where stale minimums and maximums are recomputed from
+   */
+  public MonthlyRollup(Source source) {
+    this.source = source;
+    this.base = 0;
+    this.totals = new long[0];
+    this.counts = new int[0];
+    this.mins = new int[0];
+    this.maxs = new int[0];
+    this.stale = new boolean[0];
+  }
+
+  /**
+   * Records a weight added on the given epoch day
+   *
+   * @param epochDay the day the weight was recorded
+   * @param weight   the weight
+   */
+  public void add(int epochDay, int weight) {
+    int i = slot(EpochDays.monthIndex(epochDay));
+    if (counts[i] == 0) {
+      mins[i] = weight;
+      maxs[i] = weight;
+      stale[i] = false;
+    } else {
+      mins[i] = Math.min(mins[i], weight);
+      maxs[i] = Math.max(maxs[i], weight);
+    }
+    totals[i] += weight;
+    counts[i]++;
+  }
+
+  /**
+   * Records that a weight was removed from the given epoch day
+   *
+   * @param epochDay the day the weight was recorded
+   * @param weight   the weight that was removed
+   */
+  public void remove(int epochDay, int weight) {
+    int i = slot(EpochDays.monthIndex(epochDay));
+    totals[i] -= weight;
+    counts[i]--;
+    if (counts[i] > 0 && (weight == mins[i] || weight == maxs[i])) {
+      stale[i] = true;
+    }
+  }
+
+  /**
+   * Records that the weight on the given epoch day changed
+   *
+   * @param epochDay  the day the weight was recorded
+   * @param oldWeight the previous weight
+   * @param newWeight the new weight
+   */
+  public void update(int epochDay, int oldWeight, int newWeight) {
+    int i = slot(EpochDays.monthIndex(epochDay));
+    totals[i] += (long) newWeight - oldWeight;
+    if ((oldWeight == mins[i] && newWeight > oldWeight)
+        || (oldWeight == maxs[i] && newWeight < oldWeight)) {
+      stale[i] = true;
+    } else {
+      mins[i] = Math.min(mins[i], newWeight);
+      maxs[i] = Math.max(maxs[i], newWeight);
+    }
+  }
+
+  /**
+   * Adds every month of the given rollup to this one
+   *
+   * @param other the rollup to add
+   */
+  public void addAll(MonthlyRollup other) {
+    for (int j = 0; j < other.counts.length; j++) {
+      if (other.counts[j] == 0) {
+        continue;
+      }
+      int i = slot(other.base + j);
+      if (counts[i] == 0) {
+        mins[i] = other.getMin(other.base + j);
+        maxs[i] = other.getMax(other.base + j);
+        stale[i] = false;
+      } else if (!stale[i]) {
+        mins[i] = Math.min(mins[i], other.getMin(other.base + j));
+        maxs[i] = Math.max(maxs[i], other.getMax(other.base + j));
+      }
+      totals[i] += other.totals[j];
+      counts[i] += other.counts[j];
+    }
+  }
+
+  /**
+   * Removes every month and marks every minimum and maximum as unknown
+   */
+  public void clear() {
+    Arrays.fill(totals, 0);
+    Arrays.fill(counts, 0);
+    Arrays.fill(stale, false);
+  }
+
+  /**
+   * Recomputes the minimum and maximum of the given month now if they are stale, so that reading
+   * them later changes nothing
+   *
+   * @param monthIndex the month index
+   */
+  public void settle(int monthIndex) {
+    int i = monthIndex - base;
+    if (i >= 0 && i < counts.length && counts[i] > 0) {
+      refresh(i);
+    }
+  }
+
+  /**
+   * Returns the total weight recorded in the given month
+   *
+   * @param monthIndex the month index
+   * @return the total weight of the month
+   */
+  public long getTotal(int monthIndex) {
+    int i = monthIndex - base;
+    return i >= 0 && i < totals.length ? totals[i] : 0;
+  }
+
+  /**
+   * Returns the number of weights recorded in the given month
+   *
+   * @param monthIndex the month index
+   * @return the number of weights in the month
+   */
+  public int getCount(int monthIndex) {
+    int i = monthIndex - base;
+    return i >= 0 && i < counts.length ? counts[i] : 0;
+  }
+
+  /**
+   * Returns the smallest weight recorded in the given month
+   *
+   * @param monthIndex the month index
+   * @return the smallest weight of the month, or Integer.MAX_VALUE if the month is empty
+   */
+  public int getMin(int monthIndex) {
+    int i = monthIndex - base;
+    if (i < 0 || i >= counts.length || counts[i] == 0) {
+      return Integer.MAX_VALUE;
+    }
+    refresh(i);
+    return mins[i];
+  }
+
+  /**
+   * Returns the largest weight recorded in the given month
+   *
+   * @param monthIndex the month index
+   * @return the largest weight of the month, or Integer.MIN_VALUE if the month is empty
+   */
+  public int getMax(int monthIndex) {
+    int i = monthIndex - base;
+    if (i < 0 || i >= counts.length || counts[i] == 0) {
+      return Integer.MIN_VALUE;
+    }
+    refresh(i);
+    return maxs[i];
+  }
+
+  /**
+   * Returns the total weight recorded in the given year
+   *
+   * @param year the year
+   * @return the total weight of the year
+   */
+  public long getYearTotal(int year) {
+    long total = 0;
+    for (int m = 1; m <= 12; m++) {
+      total += getTotal(EpochDays.monthIndex(year, m));
+    }
+    return total;
+  }
+
+  /**
+   * Returns the number of weights recorded in the given year
+   *
+   * @param year the year
+   * @return the number of weights in the year
+   */
+  public int getYearCount(int year) {
+    int count = 0;
+    for (int m = 1; m <= 12; m++) {
+      count += getCount(EpochDays.monthIndex(year, m));
+    }
+    return count;
+  }
+
+  /**
+   * Returns the first month index this rollup has room for
+   *
+   * @return the first month index this rollup has room for
+   */
+  public int firstMonth() {
+    return base;
+  }
+
+  /**
+   * Returns one past the last month index this rollup has room for
+   *
+   * @return one past the last month index this rollup has room for
+   */
+  public int endMonth() {
+    return base + counts.length;
+  }
+
+  private void refresh(int i) {
+    if (!stale[i]) {
+      return;
+    }
+    scanMin = Integer.MAX_VALUE;
+    scanMax = Integer.MIN_VALUE;
+    source.scan(base + i, w -> {
+      scanMin = Math.min(scanMin, w);
+      scanMax = Math.max(scanMax, w);
+    });
+    mins[i] = scanMin;
+    maxs[i] = scanMax;
+    stale[i] = false;
+  }
+
+  /**
+   * Returns the array slot for the given month index, growing the arrays to cover it
+   */
+  private int slot(int monthIndex) {
+    if (counts.length == 0) {
+      base = monthIndex;
+      resize(0, 12);
+    } else if (monthIndex < base) {
+      int shift = Math.max(base - monthIndex, 12);
+      base -= shift;
+      resize(shift, counts.length + shift);
+    } else if (monthIndex >= base + counts.length) {
+      resize(0, Math.max(monthIndex - base + 1, counts.length + 12));
+    }
+    return monthIndex - base;
+  }
+
+  private void resize(int shift, int length) {
+    totals = shifted(totals, shift, length);
+    counts = shifted(counts, shift, length);
+    mins = shifted(mins, shift, length);
+    maxs = shifted(maxs, shift, length);
+    boolean[] s = new boolean[length];
+    System.arraycopy(stale, 0, s, shift, stale.length);
+    stale = s;
+  }
+
+  private static long[] shifted(long[] a, int shift, int length) {
+    long[] r = new long[length];
+    System.arraycopy(a, 0, r, shift, a.length);
+    return r;
+  }
+
+  private static int[] shifted(int[] a, int shift, int length) {
+    int[] r = new int[length];
+    System.arraycopy(a, 0, r, shift, a.length);
+    return r;
+  }
+}
@@ -0,0 +1,111 @@
+package application;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Defines a cache of one QuantileSketch per month, built the first time a month is asked for and
+ * dropped when a weight in that month changes. Sketches cannot forget a weight, so a change marks
+ * the month to be rebuilt rather than updating its sketch, and months that are never asked for
+ * cost nothing.
+ *
+ * Sketches can be fetched and built by several threads at once; a month's sketch is built by one
+ * of them while the others wait for it. Invalidating a month must not overlap with fetching it.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class MonthlySketches {
+
+  /**
+   * Builds the sketch of one month
+   */
+  public interface Builder {
+    /**
+     * Returns a new sketch of every weight recorded in the given month
+     *
+     * @param monthIndex the month index
+     * @param k          the accuracy parameter of the sketch to build
+     * @return the sketch of the month
+     */
+    QuantileSketch build(int monthIndex, int k);
+  }
+
+  private final Builder builder;
+  private final Map<Integer, QuantileSketch> months;
+
+  /**
+   * Initializes an empty cache
+   *
+   * @param builder how a month's sketch is built when it is not cached
+   */
+  public MonthlySketches(Builder builder) {
+    this.builder = builder;
+    this.months = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the sketch of the given month with the given accuracy, building it if it is not cached
+   * or was cached with another accuracy. The returned sketch must not be changed.
+   *
+   * @param monthIndex the month index
+   * @param k          the accuracy parameter
+   * @return the sketch of the month
+   */
+  public QuantileSketch get(int monthIndex, int k) {
+    QuantileSketch sketch = months.get(monthIndex);
+    if (sketch != null && sketch.getK() == k) {
+      return sketch;
+    }
+    return months.compute(monthIndex,
+        (m, cached) -> cached != null && cached.getK() == k ? cached : builder.build(m, k));
+  }
+
+  /**
+   * Drops the sketch of the month containing the given epoch day
+   *
+   * @param epochDay a day whose weight changed
+   */
+  public void invalidate(int epochDay) {
+    if (!months.isEmpty()) {
+      months.remove(EpochDays.monthIndex(epochDay));
+    }
+  }
+
+  /**
+   * Drops every cached sketch
+   */
+  public void clear() {
+    months.clear();
+  }
+
+  /**
+   * Returns a builder that adds every weight passed by the given source to a new sketch
+   *
+   * @param source the source of each month's weights
+   * @return a builder over the source
+   */
+  public static Builder scanning(MonthlyRollup.Source source) {
+    return (monthIndex, k) -> {
+      QuantileSketch sketch = new QuantileSketch(k);
+      source.scan(monthIndex, sketch::add);
+      return sketch;
+    };
+  }
+
+  /**
+   * Returns a builder that merges the sketches of the same month made by the given builders
+   *
+   * @param parts the builders to merge the sketches of
+   * @return a builder over the parts
+   */
+  static Builder merging(IntFunction<Iterable<QuantileSketch>> parts) {
+    return (monthIndex, k) -> {
+      QuantileSketch sketch = new QuantileSketch(k);
+      for (QuantileSketch part : parts.apply(monthIndex)) {
+        sketch.merge(part);
+      }
+      return sketch;
+    };
+  }
+}
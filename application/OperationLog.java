@@ -0,0 +1,438 @@
+package application;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Defines an append-only log of the changes made to a FarmTable, kept in a directory next to a
+ * TableSnapshot of the table. Every added, changed or removed entry is appended as one record, and
+ * the state of the table is the snapshot with the log replayed on top of it.
+ *
+ * Records are buffered in memory and written by a single writer thread, which forces each batch to
+ * disk with one fsync. Records appended while a batch is being synced wait for the next one, so a
+ * burst of edits costs a handful of syncs rather than one each. flush() waits until everything
+ * appended so far is on disk.
+ *
+ * The log is split into numbered segment files. When a segment grows past SEGMENT_SIZE the writer
+ * starts a new one and a background thread folds the closed segments into a new snapshot, working
+ * only from the files, so the time to replay the log at startup stays bounded. Replaying a record
+ * twice has no further effect, so a crash between writing a snapshot and deleting the segments it
+ * includes loses nothing.
+ *
+ * Each record is an int payload length, the CRC32 of the payload, and a payload of a byte
+ * operation, an int epoch day, an int weight and the farm id as a short length and UTF-8 bytes. A
+ * record whose checksum does not match ends the replay of its segment, which is where a crash in
+ * the middle of a write leaves a partial record.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class OperationLog implements Closeable {
+  /** the size a segment grows to before the log moves on to a new one and compacts */
+  public static final long SEGMENT_SIZE = 4L << 20;
+
+  private static final String SNAPSHOT_NAME = "table.snapshot";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int PAYLOAD_FIXED_SIZE = 11;
+  private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+  private final File dir;
+  private final File snapshot;
+  private final CRC32 crc = new CRC32();
+  private final Thread writer;
+  private final ExecutorService compactor;
+  /** held while the current segment is written to or replaced */
+  private final Object io = new Object();
+  /** held while the snapshot is rebuilt or replaced and the segments it includes deleted */
+  private final Object snapshotLock = new Object();
+
+  // guarded by this
+  private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private long appended;
+  private long durable;
+  private boolean closed;
+  private IOException failure;
+  private IOException compactionFailure;
+
+  // guarded by io
+  private long segment;
+  private FileChannel channel;
+
+  private OperationLog(File dir, long lastSegment) throws IOException {
+    this.dir = dir;
+    this.snapshot = new File(dir, SNAPSHOT_NAME);
+    // never append after a segment that may end in a partial record
+    this.segment = lastSegment + 1;
+    this.channel = openSegment(segment);
+    this.compactor = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "operation-log-compactor");
+      t.setDaemon(true);
+      return t;
+    });
+    this.writer = new Thread(this::writeLoop, "operation-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Restores the given table from the snapshot and log in the given directory, then starts
+   * logging the table's changes there. The directory is created if it does not exist.
+   *
+   * @param dir   the directory holding the snapshot and the log
+   * @param table the table to restore into and log the changes of
+   * @return the log, which must be closed when the table is no longer changed
+   * @throws IOException if the snapshot or the log could not be read or the log not opened
+   */
+  public static OperationLog open(File dir, FarmTable table) throws IOException {
+    Files.createDirectories(dir.toPath());
+    File snapshot = new File(dir, SNAPSHOT_NAME);
+    long included = snapshot.isFile() ? TableSnapshot.load(snapshot, table) : 0;
+    long last = included;
+    boolean replayed = false;
+    for (long s : segments(dir)) {
+      File file = segmentFile(dir, s);
+      if (s <= included) {
+        continue;
+      }
+      if (file.length() == 0) {
+        // a session that changed nothing leaves an empty segment behind
+        Files.delete(file.toPath());
+        continue;
+      }
+      replay(file, table);
+      replayed = true;
+      last = s;
+    }
+    OperationLog log = new OperationLog(dir, last);
+    table.setOperationLog(log);
+    if (replayed) {
+      long upTo = last;
+      log.compactor.execute(() -> log.compact(upTo));
+    }
+    return log;
+  }
+
+  /**
+   * Appends a record that the given farm's weight on the given day is now the given weight
+   *
+   * @param farmId   the id of the farm
+   * @param epochDay the day of the entry
+   * @param weight   the weight of the entry
+   * @throws UncheckedIOException if an earlier write failed, after which nothing more is logged
+   */
+  public void put(String farmId, int epochDay, int weight) {
+    append(PUT, farmId, epochDay, weight);
+  }
+
+  /**
+   * Appends a record that the given farm no longer has an entry on the given day
+   *
+   * @param farmId   the id of the farm
+   * @param epochDay the day of the removed entry
+   * @throws UncheckedIOException if an earlier write failed, after which nothing more is logged
+   */
+  public void delete(String farmId, int epochDay) {
+    append(DELETE, farmId, epochDay, 0);
+  }
+
+  private synchronized void append(byte op, String farmId, int epochDay, int weight) {
+    if (closed) {
+      throw new IllegalStateException("operation log is closed");
+    }
+    if (failure != null) {
+      // the writer has stopped, so the record would only wait in memory forever
+      throw new UncheckedIOException("the operation log could not be written", failure);
+    }
+    byte[] id = farmId.getBytes(StandardCharsets.UTF_8);
+    if (id.length > 0xFFFF) {
+      throw new IllegalArgumentException("farm id is too long to log: " + farmId);
+    }
+    int payload = PAYLOAD_FIXED_SIZE + id.length;
+    if (pending.remaining() < RECORD_HEADER_SIZE + payload) {
+      ByteBuffer grown = ByteBuffer.allocate(
+          Math.max(pending.capacity() * 2, pending.position() + RECORD_HEADER_SIZE + payload));
+      pending.flip();
+      grown.put(pending);
+      pending = grown;
+    }
+    int start = pending.position();
+    pending.putInt(payload);
+    pending.putInt(0);
+    pending.put(op);
+    pending.putInt(epochDay);
+    pending.putInt(weight);
+    pending.putShort((short) id.length);
+    pending.put(id);
+    crc.reset();
+    crc.update(pending.array(), start + RECORD_HEADER_SIZE, payload);
+    pending.putInt(start + 4, (int) crc.getValue());
+    appended++;
+    notifyAll();
+  }
+
+  /**
+   * Waits until every record appended so far has been forced to disk
+   *
+   * @throws IOException if the log could not be written
+   */
+  public synchronized void flush() throws IOException {
+    long target = appended;
+    while (durable < target && failure == null) {
+      try {
+        wait();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while flushing the operation log", ex);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Writes the given table as the new snapshot and drops every log segment it includes. Used after
+   * changes that were not logged, such as a csv load, and when the user saves. The table must be
+   * the one whose changes this log records, and must not change while it is written.
+   *
+   * @param table the table to write
+   * @throws IOException if the log could not be flushed or the snapshot written
+   */
+  public void checkpoint(FarmTable table) throws IOException {
+    flush();
+    synchronized (snapshotLock) {
+      long included;
+      synchronized (io) {
+        included = roll();
+      }
+      TableSnapshot.save(table, snapshot, included);
+      deleteSegments(included);
+    }
+  }
+
+  /**
+   * Flushes every appended record and stops the writer and compaction threads
+   *
+   * @throws IOException if the log could not be flushed or closed, or the last compaction failed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      synchronized (this) {
+        closed = true;
+        notifyAll();
+      }
+      compactor.shutdown();
+      try {
+        writer.join();
+        compactor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (io) {
+        channel.close();
+      }
+    }
+    if (compactionFailure != null) {
+      throw compactionFailure;
+    }
+  }
+
+  private void writeLoop() {
+    while (true) {
+      ByteBuffer batch;
+      long batchEnd;
+      synchronized (this) {
+        while (pending.position() == 0 && !closed) {
+          try {
+            wait();
+          } catch (InterruptedException ex) {
+            return;
+          }
+        }
+        if (pending.position() == 0) {
+          return;
+        }
+        batch = pending;
+        pending = spare;
+        batchEnd = appended;
+      }
+      try {
+        synchronized (io) {
+          batch.flip();
+          while (batch.hasRemaining()) {
+            channel.write(batch);
+          }
+          channel.force(false);
+          if (channel.size() >= SEGMENT_SIZE) {
+            long closedSegment = roll();
+            compactor.execute(() -> compact(closedSegment));
+          }
+        }
+      } catch (IOException ex) {
+        synchronized (this) {
+          failure = ex;
+          pending.clear();
+          notifyAll();
+        }
+        return;
+      }
+      batch.clear();
+      synchronized (this) {
+        spare = batch;
+        durable = batchEnd;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Moves writing on to a new segment, returning the number of the last closed one. Must be called
+   * holding io.
+   */
+  private long roll() throws IOException {
+    FileChannel next = openSegment(segment + 1);
+    channel.close();
+    channel = next;
+    return segment++;
+  }
+
+  /**
+   * Folds every segment up to and including the given one into the snapshot
+   */
+  private void compact(long upTo) {
+    synchronized (snapshotLock) {
+      try {
+        FarmTable table = new FarmTable(FarmTable.Storage.COLUMNAR);
+        long included = snapshot.isFile() ? TableSnapshot.load(snapshot, table) : 0;
+        // a checkpoint may already have written a snapshot that includes these segments
+        if (included >= upTo) {
+          return;
+        }
+        for (long s : segments(dir)) {
+          if (s > included && s <= upTo) {
+            replay(segmentFile(dir, s), table);
+          }
+        }
+        TableSnapshot.save(table, snapshot, upTo);
+        deleteSegments(upTo);
+        compactionFailure = null;
+      } catch (IOException ex) {
+        // the segments are kept, so nothing is lost and the next compaction tries again
+        compactionFailure = ex;
+      }
+    }
+  }
+
+  private void deleteSegments(long upTo) throws IOException {
+    for (long s : segments(dir)) {
+      if (s <= upTo) {
+        Files.deleteIfExists(segmentFile(dir, s).toPath());
+      }
+    }
+  }
+
+  private FileChannel openSegment(long number) throws IOException {
+    return FileChannel.open(segmentFile(dir, number).toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Applies every intact record of a segment to the given table, stopping at the first record
+   * that is incomplete or fails its checksum
+   */
+  private static void replay(File segmentFile, FarmTable table) throws IOException {
+    try (FileChannel in = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ)) {
+      long size = in.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(segmentFile + " is too large to map");
+      }
+      MappedByteBuffer records = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      CRC32 check = new CRC32();
+      try {
+        while (records.remaining() >= RECORD_HEADER_SIZE) {
+          int payload = records.getInt();
+          int expected = records.getInt();
+          if (payload < PAYLOAD_FIXED_SIZE || payload > records.remaining()) {
+            return;
+          }
+          ByteBuffer body = records.slice();
+          body.limit(payload);
+          check.reset();
+          check.update(body.duplicate());
+          if ((int) check.getValue() != expected) {
+            return;
+          }
+          byte op = body.get();
+          int epochDay = body.getInt();
+          int weight = body.getInt();
+          byte[] id = new byte[body.getShort() & 0xFFFF];
+          body.get(id);
+          apply(table, op, new String(id, StandardCharsets.UTF_8), epochDay, weight);
+          records.position(records.position() + payload);
+        }
+      } catch (BufferUnderflowException ex) {
+        // a record whose farm id runs past its payload can only be a partial write
+      }
+    }
+  }
+
+  private static void apply(FarmTable table, byte op, String farmId, int epochDay, int weight) {
+    if (op == PUT) {
+      table.farmFor(farmId).putWeight(epochDay, weight);
+    } else if (op == DELETE) {
+      Farm farm = table.getFarm(farmId);
+      if (farm != null) {
+        farm.removeEntry(LocalDate.ofEpochDay(epochDay));
+      }
+    }
+  }
+
+  /**
+   * Returns the numbers of the segments in the given directory in ascending order
+   */
+  private static List<Long> segments(File dir) {
+    List<Long> numbers = new ArrayList<>();
+    String[] names = dir.list();
+    if (names == null) {
+      return numbers;
+    }
+    for (String name : names) {
+      if (name.endsWith(SEGMENT_SUFFIX)) {
+        try {
+          numbers.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException ex) {
+          // not a segment
+        }
+      }
+    }
+    Collections.sort(numbers);
+    return numbers;
+  }
+
+  private static File segmentFile(File dir, long number) {
+    return new File(dir, String.format("%016d%s", number, SEGMENT_SUFFIX));
+  }
+}
@@ -0,0 +1,94 @@
+package application;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Defines the running totals of a sequence of values that is kept somewhere else, so that the sum
+ * of any run of positions is the difference of two totals. The totals are computed lazily: a change
+ * at a position only marks the totals from that position on as stale, and the next sum extends
+ * them from the first stale one. Appending at the end, the usual case, therefore costs one addition
+ * per value, and a change in the middle costs one pass over the values after it.
+ *
+ * Several threads may take sums at once while the values do not change: extending the totals is
+ * synchronized and publishes them through volatile fields, so totals that are already up to date
+ * are read without locking. Changes and invalidateFrom must not overlap with sums.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class PrefixSums {
+  private volatile long[] totals;
+  private volatile int valid;
+
+  /**
+   * Initializes the running totals of an empty sequence
+   */
+  public PrefixSums() {
+    this.totals = new long[16];
+    this.valid = 0;
+  }
+
+  /**
+   * Marks the totals that include the value at the given position as stale, after that value was
+   * changed or a value was inserted or removed there
+   *
+   * @param pos the first position whose value changed
+   */
+  public void invalidateFrom(int pos) {
+    if (pos < valid) {
+      valid = pos;
+    }
+  }
+
+  /**
+   * Returns the sum of the values before the given position
+   *
+   * @param pos     the number of values to add up
+   * @param valueAt the value at each position
+   * @return the sum of the values at positions 0 to pos - 1
+   */
+  public long sumBefore(int pos, IntToLongFunction valueAt) {
+    if (pos == 0) {
+      return 0;
+    }
+    if (pos > valid) {
+      extend(pos, valueAt);
+    }
+    return totals[pos - 1];
+  }
+
+  /**
+   * Brings the totals up to date as far as the given position, unless another thread already has
+   */
+  private synchronized void extend(int pos, IntToLongFunction valueAt) {
+    int from = valid;
+    if (pos <= from) {
+      return;
+    }
+    // only totals from valid on are written, so threads reading the ones before it need no lock
+    long[] sums = totals;
+    if (pos > sums.length) {
+      sums = Arrays.copyOf(sums, Math.max(pos, sums.length * 2));
+    }
+    // sums[i] is the sum of the values at positions 0 to i
+    long sum = from == 0 ? 0 : sums[from - 1];
+    for (int i = from; i < pos; i++) {
+      sum += valueAt.applyAsLong(i);
+      sums[i] = sum;
+    }
+    totals = sums;
+    valid = pos;
+  }
+
+  /**
+   * Returns the sum of the values from one position up to but not including another
+   *
+   * @param from    the first position to include
+   * @param to      the first position to leave out
+   * @param valueAt the value at each position
+   * @return the sum of the values at positions from to to - 1
+   */
+  public long sum(int from, int to, IntToLongFunction valueAt) {
+    return to <= from ? 0 : sumBefore(to, valueAt) - sumBefore(from, valueAt);
+  }
+}
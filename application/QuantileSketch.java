@@ -0,0 +1,247 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Defines a KLL quantile sketch of int weights: a summary of fixed size from which the median and
+ * other quantiles of any number of weights can be read approximately. Weights are kept in levels;
+ * when a level fills up it is sorted and every other weight is promoted to the next level, where
+ * each weight stands for twice as many. Level capacities shrink by two thirds going down from the
+ * top, so the sketch holds about 3k weights however many it has seen.
+ *
+ * Two sketches merge into one that summarizes both inputs with the same error bound, so sketches
+ * kept per farm per month can be combined for any selection of farms and months. With k = 200 a
+ * quantile's rank is within about 1.5% of the true rank; the error shrinks roughly in proportion
+ * to 1/k. The min and max are exact.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class QuantileSketch {
+  /** the default accuracy parameter */
+  public static final int DEFAULT_K = 200;
+  /** the smallest accuracy parameter allowed */
+  public static final int MIN_K = 8;
+
+  private static final int MIN_CAPACITY = 8;
+  private static final double SHRINK = 2.0 / 3.0;
+
+  private final int k;
+  private int[][] levels;
+  private int[] sizes;
+  private int[] capacities;
+  private int height;
+  private long count;
+  private int min;
+  private int max;
+  private long random;
+
+  /**
+   * Initializes an empty sketch with the default accuracy
+   */
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * Initializes an empty sketch with the given accuracy parameter
+   *
+   * @param k the accuracy parameter; larger values are more accurate and hold more weights
+   * @throws IllegalArgumentException if k is less than MIN_K
+   */
+  public QuantileSketch(int k) {
+    if (k < MIN_K) {
+      throw new IllegalArgumentException("k must be at least " + MIN_K + " but was " + k);
+    }
+    this.k = k;
+    this.levels = new int[][] {new int[MIN_CAPACITY]};
+    this.sizes = new int[1];
+    this.capacities = capacities(k, 1);
+    this.height = 1;
+    this.count = 0;
+    this.min = Integer.MAX_VALUE;
+    this.max = Integer.MIN_VALUE;
+    // a fixed seed keeps reports repeatable
+    this.random = 0x9E3779B97F4A7C15L;
+  }
+
+  /**
+   * Returns the accuracy parameter of this sketch
+   *
+   * @return the accuracy parameter
+   */
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * Adds one weight to the sketch
+   *
+   * @param weight the weight to add
+   */
+  public void add(int weight) {
+    append(0, weight);
+    count++;
+    min = Math.min(min, weight);
+    max = Math.max(max, weight);
+    if (sizes[0] >= capacity(0)) {
+      compress();
+    }
+  }
+
+  /**
+   * Adds every weight summarized by the given sketch to this one
+   *
+   * @param other the sketch to merge into this one
+   */
+  public void merge(QuantileSketch other) {
+    if (other.count == 0) {
+      return;
+    }
+    for (int h = 0; h < other.height; h++) {
+      for (int i = 0; i < other.sizes[h]; i++) {
+        append(h, other.levels[h][i]);
+      }
+    }
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    compress();
+  }
+
+  /**
+   * Returns the number of weights added to the sketch, directly or through merges
+   *
+   * @return the number of weights summarized
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the approximate weight at the given quantile, 0.5 for the median
+   *
+   * @param q the quantile, from 0 to 1
+   * @return the weight whose rank is about q times the count, or 0 if the sketch is empty
+   * @throws IllegalArgumentException if q is outside 0 to 1
+   */
+  public int getQuantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("The quantile must be from 0 to 1 but was " + q);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    if (q == 0) {
+      return min;
+    }
+    if (q == 1) {
+      return max;
+    }
+    int retained = 0;
+    for (int h = 0; h < height; h++) {
+      retained += sizes[h];
+    }
+    // each weight and its level are packed into one long so that a single sort orders them
+    long[] packed = new long[retained];
+    int n = 0;
+    for (int h = 0; h < height; h++) {
+      for (int i = 0; i < sizes[h]; i++) {
+        packed[n++] = ((long) levels[h][i] << 8) | h;
+      }
+    }
+    Arrays.sort(packed);
+    long rank = (long) Math.ceil(q * count);
+    long seen = 0;
+    for (long p : packed) {
+      seen += 1L << (p & 0xFF);
+      if (seen >= rank) {
+        return (int) (p >> 8);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Returns the exact smallest weight added
+   *
+   * @return the smallest weight, or 0 if the sketch is empty
+   */
+  public int getMin() {
+    return count == 0 ? 0 : min;
+  }
+
+  /**
+   * Returns the exact largest weight added
+   *
+   * @return the largest weight, or 0 if the sketch is empty
+   */
+  public int getMax() {
+    return count == 0 ? 0 : max;
+  }
+
+  /**
+   * Returns the number of weights one level can hold before it is compacted
+   */
+  private int capacity(int level) {
+    return capacities[height - 1 - level];
+  }
+
+  /**
+   * Returns the capacity of a level at each depth below the top level, for the given number of
+   * depths
+   */
+  private static int[] capacities(int k, int depths) {
+    int[] capacities = new int[depths];
+    for (int depth = 0; depth < depths; depth++) {
+      capacities[depth] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(SHRINK, depth)));
+    }
+    return capacities;
+  }
+
+  private void append(int level, int weight) {
+    while (level >= height) {
+      if (height == levels.length) {
+        levels = Arrays.copyOf(levels, height * 2);
+        sizes = Arrays.copyOf(sizes, height * 2);
+        capacities = capacities(k, height * 2);
+      }
+      levels[height] = new int[MIN_CAPACITY];
+      height++;
+    }
+    if (sizes[level] == levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+    }
+    levels[level][sizes[level]++] = weight;
+  }
+
+  /**
+   * Compacts every level holding more than its capacity, from the bottom up, promoting half of its
+   * weights to the level above
+   */
+  private void compress() {
+    for (int h = 0; h < height; h++) {
+      if (sizes[h] < capacity(h)) {
+        continue;
+      }
+      int[] level = levels[h];
+      Arrays.sort(level, 0, sizes[h]);
+      // an odd weight out stays behind so that the promoted weights pair up exactly
+      int start = sizes[h] % 2;
+      int offset = nextBit();
+      for (int i = start + offset; i < sizes[h]; i += 2) {
+        append(h + 1, level[i]);
+      }
+      sizes[h] = start;
+    }
+  }
+
+  /**
+   * Returns a pseudo-random 0 or 1 from a xorshift generator
+   */
+  private int nextBit() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (int) (random >>> 63);
+  }
+}
@@ -0,0 +1,65 @@
+package application;
+
+/**
+ * Defines the number of entries and total weight recorded over a range of dates, read from the
+ * running totals of one farm or of every farm without looking at the entries themselves.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class RangeTotals {
+  private final long count;
+  private final long total;
+
+  /**
+   * Initializes the totals of a range
+   *
+   * @param count the number of entries in the range
+   * @param total the sum of the entries' weights
+   */
+  public RangeTotals(long count, long total) {
+    this.count = count;
+    this.total = total;
+  }
+
+  /**
+   * Returns the number of entries in the range
+   *
+   * @return the number of entries in the range
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the sum of the weights in the range
+   *
+   * @return the sum of the weights in the range
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the mean weight in the range
+   *
+   * @return the mean weight, or 0 if the range has no entries
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  /**
+   * Returns the totals of this range and the given one together
+   *
+   * @param other the totals to add
+   * @return the combined totals
+   */
+  public RangeTotals plus(RangeTotals other) {
+    return new RangeTotals(count + other.count, total + other.total);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%,d entries, total %,d, mean %.2f", count, total, getMean());
+  }
+}
@@ -0,0 +1,122 @@
+package application;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Defines a bounded least recently used cache of report results keyed by their ReportQuery. Each
+ * result remembers the FarmTable version it was computed at, and is thrown away when it is read
+ * after a change to an entry in one of the farm and month cells its query covers, so editing one
+ * farm's month keeps the cached reports of other farms and of that farm's other months. The cache
+ * is safe to use from several threads.
+ *
+ * @param <V> the type of the cached results
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ReportCache<V> {
+  private final FarmTable table;
+  private final int capacity;
+  private final LinkedHashMap<ReportQuery, Cached<V>> entries;
+  private long hits;
+  private long misses;
+
+  /**
+   * Initializes an empty cache of results computed from the given table
+   *
+   * @param table    the table the results are computed from
+   * @param capacity the largest number of results to keep
+   * @throws IllegalArgumentException if capacity is less than 1
+   */
+  public ReportCache(FarmTable table, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be at least 1 but was " + capacity);
+    }
+    this.table = table;
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<ReportQuery, Cached<V>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ReportQuery, Cached<V>> eldest) {
+        return size() > ReportCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached result of the given query if none of the farm and month cells the query
+   * covers has changed since it was computed, counting a hit or a miss
+   *
+   * @param query the query to look up
+   * @return the cached result, or null if there is none or it is out of date
+   */
+  public synchronized V get(ReportQuery query) {
+    Cached<V> cached = entries.get(query);
+    if (cached != null && table.changedSince(cached.version, query)) {
+      entries.remove(query);
+      cached = null;
+    }
+    if (cached == null) {
+      misses++;
+      Metrics.DEFAULT.counter("reportCache.misses").increment();
+      return null;
+    }
+    hits++;
+    Metrics.DEFAULT.counter("reportCache.hits").increment();
+    return cached.value;
+  }
+
+  /**
+   * Caches the result of the given query, evicting the least recently used result if the cache is
+   * full
+   *
+   * @param query   the query the result answers
+   * @param version the table version read before the result was computed
+   * @param value   the result
+   */
+  public synchronized void put(ReportQuery query, long version, V value) {
+    entries.put(query, new Cached<>(version, value));
+  }
+
+  /**
+   * Removes every cached result
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of results cached, some of which may be out of date
+   *
+   * @return the number of results cached
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of lookups that found an up to date result
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that found no result or an out of date one
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  private static class Cached<V> {
+    private final long version;
+    private final V value;
+
+    private Cached(long version, V value) {
+      this.version = version;
+      this.value = value;
+    }
+  }
+}
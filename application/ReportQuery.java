@@ -0,0 +1,185 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Defines a typed request for one of the four reports: every entry of one farm, in every year or
+ * one, every farm's entries for one month or one year, or every farm's entries between two dates.
+ * A query covers a set of farms (one or all) and a half-open range of epoch days.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public final class ReportQuery {
+
+  /**
+   * The kinds of report that can be generated
+   */
+  public enum Type {
+    FARM, MONTH, YEAR, RANGE
+  }
+
+  private final Type type;
+  private final String farmId;
+  private final int fromDay;
+  private final int toDay;
+
+  private ReportQuery(Type type, String farmId, int fromDay, int toDay) {
+    this.type = type;
+    this.farmId = farmId;
+    this.fromDay = fromDay;
+    this.toDay = toDay;
+  }
+
+  /**
+   * Returns a query for every entry of the given farm
+   *
+   * @param farmId the id of the farm
+   * @return a query for every entry of the farm
+   */
+  public static ReportQuery farm(String farmId) {
+    return new ReportQuery(Type.FARM, Objects.requireNonNull(farmId), Integer.MIN_VALUE,
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a query for the entries of the given farm in the given year
+   *
+   * @param farmId the id of the farm
+   * @param year   the year
+   * @return a query for the farm's entries in the year
+   */
+  public static ReportQuery farm(String farmId, int year) {
+    return new ReportQuery(Type.FARM, Objects.requireNonNull(farmId),
+        (int) LocalDate.of(year, 1, 1).toEpochDay(),
+        (int) LocalDate.of(year + 1, 1, 1).toEpochDay());
+  }
+
+  /**
+   * Returns a query for every farm's entries in the given month
+   *
+   * @param year  the year of the month
+   * @param month the month of the year, from 1 to 12
+   * @return a query for every farm's entries in the month
+   */
+  public static ReportQuery month(int year, int month) {
+    LocalDate first = LocalDate.of(year, month, 1);
+    return new ReportQuery(Type.MONTH, null, (int) first.toEpochDay(),
+        (int) first.plusMonths(1).toEpochDay());
+  }
+
+  /**
+   * Returns a query for every farm's entries in the given year
+   *
+   * @param year the year
+   * @return a query for every farm's entries in the year
+   */
+  public static ReportQuery year(int year) {
+    return new ReportQuery(Type.YEAR, null, (int) LocalDate.of(year, 1, 1).toEpochDay(),
+        (int) LocalDate.of(year + 1, 1, 1).toEpochDay());
+  }
+
+  /**
+   * Returns a query for every farm's entries from start to end, including both dates
+   *
+   * @param start the first date to include
+   * @param end   the last date to include
+   * @return a query for every farm's entries between the dates
+   * @throws IllegalArgumentException if end is before start
+   */
+  public static ReportQuery range(LocalDate start, LocalDate end) {
+    if (end.isBefore(start)) {
+      throw new IllegalArgumentException("The end date " + end + " is before " + start);
+    }
+    return new ReportQuery(Type.RANGE, null, (int) start.toEpochDay(),
+        (int) end.toEpochDay() + 1);
+  }
+
+  /**
+   * Returns the kind of report this query is for
+   *
+   * @return the kind of report this query is for
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the id of the farm a farm report is for
+   *
+   * @return the id of the farm, or null if the query covers every farm
+   */
+  public String getFarmId() {
+    return farmId;
+  }
+
+  /**
+   * Returns the first epoch day the query covers
+   *
+   * @return the first epoch day the query covers
+   */
+  public int getFromDay() {
+    return fromDay;
+  }
+
+  /**
+   * Returns the epoch day just after the last day the query covers
+   *
+   * @return the epoch day just after the last day the query covers
+   */
+  public int getToDay() {
+    return toDay;
+  }
+
+  /**
+   * Returns true if the query covers only one farm
+   *
+   * @return true if the query covers only one farm
+   */
+  public boolean isSingleFarm() {
+    return farmId != null;
+  }
+
+  /**
+   * Returns a short description of what the report covers, such as "MARCH 2019"
+   *
+   * @return a short description of what the report covers
+   */
+  public String getDescription() {
+    switch (type) {
+      case FARM:
+        return fromDay == Integer.MIN_VALUE ? farmId
+            : farmId + " " + LocalDate.ofEpochDay(fromDay).getYear();
+      case MONTH:
+        LocalDate first = LocalDate.ofEpochDay(fromDay);
+        return first.getMonth() + " " + first.getYear();
+      case YEAR:
+        return Integer.toString(LocalDate.ofEpochDay(fromDay).getYear());
+      default:
+        return LocalDate.ofEpochDay(fromDay) + " to " + LocalDate.ofEpochDay(toDay - 1);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ReportQuery)) {
+      return false;
+    }
+    ReportQuery other = (ReportQuery) o;
+    return type == other.type && fromDay == other.fromDay && toDay == other.toDay
+        && Objects.equals(farmId, other.farmId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, farmId, fromDay, toDay);
+  }
+
+  @Override
+  public String toString() {
+    return type + " " + getDescription();
+  }
+}
@@ -0,0 +1,69 @@
+package application;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines the result of running a ReportQuery: the entries the report covers, the descriptive
+ * statistics of their weights and each farm's share of them.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ReportResult {
+  private final ReportQuery query;
+  private final List<Entry> rows;
+  private final WeightStatistics statistics;
+  private final FarmTotals farmTotals;
+
+  /**
+   * Initializes a result for the given query
+   *
+   * @param query      the query the result answers
+   * @param rows       the entries the report covers
+   * @param statistics the statistics of the entries' weights
+   * @param farmTotals the number of entries and total weight of each farm in the report
+   */
+  public ReportResult(ReportQuery query, List<Entry> rows, WeightStatistics statistics,
+      FarmTotals farmTotals) {
+    this.query = query;
+    this.rows = Collections.unmodifiableList(rows);
+    this.statistics = statistics;
+    this.farmTotals = farmTotals;
+  }
+
+  /**
+   * Returns the query this result answers
+   *
+   * @return the query this result answers
+   */
+  public ReportQuery getQuery() {
+    return query;
+  }
+
+  /**
+   * Returns the entries the report covers, grouped by farm and in date order within a farm
+   *
+   * @return the entries the report covers
+   */
+  public List<Entry> getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the statistics of the weights of the entries the report covers
+   *
+   * @return the statistics of the report's weights
+   */
+  public WeightStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the number of entries and total weight of each farm the report covers, by farm code
+   *
+   * @return the totals of each farm in the report
+   */
+  public FarmTotals getFarmTotals() {
+    return farmTotals;
+  }
+}
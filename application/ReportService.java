@@ -0,0 +1,171 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines the report logic of the application without any user interface, so that reports can be
+ * generated by the JavaFX screens, batch jobs and benchmarks alike. Each farm's entries are sorted
+ * by date, so a report reads only the slice of each farm that falls inside the query's dates. A
+ * service can keep recent reports in a ReportCache, which drops a report only when an entry of a
+ * farm in one of the months it covers changes.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ReportService {
+  private final FarmTable farmTable;
+  private final ReportCache<ReportResult> results;
+  private final ReportCache<QuantileSketch> quantiles;
+
+  /**
+   * Initializes a report service over the given farm table that computes every report it is asked
+   * for
+   *
+   * @param farmTable the farm table to report on
+   */
+  public ReportService(FarmTable farmTable) {
+    this.farmTable = farmTable;
+    this.results = null;
+    this.quantiles = null;
+  }
+
+  /**
+   * Initializes a report service over the given farm table that keeps the given number of recent
+   * reports, reusing one until an entry its query covers changes
+   *
+   * @param farmTable the farm table to report on
+   * @param cacheSize the number of reports to keep
+   */
+  public ReportService(FarmTable farmTable, int cacheSize) {
+    this.farmTable = farmTable;
+    this.results = new ReportCache<>(farmTable, cacheSize);
+    this.quantiles = new ReportCache<>(farmTable, cacheSize);
+  }
+
+  /**
+   * Returns the cache of report results, which holds each report's rows, statistics and per-farm
+   * totals
+   *
+   * @return the cache of report results, or null if this service keeps none
+   */
+  public ReportCache<ReportResult> getResultCache() {
+    return results;
+  }
+
+  /**
+   * Returns the cache of report quantile sketches
+   *
+   * @return the cache of quantile sketches, or null if this service keeps none
+   */
+  public ReportCache<QuantileSketch> getQuantileCache() {
+    return quantiles;
+  }
+
+  /**
+   * Runs the given query against the farm table
+   *
+   * @param query the report to generate
+   * @return the entries the report covers and their statistics
+   */
+  public ReportResult run(ReportQuery query) {
+    long start = System.nanoTime();
+    ReportResult result = results == null ? null : results.get(query);
+    if (result == null) {
+      long version = farmTable.getVersion();
+      result = compute(query);
+      Metrics.DEFAULT.histogram("report.rowsScanned").record(result.getRows().size());
+      if (results != null) {
+        results.put(query, version, result);
+      }
+    }
+    Metrics.DEFAULT.histogram("report." + query.getType() + ".time").recordSince(start);
+    return result;
+  }
+
+  private ReportResult compute(ReportQuery query) {
+    Collection<Farm> farms = farmsFor(query);
+    int[] weights = new int[16];
+    int n = 0;
+    ArrayList<Entry> rows = new ArrayList<>();
+    FarmTotals byFarm = new FarmTotals(farmTable.getFarmIds());
+    for (Farm farm : farms) {
+      // a concurrent farm is locked only while its own slice is read
+      long stamp = farm.readLock();
+      try {
+        EntryStore store = farm.getStore();
+        int start = lowerBound(store, query.getFromDay());
+        int end = lowerBound(store, query.getToDay());
+        // the arrays grow by each slice as it is read, since a concurrent table's row counts
+        // are only settled under the farms' locks
+        if (n + end - start > weights.length) {
+          weights = Arrays.copyOf(weights, Math.max(n + end - start, 2 * weights.length));
+        }
+        rows.ensureCapacity(n + end - start);
+        long total = 0;
+        for (int i = start; i < end; i++) {
+          weights[n++] = store.weightAt(i);
+          total += store.weightAt(i);
+          rows.add(store.entryAt(i));
+        }
+        if (end > start) {
+          byFarm.add(farm.getCode(), end - start, total);
+        }
+      } finally {
+        farm.unlockRead(stamp);
+      }
+    }
+    return new ReportResult(query, rows, WeightStatistics.ofOwned(weights, n), byFarm);
+  }
+
+  /**
+   * Returns a quantile sketch of the weights the given query covers, from which approximate
+   * percentiles are read without collecting the weights. Whole months come from cached sketches,
+   * so this stays fast for multi-year reports over every farm.
+   *
+   * @param query the report to summarize
+   * @return a sketch of the report's weights, which must not be changed
+   */
+  public QuantileSketch quantiles(ReportQuery query) {
+    if (quantiles != null) {
+      QuantileSketch cached = quantiles.get(query);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    long version = farmTable.getVersion();
+    QuantileSketch sketch = farmTable.quantiles(query.isSingleFarm() ? query.getFarmId() : null,
+        query.getFromDay(), query.getToDay());
+    if (quantiles != null) {
+      quantiles.put(query, version, sketch);
+    }
+    return sketch;
+  }
+
+  /**
+   * Returns the farms the given query covers
+   */
+  private Collection<Farm> farmsFor(ReportQuery query) {
+    if (!query.isSingleFarm()) {
+      return farmTable.getFarms().values();
+    }
+    Farm farm = farmTable.getFarm(query.getFarmId());
+    return farm == null ? Collections.<Farm>emptyList() : Collections.singletonList(farm);
+  }
+
+  /**
+   * Returns the position of the first entry on or after the given epoch day
+   */
+  static int lowerBound(EntryStore store, int epochDay) {
+    if (epochDay == Integer.MIN_VALUE) {
+      return 0;
+    }
+    if (epochDay == Integer.MAX_VALUE) {
+      return store.size();
+    }
+    int pos = store.find(epochDay);
+    return pos >= 0 ? pos : -pos - 1;
+  }
+}
@@ -0,0 +1,264 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Defines a compact binary file holding every entry of a FarmTable, so a session can be restored
+ * without parsing csv files again. All values are big-endian. The file is laid out as
+ *
+ * <pre>
+ * header      int magic, int version, long log sequence, int farm count, long row count
+ * dictionary  for each farm: int length, that many bytes of the UTF-8 farm id
+ * blocks      for each farm, in dictionary order: int n, n ascending epoch days, n weights
+ * trailer     long CRC32 of everything before it
+ * </pre>
+ *
+ * Snapshots are read through a memory-mapped FileChannel and each block is copied out of the
+ * mapping in bulk, so restoring does no parsing beyond the farm ids. The log sequence records which
+ * OperationLog segments the snapshot already includes.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class TableSnapshot {
+  /** "MWSN" */
+  private static final int MAGIC = 0x4D57534E;
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 28;
+  private static final int TRAILER_SIZE = 8;
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+  private TableSnapshot() {
+  }
+
+  /**
+   * Writes every entry of the given table to the given file
+   *
+   * @param table the table to save
+   * @param file  the file to write the snapshot to
+   * @throws IOException if the snapshot could not be written
+   */
+  public static void save(FarmTable table, File file) throws IOException {
+    save(table, file, 0);
+  }
+
+  /**
+   * Writes every entry of the given table to the given file, recording the last operation log
+   * segment the table includes. The snapshot is written to a temporary file next to the target and
+   * moved over it once complete, so a failed save leaves the previous snapshot intact.
+   *
+   * @param table    the table to save
+   * @param file     the file to write the snapshot to
+   * @param sequence the last log segment included in the table, or 0 for none
+   * @throws IOException if the snapshot could not be written
+   */
+  public static void save(FarmTable table, File file, long sequence) throws IOException {
+    List<String> ids = new ArrayList<>(table.getFarms().keySet());
+    Collections.sort(ids);
+    long rows = 0;
+    for (String id : ids) {
+      rows += table.getFarm(id).getEntryCount();
+    }
+    Path target = file.toPath().toAbsolutePath();
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      Writer out = new Writer(channel);
+      out.putInt(MAGIC);
+      out.putInt(VERSION);
+      out.putLong(sequence);
+      out.putInt(ids.size());
+      out.putLong(rows);
+      for (String id : ids) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+      }
+      for (String id : ids) {
+        Farm farm = table.getFarm(id);
+        long stamp = farm.readLock();
+        try {
+          EntryStore store = farm.getStore();
+          int n = store.size();
+          out.putInt(n);
+          for (int i = 0; i < n; i++) {
+            out.putInt(store.dayAt(i));
+          }
+          for (int i = 0; i < n; i++) {
+            out.putInt(store.weightAt(i));
+          }
+        } finally {
+          farm.unlockRead(stamp);
+        }
+      }
+      out.finish();
+      channel.force(true);
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Adds every entry of the given snapshot to the given table. As with a csv load, an entry for a
+   * date the table already has replaces that date's weight.
+   *
+   * @param file  the snapshot to read
+   * @param table the table to add the entries to
+   * @return the last operation log segment the snapshot includes, or 0 for none
+   * @throws IOException if the file could not be read or is not a valid snapshot
+   */
+  public static long load(File file, FarmTable table) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to map");
+      }
+      if (size < HEADER_SIZE + TRAILER_SIZE) {
+        throw new IOException(file + " is not a milk weights snapshot");
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      verify(file, mapped, (int) size);
+      try {
+        return read(file, mapped, table);
+      } catch (BufferUnderflowException | IllegalArgumentException ex) {
+        throw new IOException(file + " is not a valid snapshot", ex);
+      }
+    }
+  }
+
+  /**
+   * Checks the header and the checksum of a mapped snapshot
+   */
+  private static void verify(File file, ByteBuffer mapped, int size) throws IOException {
+    if (mapped.getInt(0) != MAGIC) {
+      throw new IOException(file + " is not a milk weights snapshot");
+    }
+    int version = mapped.getInt(4);
+    if (version != VERSION) {
+      throw new IOException(file + " has unsupported snapshot version " + version);
+    }
+    ByteBuffer body = mapped.duplicate();
+    body.position(0).limit(size - TRAILER_SIZE);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    if (crc.getValue() != mapped.getLong(size - TRAILER_SIZE)) {
+      throw new IOException(file + " is corrupt: checksum mismatch");
+    }
+  }
+
+  private static long read(File file, ByteBuffer in, FarmTable table) throws IOException {
+    in.position(8);
+    long sequence = in.getLong();
+    int farmCount = in.getInt();
+    in.getLong();
+    String[] ids = new String[farmCount];
+    for (int f = 0; f < farmCount; f++) {
+      byte[] bytes = new byte[in.getInt()];
+      in.get(bytes);
+      ids[f] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    int[] days = new int[0];
+    int[] weights = new int[0];
+    // like a csv load, the rows are added without telling the farms' listener and the table's
+    // rollup and listeners are brought up to date once at the end
+    try {
+      for (int f = 0; f < farmCount; f++) {
+        int n = in.getInt();
+        if (n < 0) {
+          throw new IOException(file + " is not a valid snapshot");
+        }
+        if (n > days.length) {
+          days = new int[n];
+          weights = new int[n];
+        }
+        IntBuffer ints = in.asIntBuffer();
+        ints.get(days, 0, n);
+        ints.get(weights, 0, n);
+        in.position(in.position() + n * 8);
+
+        Farm farm = table.farmFor(ids[f]);
+        farm.reserve(n);
+        for (int i = 0; i < n; i++) {
+          farm.loadWeight(days[i], weights[i]);
+        }
+      }
+    } finally {
+      table.reloaded();
+    }
+    return sequence;
+  }
+
+  /**
+   * Buffers big-endian values for a FileChannel and keeps the checksum of everything written
+   */
+  private static class Writer {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void putInt(int value) throws IOException {
+      if (buffer.remaining() < 4) {
+        flush();
+      }
+      buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+      if (buffer.remaining() < 8) {
+        flush();
+      }
+      buffer.putLong(value);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        int n = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.put(bytes, offset, n);
+        offset += n;
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      crc.update(buffer.array(), 0, buffer.limit());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * Writes the checksum trailer and everything still buffered
+     */
+    private void finish() throws IOException {
+      flush();
+      buffer.putLong(crc.getValue());
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.util.StringConverter;
+
+/**
+ * Defines a line chart of a report's daily weights that never holds many more points than it is
+ * pixels wide. The report's DailySeries are built, and downsampled to the chart's width over the
+ * days in view, on a background thread; only the picked points are handed to the chart on the
+ * JavaFX thread. Scrolling zooms in or out around the mouse, dragging pans, and a double click
+ * shows every day again, each time downsampling the days now in view, so zooming in brings back
+ * the detail the wider view left out.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class TimeSeriesChart extends LineChart<Number, Number> {
+  /** the number of farms that get a line of their own besides the every-farm average */
+  public static final int CHART_FARMS = 3;
+
+  private static final double ZOOM_STEP = 1.25;
+  private static final int MIN_DAYS_IN_VIEW = 7;
+  private static final int TICKS = 6;
+
+  // one thread shared by every chart; a chart drops its queued work when it submits more, so a
+  // chart being zoomed quickly never waits behind more than the downsampling already running
+  private static final ExecutorService DOWNSAMPLER = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "chart-downsampler");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final NumberAxis dayAxis;
+  private List<DailySeries> series = Collections.emptyList();
+  private int firstDay;
+  private int lastDay;
+  private Future<?> pending;
+  private double dragDay = Double.NaN;
+
+  /**
+   * Initializes an empty chart
+   */
+  public TimeSeriesChart() {
+    super(new NumberAxis(), new NumberAxis());
+    dayAxis = (NumberAxis) getXAxis();
+    dayAxis.setLabel("Date");
+    dayAxis.setAutoRanging(false);
+    dayAxis.setForceZeroInRange(false);
+    dayAxis.setTickLabelFormatter(new StringConverter<Number>() {
+      @Override
+      public String toString(Number epochDay) {
+        return LocalDate.ofEpochDay(Math.round(epochDay.doubleValue())).toString();
+      }
+
+      @Override
+      public Number fromString(String date) {
+        return LocalDate.parse(date).toEpochDay();
+      }
+    });
+    getYAxis().setLabel("Weight");
+    setCreateSymbols(false);
+    setAnimated(false);
+
+    setOnScroll(e -> {
+      if (series.isEmpty() || e.getDeltaY() == 0) {
+        return;
+      }
+      double center = dayAt(e.getSceneX(), e.getSceneY());
+      double scale = e.getDeltaY() > 0 ? 1 / ZOOM_STEP : ZOOM_STEP;
+      double lower = center - (center - dayAxis.getLowerBound()) * scale;
+      double upper = center + (dayAxis.getUpperBound() - center) * scale;
+      showDays(lower, upper);
+    });
+    setOnMousePressed(e -> dragDay = dayAt(e.getSceneX(), e.getSceneY()));
+    setOnMouseDragged(e -> {
+      if (series.isEmpty() || Double.isNaN(dragDay)) {
+        return;
+      }
+      double shift = dragDay - dayAt(e.getSceneX(), e.getSceneY());
+      showDays(dayAxis.getLowerBound() + shift, dayAxis.getUpperBound() + shift);
+    });
+    setOnMouseClicked(e -> {
+      if (e.getClickCount() == 2) {
+        showDays(firstDay, lastDay);
+      }
+    });
+    dayAxis.widthProperty().addListener((observable, oldWidth, newWidth) -> downsample());
+  }
+
+  /**
+   * Builds the daily series of the given report in the background and shows every day of them
+   * once they are built, replacing whatever the chart showed
+   *
+   * @param result the report to chart
+   */
+  public void show(ReportResult result) {
+    series = Collections.emptyList();
+    getData().clear();
+    submit(() -> {
+      List<DailySeries> built = DailySeries.of(result, CHART_FARMS);
+      Platform.runLater(() -> {
+        series = built;
+        firstDay = Integer.MAX_VALUE;
+        lastDay = Integer.MIN_VALUE;
+        for (DailySeries s : built) {
+          if (s.size() > 0) {
+            firstDay = Math.min(firstDay, s.getFirstDay());
+            lastDay = Math.max(lastDay, s.getLastDay());
+          }
+        }
+        if (firstDay <= lastDay) {
+          showDays(firstDay, lastDay);
+        }
+      });
+    });
+  }
+
+  /**
+   * Shows the days between the given bounds, kept within the series' days, and downsamples the
+   * series for them
+   */
+  private void showDays(double lower, double upper) {
+    double span = Math.min(Math.max(upper - lower, MIN_DAYS_IN_VIEW),
+        Math.max(lastDay - firstDay, 1));
+    lower = Math.max(firstDay, Math.min(lower, lastDay - span));
+    upper = lower + span;
+    dayAxis.setLowerBound(lower);
+    dayAxis.setUpperBound(upper);
+    dayAxis.setTickUnit(Math.max(1, span / TICKS));
+    downsample();
+  }
+
+  /**
+   * Downsamples every series to about the axis' width in pixels over the days in view, in the
+   * background, then replaces the chart's lines with the picked points
+   */
+  private void downsample() {
+    if (series.isEmpty()) {
+      return;
+    }
+    List<DailySeries> all = series;
+    int from = (int) Math.floor(dayAxis.getLowerBound());
+    int to = (int) Math.ceil(dayAxis.getUpperBound());
+    int points = Math.max((int) dayAxis.getWidth(), 2);
+    submit(() -> {
+      List<XYChart.Series<Number, Number>> lines = new ArrayList<>(all.size());
+      for (DailySeries s : all) {
+        DailySeries shown = s.downsample(from, to, points);
+        ObservableList<XYChart.Data<Number, Number>> data =
+            FXCollections.observableArrayList(new ArrayList<>(shown.size()));
+        for (int i = 0; i < shown.size(); i++) {
+          data.add(new XYChart.Data<>(shown.getDay(i), shown.getWeight(i)));
+        }
+        lines.add(new XYChart.Series<>(s.getName(), data));
+      }
+      Platform.runLater(() -> {
+        // a newer report may have replaced the series while these were picked
+        if (series == all) {
+          getData().setAll(lines);
+        }
+      });
+    });
+  }
+
+  /**
+   * Runs the given work on the downsampling thread, dropping any work of this chart that has not
+   * started yet
+   */
+  private void submit(Runnable work) {
+    if (pending != null) {
+      pending.cancel(false);
+    }
+    pending = DOWNSAMPLER.submit(work);
+  }
+
+  /**
+   * Returns the day under the given point of the scene
+   */
+  private double dayAt(double sceneX, double sceneY) {
+    return dayAxis.getValueForDisplay(dayAxis.sceneToLocal(sceneX, sceneY).getX()).doubleValue();
+  }
+}
@@ -0,0 +1,298 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Defines the descriptive statistics of a set of milk weights: count, total, minimum, maximum,
+ * mean, variance, median and mode. Everything except the median is computed in a single pass, the
+ * mean and variance with Welford's method and the mode with a primitive hash count. The median is
+ * found by a linear-time selection over a copy of the weights, so the source is never reordered.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class WeightStatistics {
+  private final int count;
+  private final long total;
+  private final int min;
+  private final int max;
+  private final double mean;
+  private final double variance;
+  private final double median;
+  private final int mode;
+
+  private WeightStatistics(int count, long total, int min, int max, double mean, double variance,
+      double median, int mode) {
+    this.count = count;
+    this.total = total;
+    this.min = min;
+    this.max = max;
+    this.mean = mean;
+    this.variance = variance;
+    this.median = median;
+    this.mode = mode;
+  }
+
+  /**
+   * Computes the statistics of the weights of the given entries without changing the entries
+   *
+   * @param entries the entries to compute the statistics of
+   * @return the statistics of the entries' weights
+   */
+  public static WeightStatistics of(List<Entry> entries) {
+    int[] weights = new int[entries.size()];
+    int n = 0;
+    for (Entry e : entries) {
+      weights[n++] = e.getWeight();
+    }
+    return ofOwned(weights, n);
+  }
+
+  /**
+   * Computes the statistics of the first n weights in the given array without changing the array
+   *
+   * @param weights the array holding the weights
+   * @param n       the number of weights to use
+   * @return the statistics of the weights
+   */
+  public static WeightStatistics of(int[] weights, int n) {
+    return ofOwned(Arrays.copyOf(weights, n), n);
+  }
+
+  /**
+   * Computes the statistics of the first n weights in an array that may be reordered
+   */
+  static WeightStatistics ofOwned(int[] weights, int n) {
+    if (n == 0) {
+      return new WeightStatistics(0, 0, 0, 0, 0, 0, 0, 0);
+    }
+    long total = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    double mean = 0;
+    double m2 = 0;
+    IntCounter counter = new IntCounter();
+    for (int i = 0; i < n; i++) {
+      int w = weights[i];
+      total += w;
+      min = Math.min(min, w);
+      max = Math.max(max, w);
+      double delta = w - mean;
+      mean += delta / (i + 1);
+      m2 += delta * (w - mean);
+      counter.increment(w);
+    }
+    double variance = n > 1 ? m2 / (n - 1) : 0;
+    return new WeightStatistics(n, total, min, max, mean, variance, median(weights, n),
+        counter.mode());
+  }
+
+  /**
+   * Returns the median of the first n weights, reordering them
+   */
+  private static double median(int[] a, int n) {
+    int k = (n - 1) / 2;
+    select(a, 0, n - 1, k);
+    if (n % 2 == 1) {
+      return a[k];
+    }
+    // after selection everything past k is at least a[k], so the upper middle is their minimum
+    int upper = Integer.MAX_VALUE;
+    for (int i = k + 1; i < n; i++) {
+      upper = Math.min(upper, a[i]);
+    }
+    return ((long) a[k] + upper) / 2.0;
+  }
+
+  /**
+   * Moves the k-th smallest value of a[lo..hi] to position k, with smaller values before it and
+   * larger values after it
+   */
+  private static void select(int[] a, int lo, int hi, int k) {
+    while (hi > lo) {
+      int mid = (lo + hi) >>> 1;
+      // median of three pivot keeps sorted and reverse sorted input linear
+      if (a[mid] < a[lo]) {
+        swap(a, mid, lo);
+      }
+      if (a[hi] < a[lo]) {
+        swap(a, hi, lo);
+      }
+      if (a[hi] < a[mid]) {
+        swap(a, hi, mid);
+      }
+      int pivot = a[mid];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (a[i] < pivot) {
+          i++;
+        }
+        while (a[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(a, i++, j--);
+        }
+      }
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static void swap(int[] a, int i, int j) {
+    int t = a[i];
+    a[i] = a[j];
+    a[j] = t;
+  }
+
+  /**
+   * Returns the number of weights
+   *
+   * @return the number of weights
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the sum of the weights
+   *
+   * @return the sum of the weights
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the smallest weight, or 0 if there are no weights
+   *
+   * @return the smallest weight
+   */
+  public int getMin() {
+    return min;
+  }
+
+  /**
+   * Returns the largest weight, or 0 if there are no weights
+   *
+   * @return the largest weight
+   */
+  public int getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the mean of the weights, or 0 if there are no weights
+   *
+   * @return the mean of the weights
+   */
+  public double getMean() {
+    return mean;
+  }
+
+  /**
+   * Returns the sample variance of the weights, or 0 if there are fewer than two weights
+   *
+   * @return the sample variance of the weights
+   */
+  public double getVariance() {
+    return variance;
+  }
+
+  /**
+   * Returns the sample standard deviation of the weights
+   *
+   * @return the sample standard deviation of the weights
+   */
+  public double getStandardDeviation() {
+    return Math.sqrt(variance);
+  }
+
+  /**
+   * Returns the median of the weights, the mean of the two middle weights when there is an even
+   * number of them, or 0 if there are no weights
+   *
+   * @return the median of the weights
+   */
+  public double getMedian() {
+    return median;
+  }
+
+  /**
+   * Returns the most common weight, the smallest one if several are equally common, or 0 if there
+   * are no weights
+   *
+   * @return the most common weight
+   */
+  public int getMode() {
+    return mode;
+  }
+
+  /**
+   * Counts occurrences of int values in an open addressing table that starts small and doubles
+   * whenever it is half full, so it grows with the distinct weights rather than the weights
+   */
+  private static class IntCounter {
+    private int[] keys = new int[1 << 10];
+    private int[] counts = new int[1 << 10];
+    private boolean[] used = new boolean[1 << 10];
+    private int size;
+
+    private void increment(int key) {
+      int slot = indexOf(keys, used, key);
+      counts[slot]++;
+      if (!used[slot]) {
+        used[slot] = true;
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+          grow();
+        }
+      }
+    }
+
+    private static int indexOf(int[] keys, boolean[] used, int key) {
+      int h = key * 0x9E3779B9;
+      int mask = keys.length - 1;
+      int slot = (h ^ (h >>> 16)) & mask;
+      while (used[slot] && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys;
+      int[] oldCounts = counts;
+      boolean[] oldUsed = used;
+      keys = new int[oldKeys.length * 2];
+      counts = new int[keys.length];
+      used = new boolean[keys.length];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldUsed[i]) {
+          int slot = indexOf(keys, used, oldKeys[i]);
+          used[slot] = true;
+          keys[slot] = oldKeys[i];
+          counts[slot] = oldCounts[i];
+        }
+      }
+    }
+
+    private int mode() {
+      int best = 0;
+      int bestCount = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (used[i] && (counts[i] > bestCount || (counts[i] == bestCount && keys[i] < best))) {
+          best = keys[i];
+          bestCount = counts[i];
+        }
+      }
+      return best;
+    }
+  }
+}
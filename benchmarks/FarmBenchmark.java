@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import application.Farm;
+import application.FarmTable;
+
+/**
+ * Measures the cost of single-farm operations: Farm.addEntry overwriting an existing date,
+ * inserting a missing date, and Farm.getMonthTotal, on farms holding years of daily entries.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FarmBenchmark {
+  @Param({"365", "3650", "36500"})
+  public int days;
+
+  @Param({"OBJECTS", "COLUMNAR"})
+  public FarmTable.Storage storage;
+
+  private Farm farm;
+  private LocalDate[] dates;
+  private SplittableRandom random;
+
+  @Setup(Level.Trial)
+  public void fillFarm() {
+    farm = new Farm(SyntheticData.farmId(0), storage);
+    dates = new LocalDate[days];
+    for (int i = 0; i < days; i++) {
+      dates[i] = SyntheticData.START.plusDays(i);
+      // leave every other day empty so that inserts land in the middle of the farm
+      if (i % 2 == 0) {
+        farm.addEntry(dates[i], 5000);
+      }
+    }
+    random = new SplittableRandom(42);
+  }
+
+  @Benchmark
+  public void upsertExistingDate() {
+    farm.addEntry(dates[random.nextInt(days / 2) * 2], random.nextInt(10000));
+  }
+
+  @Benchmark
+  public boolean insertAndRemoveDate() {
+    LocalDate date = dates[random.nextInt(days / 2) * 2 + 1];
+    farm.addEntry(date, random.nextInt(10000));
+    return farm.removeEntry(date);
+  }
+
+  @Benchmark
+  public int getMonthTotal() {
+    LocalDate date = dates[random.nextInt(days)];
+    return farm.getMonthTotal(date.getMonthValue(), date.getYear());
+  }
+}
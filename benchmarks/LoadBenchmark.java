@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import application.FarmTable;
+
+/**
+ * Measures FarmTable.loadData on generated csv files of 10 thousand, 1 million and 10 million
+ * rows, for each parser, each load mode and each kind of storage.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LoadBenchmark {
+  @Param({"10000", "1000000", "10000000"})
+  public int rows;
+
+  @Param({"true", "false"})
+  public boolean byteParser;
+
+  @Param({"false", "true"})
+  public boolean parallel;
+
+  @Param({"OBJECTS", "COLUMNAR"})
+  public FarmTable.Storage storage;
+
+  private File csv;
+
+  @Setup(Level.Trial)
+  public void writeFile() throws IOException {
+    csv = File.createTempFile("milk-" + rows + "-", ".csv");
+    csv.deleteOnExit();
+    new SyntheticData(500, 42).writeCsv(rows, csv);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() {
+    csv.delete();
+  }
+
+  @Benchmark
+  public FarmTable loadData() throws Exception {
+    FarmTable table = new FarmTable(storage);
+    table.setByteParser(byteParser);
+    table.loadData(csv, parallel);
+    return table;
+  }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import application.FarmTable;
+import application.ReportQuery;
+import application.ReportResult;
+import application.ReportService;
+import application.WeightStatistics;
+
+/**
+ * Measures each report type, from selecting the rows to computing their statistics, over a table
+ * of generated data, and the statistics computation alone over a year of weights.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ReportBenchmark {
+  @Param({"1000000"})
+  public int rows;
+
+  @Param({"OBJECTS", "COLUMNAR"})
+  public FarmTable.Storage storage;
+
+  private ReportService service;
+  private ReportQuery farm;
+  private ReportQuery month;
+  private ReportQuery year;
+  private ReportQuery range;
+  private int[] yearWeights;
+
+  @Setup(Level.Trial)
+  public void fillTable() {
+    FarmTable table = new FarmTable(storage);
+    new SyntheticData(500, 42).fill(rows, table);
+    service = new ReportService(table);
+    LocalDate start = SyntheticData.START;
+    farm = ReportQuery.farm(SyntheticData.farmId(7));
+    month = ReportQuery.month(start.getYear() + 1, 3);
+    year = ReportQuery.year(start.getYear() + 1);
+    range = ReportQuery.range(start.plusDays(100), start.plusDays(1000));
+    ReportResult yearResult = service.run(year);
+    yearWeights = new int[yearResult.getRows().size()];
+    for (int i = 0; i < yearWeights.length; i++) {
+      yearWeights[i] = yearResult.getRows().get(i).getWeight();
+    }
+  }
+
+  @Benchmark
+  public ReportResult farmReport() {
+    return service.run(farm);
+  }
+
+  @Benchmark
+  public ReportResult monthReport() {
+    return service.run(month);
+  }
+
+  @Benchmark
+  public ReportResult yearReport() {
+    return service.run(year);
+  }
+
+  @Benchmark
+  public ReportResult rangeReport() {
+    return service.run(range);
+  }
+
+  @Benchmark
+  public WeightStatistics yearStatisticsOnly() {
+    return WeightStatistics.of(yearWeights, yearWeights.length);
+  }
+}
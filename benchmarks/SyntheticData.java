@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import application.FarmTable;
+
+/**
+ * Defines a deterministic generator of milk weight data for the benchmarks. The same seed and
+ * size always produce the same rows: farms report once per day in date order, a small share of
+ * rows repeat an earlier date to exercise the last-write-wins path, and weights are drawn from a
+ * fixed range.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public final class SyntheticData {
+  /** the first date of every generated data set */
+  public static final LocalDate START = LocalDate.of(2015, 1, 1);
+
+  private final int farms;
+  private final long seed;
+
+  /**
+   * Initializes a generator for the given number of farms
+   *
+   * @param farms the number of distinct farm ids to generate
+   * @param seed  the seed for the weights and repeated dates
+   */
+  public SyntheticData(int farms, long seed) {
+    this.farms = farms;
+    this.seed = seed;
+  }
+
+  /**
+   * Returns the farm id used for the given farm number
+   *
+   * @param farm the farm number, from 0
+   * @return the farm id
+   */
+  public static String farmId(int farm) {
+    return "Farm " + farm;
+  }
+
+  /**
+   * Writes the given number of rows, plus a title line, to a csv file
+   *
+   * @param rows the number of rows to write
+   * @param file the file to write
+   * @throws IOException if the file could not be written
+   */
+  public void writeCsv(int rows, File file) throws IOException {
+    SplittableRandom random = new SplittableRandom(seed);
+    try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+      out.write("date,farm_id,weight\n");
+      for (int i = 0; i < rows; i++) {
+        LocalDate date = dateOf(i, random);
+        out.write(date.getYear() + "-" + date.getMonthValue() + "-" + date.getDayOfMonth());
+        out.write(',');
+        out.write(farmId(i % farms));
+        out.write(',');
+        out.write(Integer.toString(weight(random)));
+        out.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Adds the given number of rows to a farm table without going through a file
+   *
+   * @param rows  the number of rows to add
+   * @param table the table to add the rows to
+   */
+  public void fill(int rows, FarmTable table) {
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int i = 0; i < rows; i++) {
+      table.addEntry(dateOf(i, random), farmId(i % farms), weight(random));
+    }
+  }
+
+  /**
+   * Returns the date of the given row: one day per round of farms, with one row in fifty moved
+   * back to an earlier day
+   */
+  private LocalDate dateOf(int row, SplittableRandom random) {
+    int day = row / farms;
+    if (day > 0 && random.nextInt(50) == 0) {
+      day = random.nextInt(day);
+    }
+    return START.plusDays(day);
+  }
+
+  private static int weight(SplittableRandom random) {
+    return 1000 + random.nextInt(9000);
+  }
+}
@@ -0,0 +1,60 @@
+package tests;
+
+/**
+ * Defines the counting assertions shared by the behaviour checks in this folder. Each check is a
+ * plain main class run by make test, so the checks need nothing beyond the JDK; a failed check is
+ * printed and the run continues, and finish exits with status 1 if any check failed.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public final class Checks {
+  private final String name;
+  private int passed;
+  private int failed;
+
+  /**
+   * Initializes the checks of one test class
+   *
+   * @param name the name printed with the results
+   */
+  public Checks(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Records a check that the given condition holds
+   *
+   * @param condition the condition that should hold
+   * @param what      a description printed if it does not
+   */
+  public void check(boolean condition, String what) {
+    if (condition) {
+      passed++;
+    } else {
+      failed++;
+      System.out.println("FAILED " + name + ": " + what);
+    }
+  }
+
+  /**
+   * Records a check that two values are equal
+   *
+   * @param expected the expected value
+   * @param actual   the actual value
+   * @param what     a description printed if they differ
+   */
+  public void equal(Object expected, Object actual, String what) {
+    boolean same = expected == null ? actual == null : expected.equals(actual);
+    check(same, what + ": expected <" + expected + "> but was <" + actual + ">");
+  }
+
+  /**
+   * Prints the number of checks that passed and failed and exits with status 1 if any failed
+   */
+  public void finish() {
+    System.out.println(name + ": " + passed + " passed, " + failed + " failed");
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+}
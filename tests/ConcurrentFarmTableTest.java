@@ -0,0 +1,454 @@
+package tests;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import application.Entry;
+import application.EpochDays;
+import application.Farm;
+import application.FarmTable;
+import application.MonthlyRollup;
+import application.RangeTotals;
+import application.ReportQuery;
+import application.ReportResult;
+import application.ReportService;
+import application.WeightStatistics;
+
+/**
+ * Hammers a concurrent FarmTable with adds, edits and removes from several threads while other
+ * threads run reports against it, then checks that the table ends up exactly as a single-threaded
+ * replay of the same changes leaves an ordinary table: the same entries, counts, totals, monthly
+ * rollup, month totals and reports. Every thread changes every farm and month, so the farms' locks
+ * and rollups are contended, but each thread owns its own days, so the final table does not
+ * depend on how the threads interleave.
+ *
+ * A second case runs many report readers against a larger table, first with no writer, where the
+ * readers must overlap and never wait for a farm's lock even while they fill in stale running
+ * totals and month sketches, and then with a writer appending to one farm, where every range the
+ * readers take must be one consistent state of that farm.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ConcurrentFarmTableTest {
+  private static final int WRITERS = 6;
+  private static final int READERS = 2;
+  private static final int OPERATIONS = 30_000;
+  private static final int FARMS = 10;
+  private static final int DAYS = 730;
+  private static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 1);
+  private static final long SEED = 20200428L;
+  private static final int RANGE_READERS = 8;
+  private static final int RANGE_FARMS = 4;
+  private static final int RANGE_DAYS = 5_000;
+  private static final int ROUNDS = 3;
+  private static final int APPENDS = 5_000;
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   * @throws Exception if a thread could not be run
+   */
+  public static void main(String[] args) throws Exception {
+    Checks checks = new Checks("ConcurrentFarmTableTest");
+    for (FarmTable.Storage storage : FarmTable.Storage.values()) {
+      FarmTable concurrent = new FarmTable(storage, true);
+      Queue<String> problems = hammer(concurrent);
+      for (String problem : problems) {
+        checks.check(false, storage + " " + problem);
+      }
+
+      FarmTable replayed = new FarmTable(storage);
+      for (int t = 0; t < WRITERS; t++) {
+        Random random = new Random(SEED + t);
+        for (int i = 0; i < OPERATIONS; i++) {
+          change(replayed, t, random);
+        }
+      }
+      compare(checks, storage.toString(), replayed, concurrent);
+      overlap(checks, storage);
+      move(checks, storage);
+    }
+    checks.finish();
+  }
+
+  /**
+   * Runs every writer's changes against the given table at once, with readers running reports
+   * until the writers finish, and returns what the readers found wrong
+   */
+  private static Queue<String> hammer(FarmTable table) throws InterruptedException {
+    Queue<String> problems = new ConcurrentLinkedQueue<>();
+    ReportService service = new ReportService(table);
+    ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    List<Future<?>> writers = new ArrayList<>();
+    List<Future<?>> readers = new ArrayList<>();
+    for (int t = 0; t < WRITERS; t++) {
+      int thread = t;
+      writers.add(pool.submit(() -> {
+        Random random = new Random(SEED + thread);
+        start.await();
+        for (int i = 0; i < OPERATIONS; i++) {
+          change(table, thread, random);
+        }
+        return null;
+      }));
+    }
+    for (int t = 0; t < READERS; t++) {
+      Random random = new Random(-SEED - t);
+      readers.add(pool.submit(() -> {
+        start.await();
+        while (writing.get()) {
+          ReportQuery query = query(random);
+          check(problems, query, service.run(query));
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    try {
+      for (Future<?> writer : writers) {
+        await(problems, writer);
+      }
+    } finally {
+      writing.set(false);
+    }
+    for (Future<?> reader : readers) {
+      await(problems, reader);
+    }
+    pool.shutdown();
+    return problems;
+  }
+
+  /**
+   * Runs range, quantile and rollup readers against a table with no writer, checking that they
+   * overlap, never wait for a farm's lock and read the right totals, and then against a writer
+   * that appends to one farm and rewrites weights in its middle
+   */
+  private static void overlap(Checks checks, FarmTable.Storage storage)
+      throws InterruptedException {
+    String name = storage + " readers";
+    FarmTable table = new FarmTable(storage, true);
+    Random random = new Random(SEED);
+    for (int f = 0; f < RANGE_FARMS; f++) {
+      for (int d = 0; d < RANGE_DAYS; d++) {
+        table.addEntry(FIRST_DAY.plusDays(d), "Farm " + f, random.nextInt(10_000));
+      }
+    }
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    for (int round = 0; round < ROUNDS; round++) {
+      // changes in the middle leave the running totals and month sketches stale for the readers
+      for (int i = 0; i < 50; i++) {
+        table.getFarm("Farm " + random.nextInt(RANGE_FARMS))
+            .editEntry(FIRST_DAY.plusDays(random.nextInt(RANGE_DAYS)), random.nextInt(10_000));
+      }
+      LocalDate[] starts = new LocalDate[20];
+      LocalDate[] ends = new LocalDate[starts.length];
+      String[] expected = new String[starts.length];
+      for (int q = 0; q < starts.length; q++) {
+        starts[q] = FIRST_DAY.plusDays(random.nextInt(RANGE_DAYS));
+        ends[q] = starts[q].plusDays(random.nextInt(RANGE_DAYS / 2));
+        expected[q] = sum(table, starts[q], ends[q]);
+      }
+      long waits = table.getLockWaits();
+      Queue<String> problems = new ConcurrentLinkedQueue<>();
+      ExecutorService pool = Executors.newFixedThreadPool(RANGE_READERS);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> readers = new ArrayList<>();
+      for (int t = 0; t < RANGE_READERS; t++) {
+        Random own = new Random(SEED * 31 + round * RANGE_READERS + t);
+        readers.add(pool.submit(() -> {
+          start.await();
+          for (int i = 0; i < 100; i++) {
+            int q = own.nextInt(starts.length);
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+              String actual = describe(table.getRangeTotals(starts[q], ends[q]));
+              if (!actual.equals(expected[q])) {
+                problems.add(starts[q] + " to " + ends[q] + " read " + actual + " but holds "
+                    + expected[q]);
+              }
+              table.getQuantiles(starts[q], ends[q]).getQuantile(0.5);
+              table.getRollup().getMin(EpochDays.monthIndex((int) starts[q].toEpochDay()));
+            } finally {
+              inFlight.decrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> reader : readers) {
+        await(problems, reader);
+      }
+      pool.shutdown();
+      for (String problem : problems) {
+        checks.check(false, name + " round " + round + " " + problem);
+      }
+      checks.equal(waits, table.getLockWaits(), name + " round " + round + " lock waits");
+    }
+    checks.check(maxInFlight.get() > 1,
+        name + " overlap, at most " + maxInFlight.get() + " at once");
+
+    // a writer appends weights of 1 to one farm, so every consistent range has count == total
+    Farm appended = table.getFarm("Farm 0");
+    LocalDate whole = FIRST_DAY.plusDays(RANGE_DAYS + APPENDS);
+    for (int d = 0; d < RANGE_DAYS; d++) {
+      appended.editEntry(FIRST_DAY.plusDays(d), 1);
+    }
+    Queue<String> problems = new ConcurrentLinkedQueue<>();
+    ExecutorService pool = Executors.newFixedThreadPool(RANGE_READERS + 1);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicInteger partWay = new AtomicInteger();
+    Future<?> writer = pool.submit(() -> {
+      Random own = new Random(-SEED);
+      start.await();
+      try {
+        for (int d = RANGE_DAYS; d < RANGE_DAYS + APPENDS; d++) {
+          appended.addEntry(FIRST_DAY.plusDays(d), 1);
+          if (d % 10 == 0) {
+            appended.editEntry(FIRST_DAY.plusDays(own.nextInt(d)), 1);
+          }
+          if (d % 100 == 0) {
+            Thread.yield();
+          }
+        }
+      } finally {
+        writing.set(false);
+      }
+      return null;
+    });
+    List<Future<?>> readers = new ArrayList<>();
+    for (int t = 0; t < RANGE_READERS; t++) {
+      readers.add(pool.submit(() -> {
+        start.await();
+        long last = 0;
+        while (writing.get()) {
+          RangeTotals totals = appended.getRangeTotals(FIRST_DAY, whole);
+          if (totals.getCount() != totals.getTotal() || totals.getCount() < last) {
+            problems.add("read " + describe(totals) + " after " + last + " entries");
+            return null;
+          }
+          last = totals.getCount();
+          if (last > RANGE_DAYS && last < RANGE_DAYS + APPENDS) {
+            partWay.incrementAndGet();
+          }
+          // threads that never pause can keep the others from the lock on a single core
+          Thread.yield();
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    await(problems, writer);
+    for (Future<?> reader : readers) {
+      await(problems, reader);
+    }
+    pool.shutdown();
+    for (String problem : problems) {
+      checks.check(false, name + " with a writer " + problem);
+    }
+    checks.equal(RANGE_DAYS + APPENDS, appended.getEntryCount(), name + " entries appended");
+    checks.check(partWay.get() > 0, name + " read part way through the appends");
+  }
+
+  /**
+   * Checks that moving an entry to another farm leaves the Entry a reader already holds as it
+   * was, and that moving an entry that is no longer in the table does nothing
+   */
+  private static void move(Checks checks, FarmTable.Storage storage) {
+    String name = storage + " move";
+    FarmTable table = new FarmTable(storage, true);
+    table.addEntry(FIRST_DAY, "Farm A", 7);
+    Entry held = table.getFarm("Farm A").getEntry(FIRST_DAY);
+    checks.check(table.editEntry(held, "Farm B"), name + " moves the entry");
+    checks.equal("Farm A 7", held.getFarmId() + " " + held.getWeight(), name + " held entry");
+    checks.equal(null, table.getFarm("Farm A").getEntry(FIRST_DAY), name + " old farm");
+    Entry moved = table.getFarm("Farm B").getEntry(FIRST_DAY);
+    checks.equal("Farm B 7", moved.getFarmId() + " " + moved.getWeight(), name + " new farm");
+
+    checks.check(!table.editEntry(held, "Farm C"), name + " refuses an entry already moved");
+    checks.equal(null, table.getFarm("Farm C"), name + " adds no farm for an entry already moved");
+    checks.check(!table.editEntry(held, FIRST_DAY, "Farm C", 9),
+        name + " refuses to edit an entry already moved");
+    checks.equal(1L, table.getEntryCount(), name + " entry count");
+  }
+
+  /**
+   * Returns the totals of every farm from start to end, added up from the farms' entries
+   */
+  private static String sum(FarmTable table, LocalDate start, LocalDate end) {
+    long count = 0;
+    long total = 0;
+    for (Farm farm : table.getFarms().values()) {
+      for (Entry entry : farm.getEntries()) {
+        if (!entry.getDate().isBefore(start) && !entry.getDate().isAfter(end)) {
+          count++;
+          total += entry.getWeight();
+        }
+      }
+    }
+    return describe(new RangeTotals(count, total));
+  }
+
+  private static String describe(RangeTotals totals) {
+    return totals.getCount() + " entries totalling " + totals.getTotal();
+  }
+
+  private static void await(Queue<String> problems, Future<?> future)
+      throws InterruptedException {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      problems.add("thread failed: " + e.getCause());
+    }
+  }
+
+  /**
+   * Makes the next random change of the given writer: adds, edits or removes an entry of a random
+   * farm on one of the writer's own days
+   */
+  private static void change(FarmTable table, int thread, Random random) {
+    String farmId = "Farm " + random.nextInt(FARMS);
+    LocalDate date = FIRST_DAY.plusDays(random.nextInt(DAYS / WRITERS) * WRITERS + thread);
+    int weight = random.nextInt(10_000);
+    int kind = random.nextInt(10);
+    if (kind < 6) {
+      table.addEntry(date, farmId, weight);
+      return;
+    }
+    Farm farm = table.getFarm(farmId);
+    if (farm == null) {
+      return;
+    }
+    if (kind < 8) {
+      farm.editEntry(date, weight);
+    } else {
+      farm.removeEntry(date);
+    }
+  }
+
+  /**
+   * Returns a random farm, month, year or range report over the changed days
+   */
+  private static ReportQuery query(Random random) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return ReportQuery.farm("Farm " + random.nextInt(FARMS));
+      case 1:
+        return ReportQuery.month(2019 + random.nextInt(2), 1 + random.nextInt(12));
+      case 2:
+        return ReportQuery.year(2019 + random.nextInt(2));
+      default:
+        LocalDate start = FIRST_DAY.plusDays(random.nextInt(DAYS));
+        return ReportQuery.range(start, start.plusDays(random.nextInt(60)));
+    }
+  }
+
+  /**
+   * Checks that a report taken while the table changes agrees with itself: its statistics cover
+   * exactly its rows, and a farm's rows are in order of date
+   */
+  private static void check(Queue<String> problems, ReportQuery query, ReportResult result) {
+    List<Entry> rows = result.getRows();
+    WeightStatistics stats = result.getStatistics();
+    long total = 0;
+    for (Entry row : rows) {
+      total += row.getWeight();
+    }
+    if (stats.getCount() != rows.size() || stats.getTotal() != total) {
+      problems.add(query + " has " + rows.size() + " rows totalling " + total
+          + " but statistics of " + stats.getCount() + " totalling " + stats.getTotal());
+    }
+    if (query.isSingleFarm()) {
+      for (int i = 1; i < rows.size(); i++) {
+        if (!rows.get(i - 1).getDate().isBefore(rows.get(i).getDate())) {
+          problems.add(query + " has rows out of order at " + rows.get(i).getDate());
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that the concurrent table holds exactly what the replayed one does
+   */
+  private static void compare(Checks checks, String name, FarmTable expected, FarmTable actual) {
+    checks.equal(describe(expected), describe(actual), name + " entries");
+    checks.equal(expected.getEntryCount(), actual.getEntryCount(), name + " entry count");
+    MonthlyRollup expectedRollup = expected.getRollup();
+    MonthlyRollup actualRollup = actual.getRollup();
+    for (int year = 2018; year <= 2021; year++) {
+      checks.equal(expected.getYearTotal(year), actual.getYearTotal(year),
+          name + " total of " + year);
+      for (int month = 1; month <= 12; month++) {
+        String when = name + " " + year + "-" + month;
+        int index = EpochDays.monthIndex(year, month);
+        checks.equal(expected.getMonthTotal(month, year), actual.getMonthTotal(month, year),
+            when + " month total");
+        checks.equal(expectedRollup.getTotal(index), actualRollup.getTotal(index),
+            when + " rollup total");
+        checks.equal(expectedRollup.getCount(index), actualRollup.getCount(index),
+            when + " rollup count");
+        checks.equal(expectedRollup.getMin(index), actualRollup.getMin(index),
+            when + " rollup min");
+        checks.equal(expectedRollup.getMax(index), actualRollup.getMax(index),
+            when + " rollup max");
+      }
+    }
+    ReportService expectedReports = new ReportService(expected);
+    ReportService actualReports = new ReportService(actual);
+    List<ReportQuery> queries = new ArrayList<>();
+    for (int f = 0; f < FARMS; f++) {
+      queries.add(ReportQuery.farm("Farm " + f));
+    }
+    for (int year = 2019; year <= 2020; year++) {
+      queries.add(ReportQuery.year(year));
+      for (int month = 1; month <= 12; month++) {
+        queries.add(ReportQuery.month(year, month));
+      }
+    }
+    queries.add(ReportQuery.range(FIRST_DAY.plusDays(100), FIRST_DAY.plusDays(400)));
+    for (ReportQuery query : queries) {
+      checks.equal(statistics(expectedReports.run(query)), statistics(actualReports.run(query)),
+          name + " " + query);
+    }
+  }
+
+  private static String statistics(ReportResult result) {
+    WeightStatistics stats = result.getStatistics();
+    return stats.getCount() + " rows, total " + stats.getTotal() + ", min " + stats.getMin()
+        + ", max " + stats.getMax() + ", median " + stats.getMedian() + ", mode "
+        + stats.getMode();
+  }
+
+  /**
+   * Returns every farm of the given table, in order of farm id, with its entries as text
+   */
+  private static String describe(FarmTable table) {
+    StringBuilder text = new StringBuilder();
+    for (String farmId : new TreeSet<>(table.getFarms().keySet())) {
+      text.append(farmId).append(':');
+      for (Entry entry : table.getFarm(farmId).getEntries()) {
+        text.append(' ').append(entry.getDate()).append('=').append(entry.getWeight());
+      }
+      text.append('\n');
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,148 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import application.Entry;
+import application.FarmTable;
+
+/**
+ * Checks that loading with CsvLineParser accepts and rejects exactly the lines that the String
+ * based load (LocalDate.parse with yyyy-M-d and Integer.parseInt) does, and reads the same date,
+ * farm and weight from every line it accepts. Each line is written to its own file and loaded
+ * both ways, so the comparison covers line breaks and the title line too.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class CsvLineParserTest {
+  private static final String TITLE = "date,farm_id,weight\n";
+
+  private static final String[] LINES = {
+      // accepted lines
+      "2019-1-1,Farm 1,100",
+      "2019-01-01,Farm 1,100",
+      "2019-12-31,Farm 1,100",
+      "2019-001-0009,Farm 1,100",
+      "2020-2-29,Farm 1,100",
+      "2019-2-29,Farm 1,100",
+      "2019-2-31,Farm 1,100",
+      "2019-4-31,Farm 1,100",
+      "1900-2-29,Farm 1,100",
+      "2000-2-30,Farm 1,100",
+      "0001-1-1,Farm 1,100",
+      "9999-12-31,Farm 1,100",
+      "2019-1-1,Farm 1,0",
+      "2019-1-1,Farm 1,+7",
+      "2019-1-1,Farm 1,-7",
+      "2019-1-1,Farm 1,0007",
+      "2019-1-1,Farm 1,2147483647",
+      "2019-1-1,Farm 1,-2147483648",
+      "2019-1-1,,100",
+      "2019-1-1, Farm 1 ,100",
+      "2019-1-1,Farm 1,100,extra",
+      "2019-1-1,Farm 1,100,",
+      "2019-1-1,Farm 1,100\r",
+      // rejected lines
+      "",
+      "\r",
+      "2019-1-1",
+      "2019-1-1,Farm 1",
+      "2019-1-1,Farm 1,",
+      "2019-1-1,Farm 1, 100",
+      "2019-1-1,Farm 1,100 ",
+      "2019-1-1,Farm 1,1.5",
+      "2019-1-1,Farm 1,0x10",
+      "2019-1-1,Farm 1,+",
+      "2019-1-1,Farm 1,-",
+      "2019-1-1,Farm 1,2147483648",
+      "2019-1-1,Farm 1,-2147483649",
+      "2019-1-1,Farm 1,99999999999999999999",
+      "19-1-1,Farm 1,100",
+      "201-1-1,Farm 1,100",
+      "20190-1-1,Farm 1,100",
+      "+2019-1-1,Farm 1,100",
+      "0000-1-1,Farm 1,100",
+      "2019-0-1,Farm 1,100",
+      "2019-13-1,Farm 1,100",
+      "2019-1-0,Farm 1,100",
+      "2019-1-32,Farm 1,100",
+      "2019--1,Farm 1,100",
+      "2019-1-,Farm 1,100",
+      "2019-1,Farm 1,100",
+      "2019/1/1,Farm 1,100",
+      "2019-1-1 ,Farm 1,100",
+      " 2019-1-1,Farm 1,100",
+      "2019-a-1,Farm 1,100",
+      "abcd-1-1,Farm 1,100",
+  };
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   * @throws IOException if a temporary file could not be written
+   */
+  public static void main(String[] args) throws IOException {
+    Checks checks = new Checks("CsvLineParserTest");
+    File dir = Files.createTempDirectory("csv-parser-test").toFile();
+    try {
+      int accepted = 0;
+      for (int i = 0; i < LINES.length; i++) {
+        File csv = new File(dir, i + ".csv");
+        Files.write(csv.toPath(), (TITLE + LINES[i] + "\n").getBytes(StandardCharsets.UTF_8));
+        String strings = load(csv, false);
+        String bytes = load(csv, true);
+        checks.equal(strings, bytes, "line " + printable(LINES[i]));
+        if (!strings.startsWith("rejected")) {
+          accepted++;
+        }
+      }
+      // the lines are meant to cover both outcomes, so a change that rejects everything fails
+      checks.check(accepted > 20 && accepted < LINES.length - 20,
+          "both accepted and rejected lines are covered, accepted " + accepted);
+
+      // a whole file with mixed line breaks, no final line break and repeated dates
+      File mixed = new File(dir, "mixed.csv");
+      Files.write(mixed.toPath(), ("date,farm_id,weight\r\n2019-1-1,Farm 1,5\r\n"
+          + "2019-1-2,Farm 2,6\n2019-1-1,Farm 1,7\r\n2019-2-30,Farm 2,8")
+          .getBytes(StandardCharsets.UTF_8));
+      checks.equal(load(mixed, false), load(mixed, true), "file with mixed line breaks");
+      checks.check(load(mixed, true).contains("2019-02-28 Farm 2 8"), "day clamped in a file");
+    } finally {
+      for (File file : dir.listFiles()) {
+        file.delete();
+      }
+      dir.delete();
+    }
+    checks.finish();
+  }
+
+  /**
+   * Loads the given file into a new table with either parser and returns its entries as text, or
+   * "rejected" if the load failed
+   */
+  private static String load(File csv, boolean byteParser) {
+    FarmTable table = new FarmTable();
+    table.setByteParser(byteParser);
+    try {
+      table.loadData(csv);
+    } catch (Exception e) {
+      return "rejected";
+    }
+    List<String> rows = new ArrayList<>();
+    for (String farmId : table.getFarms().keySet()) {
+      for (Entry entry : table.getFarm(farmId).getEntries()) {
+        rows.add(entry.getDate() + " " + entry.getFarmId() + " " + entry.getWeight());
+      }
+    }
+    rows.sort(null);
+    return String.join("; ", rows);
+  }
+
+  private static String printable(String line) {
+    return '"' + line.replace("\r", "\\r") + '"';
+  }
+}
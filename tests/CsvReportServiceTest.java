@@ -0,0 +1,106 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import application.CsvReportService;
+import application.FarmTable;
+import application.ReportQuery;
+import application.ReportResult;
+import application.ReportService;
+import application.WeightStatistics;
+
+/**
+ * Checks that CsvReportService gives the same statistics as ReportService over a table loaded
+ * from the same files, including files that repeat a farm and date, and that a query covering
+ * more rows than the service's row limit is rejected while one covering exactly the limit runs.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class CsvReportServiceTest {
+  private static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 1);
+  private static final long SEED = 20200505L;
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   * @throws Exception if a temporary file could not be written or loaded
+   */
+  public static void main(String[] args) throws Exception {
+    Checks checks = new Checks("CsvReportServiceTest");
+    File dir = Files.createTempDirectory("csv-report-test").toFile();
+    try {
+      Random random = new Random(SEED);
+      List<File> files = Arrays.asList(write(dir, "a.csv", random), write(dir, "b.csv", random));
+      FarmTable table = new FarmTable();
+      for (File file : files) {
+        table.loadData(file);
+      }
+      ReportService loaded = new ReportService(table);
+      CsvReportService streamed = new CsvReportService(files);
+      List<ReportQuery> queries = Arrays.asList(ReportQuery.farm("Farm 3"),
+          ReportQuery.month(2019, 6), ReportQuery.year(2019), ReportQuery.year(2020),
+          ReportQuery.range(FIRST_DAY.plusDays(40), FIRST_DAY.plusDays(300)));
+      for (ReportQuery query : queries) {
+        checks.equal(statistics(loaded.run(query)), statistics(streamed.run(query)),
+            query.toString());
+      }
+
+      // every row of the table, then one too many
+      int rows = (int) table.getEntryCount();
+      ReportQuery all = ReportQuery.range(FIRST_DAY.minusDays(1), FIRST_DAY.plusDays(1000));
+      checks.equal(statistics(loaded.run(all)),
+          statistics(new CsvReportService(files, rows).run(all)), "a query at the row limit");
+      try {
+        new CsvReportService(files, rows - 1).run(all);
+        checks.check(false, "a query over the row limit was run");
+      } catch (IllegalArgumentException e) {
+        checks.check(e.getMessage().contains(Integer.toString(rows - 1)),
+            "the rejection names the limit: " + e.getMessage());
+      }
+      try {
+        new CsvReportService(Collections.<File>emptyList(), 0);
+        checks.check(false, "a row limit of 0 was accepted");
+      } catch (IllegalArgumentException e) {
+        checks.check(true, "a row limit of 0 is refused");
+      }
+    } finally {
+      for (File file : dir.listFiles()) {
+        file.delete();
+      }
+      dir.delete();
+    }
+    checks.finish();
+  }
+
+  /**
+   * Writes a csv file of random rows for a few farms over two years, out of date order and with
+   * some farms and dates repeated
+   */
+  private static File write(File dir, String name, Random random) throws IOException {
+    StringBuilder csv = new StringBuilder("date,farm_id,weight\n");
+    for (int i = 0; i < 3000; i++) {
+      LocalDate date = FIRST_DAY.plusDays(random.nextInt(730));
+      csv.append(date.getYear()).append('-').append(date.getMonthValue()).append('-')
+          .append(date.getDayOfMonth()).append(",Farm ").append(random.nextInt(8)).append(',')
+          .append(random.nextInt(5000)).append('\n');
+    }
+    File file = new File(dir, name);
+    Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String statistics(ReportResult result) {
+    WeightStatistics stats = result.getStatistics();
+    return stats.getCount() + " rows, total " + stats.getTotal() + ", min " + stats.getMin()
+        + ", max " + stats.getMax() + ", median " + stats.getMedian() + ", mode "
+        + stats.getMode();
+  }
+}
@@ -0,0 +1,140 @@
+package tests;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import application.EpochDays;
+import application.Farm;
+import application.FarmTable;
+import application.MonthlyRollup;
+
+/**
+ * Checks a farm's monthly rollup against a brute-force scan of the farm's weights while entries
+ * are added, changed and removed in random order. Weights are drawn from a small range so months
+ * have ties for their minimum and maximum, and some changes deliberately remove or move the
+ * current minimum or maximum of a month, which marks it stale. The rollup is read only every few
+ * changes, so several stale marks pile up before a recompute.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class MonthlyRollupTest {
+  private static final int CHANGES = 20_000;
+  private static final int DAYS = 400;
+  private static final LocalDate FIRST_DAY = LocalDate.of(2019, 11, 20);
+  private static final long SEED = 20200502L;
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   */
+  public static void main(String[] args) {
+    Checks checks = new Checks("MonthlyRollupTest");
+    for (FarmTable.Storage storage : FarmTable.Storage.values()) {
+      for (boolean concurrent : new boolean[] {false, true}) {
+        String name = storage + (concurrent ? " concurrent" : "");
+        Farm farm = new Farm("Farm 1", storage, concurrent);
+        TreeMap<Integer, Integer> weights = new TreeMap<>();
+        Random random = new Random(SEED);
+        int mismatches = 0;
+        for (int i = 0; i < CHANGES; i++) {
+          change(farm, weights, random);
+          if (random.nextInt(4) == 0) {
+            mismatches += compare(checks, name + " after change " + i, weights, farm.getRollup());
+          }
+          if (mismatches > 10) {
+            break;
+          }
+        }
+        compare(checks, name + " at the end", weights, farm.getRollup());
+        checks.check(!weights.isEmpty(), name + " ends with entries");
+      }
+    }
+    checks.finish();
+  }
+
+  /**
+   * Makes a random change to the farm and the same change to the expected weights. A third of
+   * the changes remove or edit the minimum or maximum of a random day's month.
+   */
+  private static void change(Farm farm, TreeMap<Integer, Integer> weights, Random random) {
+    int day = (int) FIRST_DAY.toEpochDay() + random.nextInt(DAYS);
+    int weight = random.nextInt(20);
+    int kind = random.nextInt(9);
+    if (kind < 3) {
+      Integer extreme = extremeDay(weights, day, random.nextBoolean());
+      if (extreme == null) {
+        return;
+      }
+      LocalDate date = LocalDate.ofEpochDay(extreme);
+      if (kind == 0) {
+        farm.removeEntry(date);
+        weights.remove(extreme);
+      } else {
+        farm.editEntry(date, weight);
+        weights.put(extreme, weight);
+      }
+    } else if (kind < 7) {
+      farm.addEntry(LocalDate.ofEpochDay(day), weight);
+      weights.put(day, weight);
+    } else if (kind < 8) {
+      farm.editEntry(LocalDate.ofEpochDay(day), weight);
+      weights.replace(day, weight);
+    } else {
+      farm.removeEntry(LocalDate.ofEpochDay(day));
+      weights.remove(day);
+    }
+  }
+
+  /**
+   * Returns a day holding the smallest or largest weight of the given day's month, or null if the
+   * month has no weights
+   */
+  private static Integer extremeDay(TreeMap<Integer, Integer> weights, int day, boolean min) {
+    int month = EpochDays.monthIndex(day);
+    Integer found = null;
+    for (Map.Entry<Integer, Integer> e : month(weights, month).entrySet()) {
+      if (found == null || (min ? e.getValue() < weights.get(found)
+          : e.getValue() > weights.get(found))) {
+        found = e.getKey();
+      }
+    }
+    return found;
+  }
+
+  private static Map<Integer, Integer> month(TreeMap<Integer, Integer> weights, int month) {
+    return weights.subMap(EpochDays.firstDay(month), EpochDays.firstDay(month + 1));
+  }
+
+  /**
+   * Compares the count, total, minimum and maximum of every month the weights can fall in with a
+   * scan of the expected weights, and returns the number of months that differ
+   */
+  private static int compare(Checks checks, String name, TreeMap<Integer, Integer> weights,
+      MonthlyRollup rollup) {
+    int first = EpochDays.monthIndex((int) FIRST_DAY.toEpochDay());
+    int last = EpochDays.monthIndex((int) FIRST_DAY.toEpochDay() + DAYS);
+    int mismatches = 0;
+    for (int m = first - 1; m <= last + 1; m++) {
+      int count = 0;
+      long total = 0;
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (int w : month(weights, m).values()) {
+        count++;
+        total += w;
+        min = Math.min(min, w);
+        max = Math.max(max, w);
+      }
+      String expected = count + " weights, total " + total + ", min " + min + ", max " + max;
+      String actual = rollup.getCount(m) + " weights, total " + rollup.getTotal(m) + ", min "
+          + rollup.getMin(m) + ", max " + rollup.getMax(m);
+      checks.equal(expected, actual, name + " month " + m);
+      if (!expected.equals(actual)) {
+        mismatches++;
+      }
+    }
+    return mismatches;
+  }
+}
@@ -0,0 +1,131 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Random;
+import application.QuantileSketch;
+
+/**
+ * Checks the rank error of QuantileSketch against the exact quantiles of known inputs: uniform,
+ * normal and heavily repeated weights, sorted runs, and many small sketches merged the way month
+ * sketches are. The rank error of a returned weight is how far q times the count lies outside
+ * the ranks that weight holds in the sorted input, as a fraction of the count. The class promises
+ * about 1.5% at the default k and an error shrinking with 1/k, and the minimum and maximum are
+ * checked to be exact.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class QuantileSketchTest {
+  private static final long SEED = 20200506L;
+  private static final double DEFAULT_BOUND = 0.015;
+  private static final int LARGE_K = 800;
+  private static final double LARGE_BOUND = 0.005;
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   */
+  public static void main(String[] args) {
+    Checks checks = new Checks("QuantileSketchTest");
+    Random random = new Random(SEED);
+    int n = 200_000;
+    int[] uniform = new int[n];
+    int[] normal = new int[n];
+    int[] repeated = new int[n];
+    int[] sorted = new int[n];
+    for (int i = 0; i < n; i++) {
+      uniform[i] = random.nextInt(1_000_000) - 500_000;
+      normal[i] = (int) Math.round(5000 + 800 * random.nextGaussian());
+      repeated[i] = 100 * random.nextInt(7);
+      sorted[i] = i;
+    }
+    int[][] inputs = {uniform, normal, repeated, sorted};
+    String[] names = {"uniform", "normal", "repeated", "sorted"};
+    for (int t = 0; t < inputs.length; t++) {
+      for (int k : new int[] {QuantileSketch.DEFAULT_K, LARGE_K}) {
+        double bound = k == LARGE_K ? LARGE_BOUND : DEFAULT_BOUND;
+        QuantileSketch added = new QuantileSketch(k);
+        for (int w : inputs[t]) {
+          added.add(w);
+        }
+        check(checks, names[t] + " k=" + k, inputs[t], added, bound);
+
+        // month sketches of about 30 weights each, merged as a year or range report does
+        QuantileSketch merged = new QuantileSketch(k);
+        for (int from = 0; from < n; from += 30) {
+          QuantileSketch month = new QuantileSketch(k);
+          for (int i = from; i < Math.min(n, from + 30); i++) {
+            month.add(inputs[t][i]);
+          }
+          merged.merge(month);
+        }
+        check(checks, names[t] + " merged k=" + k, inputs[t], merged, bound);
+      }
+    }
+
+    // a sketch that never compacts holds every weight and is exact
+    QuantileSketch small = new QuantileSketch();
+    int[] few = Arrays.copyOf(uniform, 50);
+    for (int w : few) {
+      small.add(w);
+    }
+    check(checks, "50 weights", few, small, 0);
+
+    checks.equal(0, new QuantileSketch().getQuantile(0.5), "an empty sketch");
+    checks.finish();
+  }
+
+  /**
+   * Checks the count, minimum and maximum of the sketch and the rank error of every percentile
+   * against the given bound
+   */
+  private static void check(Checks checks, String name, int[] weights, QuantileSketch sketch,
+      double bound) {
+    int[] sorted = weights.clone();
+    Arrays.sort(sorted);
+    int n = sorted.length;
+    checks.equal((long) n, sketch.getCount(), name + " count");
+    checks.equal(sorted[0] + " " + sorted[n - 1], sketch.getMin() + " " + sketch.getMax(),
+        name + " min and max");
+    double worst = 0;
+    double worstQ = 0;
+    for (int p = 1; p < 100; p++) {
+      double q = p / 100.0;
+      double error = rankError(sorted, sketch.getQuantile(q), q);
+      if (error > worst) {
+        worst = error;
+        worstQ = q;
+      }
+    }
+    checks.check(worst <= bound, name + " rank error " + worst + " at q=" + worstQ
+        + " is over " + bound);
+  }
+
+  /**
+   * Returns how far q times the count lies outside the ranks the given weight holds in the sorted
+   * weights, as a fraction of the count
+   */
+  private static double rankError(int[] sorted, int weight, double q) {
+    int n = sorted.length;
+    // weights below the returned one, and weights at most the returned one
+    int below = lowerBound(sorted, weight);
+    int atMost = lowerBound(sorted, weight + 1);
+    double target = q * n;
+    double outside = target < below ? below - target : target > atMost ? target - atMost : 0;
+    return outside / n;
+  }
+
+  private static int lowerBound(int[] sorted, int value) {
+    int lo = 0;
+    int hi = sorted.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (sorted[mid] < value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+}
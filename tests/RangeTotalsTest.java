@@ -0,0 +1,151 @@
+package tests;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import application.FarmTable;
+import application.RangeTotals;
+
+/**
+ * Checks the range totals read from a farm's running totals against a brute-force sum of the
+ * farm's weights while entries are added, changed and removed in random order. Ranges are read
+ * every few changes, so a change in the middle of the farm leaves several stale totals behind
+ * it, and they include empty ranges, single days and ranges that reach past the first or last
+ * entry. The table's totals over all farms are checked the same way.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class RangeTotalsTest {
+  private static final int CHANGES = 20_000;
+  private static final int FARMS = 3;
+  private static final int DAYS = 500;
+  private static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 1);
+  private static final long SEED = 20200503L;
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   */
+  public static void main(String[] args) {
+    Checks checks = new Checks("RangeTotalsTest");
+    for (FarmTable.Storage storage : FarmTable.Storage.values()) {
+      for (boolean concurrent : new boolean[] {false, true}) {
+        String name = storage + (concurrent ? " concurrent" : "");
+        FarmTable table = new FarmTable(storage, concurrent);
+        @SuppressWarnings("unchecked")
+        TreeMap<Integer, Integer>[] weights = new TreeMap[FARMS];
+        for (int f = 0; f < FARMS; f++) {
+          weights[f] = new TreeMap<>();
+        }
+        Random random = new Random(SEED);
+        int mismatches = 0;
+        for (int i = 0; i < CHANGES && mismatches < 10; i++) {
+          change(table, weights, random);
+          if (random.nextInt(3) == 0) {
+            mismatches += compare(checks, name + " after change " + i, table, weights, random);
+          }
+        }
+        for (int i = 0; i < 100; i++) {
+          compare(checks, name + " at the end", table, weights, random);
+        }
+        checks.check(table.getEntryCount() > 0, name + " ends with entries");
+      }
+    }
+    checks.finish();
+  }
+
+  /**
+   * Makes a random change to a random farm of the table and the same change to its expected
+   * weights
+   */
+  private static void change(FarmTable table, TreeMap<Integer, Integer>[] weights,
+      Random random) {
+    int f = random.nextInt(FARMS);
+    int day = (int) FIRST_DAY.toEpochDay() + random.nextInt(DAYS);
+    LocalDate date = LocalDate.ofEpochDay(day);
+    int weight = random.nextInt(2_000_000) - 1000;
+    int kind = random.nextInt(10);
+    if (kind < 6) {
+      table.addEntry(date, "Farm " + f, weight);
+      weights[f].put(day, weight);
+    } else if (table.getFarm("Farm " + f) == null) {
+      return;
+    } else if (kind < 8) {
+      table.getFarm("Farm " + f).editEntry(date, weight);
+      weights[f].replace(day, weight);
+    } else {
+      table.getFarm("Farm " + f).removeEntry(date);
+      weights[f].remove(day);
+    }
+  }
+
+  /**
+   * Compares the totals of a random range, for one farm and for the whole table, with a sum of
+   * the expected weights, and returns the number that differ
+   */
+  private static int compare(Checks checks, String name, FarmTable table,
+      TreeMap<Integer, Integer>[] weights, Random random) {
+    int start = (int) FIRST_DAY.toEpochDay() - 5 + random.nextInt(DAYS + 10);
+    int end;
+    switch (random.nextInt(4)) {
+      case 0:
+        end = start;
+        break;
+      case 1:
+        end = start - 1 - random.nextInt(3);
+        break;
+      case 2:
+        end = start + random.nextInt(40);
+        break;
+      default:
+        end = start + random.nextInt(DAYS);
+    }
+    LocalDate from = LocalDate.ofEpochDay(start);
+    LocalDate to = LocalDate.ofEpochDay(end);
+    int f = random.nextInt(FARMS);
+    String expectedFarm = "empty";
+    String actualFarm = "empty";
+    if (table.getFarm("Farm " + f) != null) {
+      expectedFarm = describe(sum(weights[f], start, end));
+      actualFarm = describe(table.getFarm("Farm " + f).getRangeTotals(from, to));
+    }
+    long[] all = {0, 0};
+    for (TreeMap<Integer, Integer> farm : weights) {
+      long[] one = sum(farm, start, end);
+      all[0] += one[0];
+      all[1] += one[1];
+    }
+    String expectedTable = describe(all);
+    String actualTable = describe(table.getRangeTotals(from, to));
+    String range = " from " + from + " to " + to;
+    checks.equal(expectedFarm, actualFarm, name + " Farm " + f + range);
+    checks.equal(expectedTable, actualTable, name + " table" + range);
+    return (expectedFarm.equals(actualFarm) ? 0 : 1)
+        + (expectedTable.equals(actualTable) ? 0 : 1);
+  }
+
+  /**
+   * Returns the number and total of the expected weights from start to end, including both days
+   */
+  private static long[] sum(TreeMap<Integer, Integer> weights, int start, int end) {
+    long[] totals = {0, 0};
+    if (end < start) {
+      return totals;
+    }
+    for (Map.Entry<Integer, Integer> e : weights.subMap(start, true, end, true).entrySet()) {
+      totals[0]++;
+      totals[1] += e.getValue();
+    }
+    return totals;
+  }
+
+  private static String describe(long[] totals) {
+    return totals[0] + " entries totalling " + totals[1];
+  }
+
+  private static String describe(RangeTotals totals) {
+    return totals.getCount() + " entries totalling " + totals.getTotal();
+  }
+}
@@ -0,0 +1,122 @@
+package tests;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import application.FarmTable;
+import application.ReportCache;
+import application.ReportQuery;
+import application.ReportResult;
+import application.ReportService;
+import application.WeightStatistics;
+
+/**
+ * Checks the hits and misses of a ReportService's result cache as entries change: repeating a
+ * report is a hit, an edit evicts exactly the cached reports whose farm and month cells include
+ * the edited entry, a bulk load evicts everything, and a full cache drops its least recently used
+ * report. Every report read after an eviction is checked against an uncached service.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class ReportCacheTest {
+  private static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 1);
+
+  private static final List<ReportQuery> QUERIES = Arrays.asList(
+      ReportQuery.farm("Farm A"),
+      ReportQuery.farm("Farm A", 2019),
+      ReportQuery.farm("Farm A", 2020),
+      ReportQuery.farm("Farm B", 2019),
+      ReportQuery.month(2019, 6),
+      ReportQuery.month(2019, 7),
+      ReportQuery.year(2019),
+      ReportQuery.year(2020),
+      ReportQuery.range(LocalDate.of(2019, 6, 10), LocalDate.of(2019, 6, 20)),
+      ReportQuery.range(LocalDate.of(2019, 7, 1), LocalDate.of(2019, 8, 1)));
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   * @throws Exception if a temporary file could not be written or loaded
+   */
+  public static void main(String[] args) throws Exception {
+    Checks checks = new Checks("ReportCacheTest");
+    for (boolean concurrent : new boolean[] {false, true}) {
+      String name = concurrent ? "concurrent" : "ordinary";
+      FarmTable table = new FarmTable(FarmTable.Storage.OBJECTS, concurrent);
+      for (int d = 0; d < 730; d++) {
+        table.addEntry(FIRST_DAY.plusDays(d), "Farm A", d % 97);
+        table.addEntry(FIRST_DAY.plusDays(d), "Farm B", d % 89);
+      }
+      ReportService cached = new ReportService(table, QUERIES.size());
+      ReportService uncached = new ReportService(table);
+      ReportCache<ReportResult> cache = cached.getResultCache();
+
+      runAll(checks, name + " first run", cached, uncached, 0, QUERIES.size());
+      runAll(checks, name + " second run", cached, uncached, QUERIES.size(), 0);
+
+      // farm A in June 2019: A's history, A's 2019, June, the year 2019 and the June range
+      table.getFarm("Farm A").editEntry(LocalDate.of(2019, 6, 15), 5000);
+      runAll(checks, name + " after editing A in June", cached, uncached, 5, 5);
+      // farm B in March 2020: only the year 2020, as no report of farm B covers 2020
+      table.getFarm("Farm B").editEntry(LocalDate.of(2020, 3, 1), 5000);
+      runAll(checks, name + " after editing B in March 2020", cached, uncached, 9, 1);
+      // removing and adding are changes too: A's history, A's 2020 and the year 2020
+      table.removeEntry(LocalDate.of(2020, 12, 30), "Farm A");
+      runAll(checks, name + " after removing from A in 2020", cached, uncached, 7, 3);
+      table.addEntry(LocalDate.of(2019, 7, 4), "Farm C", 1);
+      runAll(checks, name + " after adding farm C in July", cached, uncached, 7, 3);
+      // a change on a day no report covers keeps every report
+      table.addEntry(LocalDate.of(2021, 1, 1), "Farm B", 1);
+      runAll(checks, name + " after adding B in 2021", cached, uncached, 10, 0);
+
+      File csv = File.createTempFile("report-cache-test", ".csv");
+      try {
+        Files.write(csv.toPath(), "date,farm_id,weight\n2018-5-5,Farm D,7\n"
+            .getBytes(StandardCharsets.UTF_8));
+        table.loadData(csv);
+      } finally {
+        csv.delete();
+      }
+      runAll(checks, name + " after a load", cached, uncached, 0, QUERIES.size());
+
+      // one more report than the cache holds drops the least recently used, the first query
+      ReportQuery extra = ReportQuery.month(2020, 1);
+      cached.run(extra);
+      checks.equal(QUERIES.size(), cache.size(), name + " size of a full cache");
+      long misses = cache.getMissCount();
+      cached.run(QUERIES.get(0));
+      checks.equal(misses + 1, cache.getMissCount(), name + " least recently used is dropped");
+      misses = cache.getMissCount();
+      cached.run(QUERIES.get(QUERIES.size() - 1));
+      checks.equal(misses, cache.getMissCount(), name + " recently used is kept");
+    }
+    checks.finish();
+  }
+
+  /**
+   * Runs every query through the cached service, checking the hits and misses it counts and that
+   * each result matches the uncached service
+   */
+  private static void runAll(Checks checks, String name, ReportService cached,
+      ReportService uncached, int hits, int misses) {
+    ReportCache<ReportResult> cache = cached.getResultCache();
+    long hitsBefore = cache.getHitCount();
+    long missesBefore = cache.getMissCount();
+    for (ReportQuery query : QUERIES) {
+      checks.equal(statistics(uncached.run(query)), statistics(cached.run(query)),
+          name + " " + query);
+    }
+    checks.equal(hits + " hits, " + misses + " misses", (cache.getHitCount() - hitsBefore)
+        + " hits, " + (cache.getMissCount() - missesBefore) + " misses", name);
+  }
+
+  private static String statistics(ReportResult result) {
+    WeightStatistics stats = result.getStatistics();
+    return result.getRows().size() + " rows, total " + stats.getTotal() + ", min "
+        + stats.getMin() + ", max " + stats.getMax() + ", median " + stats.getMedian();
+  }
+}
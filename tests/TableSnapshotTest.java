@@ -0,0 +1,149 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import application.Entry;
+import application.FarmTable;
+import application.TableSnapshot;
+
+/**
+ * Checks that TableSnapshot.save and load restore a table exactly, between every pair of storages,
+ * including farms with no entries and farm ids that are not ASCII, and that a truncated snapshot,
+ * one with a bad checksum or one of another version is rejected without adding anything to the
+ * table.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class TableSnapshotTest {
+  private static final String[] FARM_IDS = {
+      "Farm 0", "Farm 1", "", "Ferme \u00e9t\u00e9", "\u725b\u5976\u519c\u573a",
+      "\ud83d\udc04 cows", "a,\"b", "Empty farm"
+  };
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   * @throws IOException if a temporary file could not be written
+   */
+  public static void main(String[] args) throws IOException {
+    Checks checks = new Checks("TableSnapshotTest");
+    File dir = Files.createTempDirectory("snapshot-test").toFile();
+    File file = new File(dir, "table.snapshot");
+    try {
+      for (FarmTable.Storage from : FarmTable.Storage.values()) {
+        for (FarmTable.Storage to : FarmTable.Storage.values()) {
+          for (boolean concurrent : new boolean[] {false, true}) {
+            String name = from + " to " + to + (concurrent ? " concurrent" : "");
+            FarmTable saved = sample(new FarmTable(from, concurrent));
+            TableSnapshot.save(saved, file, 42);
+            FarmTable restored = new FarmTable(to, concurrent);
+            long sequence = TableSnapshot.load(file, restored);
+            checks.equal(42L, sequence, name + " sequence");
+            checks.equal(describe(saved), describe(restored), name + " entries");
+            checks.equal(saved.getEntryCount(), restored.getEntryCount(), name + " entry count");
+            checks.equal(saved.getMonthTotal(2, 2019), restored.getMonthTotal(2, 2019),
+                name + " month total");
+            checks.equal(saved.getYearTotal(2020), restored.getYearTotal(2020),
+                name + " year total");
+          }
+        }
+      }
+      FarmTable withEmpty = new FarmTable();
+      TableSnapshot.load(file, withEmpty);
+      checks.check(describe(withEmpty).contains("\nEmpty farm: \n"),
+          "a farm with no entries is restored");
+
+      FarmTable empty = new FarmTable();
+      TableSnapshot.save(empty, file);
+      FarmTable restored = new FarmTable();
+      checks.equal(0L, TableSnapshot.load(file, restored), "empty table sequence");
+      checks.equal("", describe(restored), "empty table entries");
+
+      TableSnapshot.save(sample(new FarmTable()), file, 7);
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      for (int length : new int[] {0, 4, 27, 28, bytes.length / 2, bytes.length - 8,
+          bytes.length - 1}) {
+        File truncated = new File(dir, "truncated.snapshot");
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, length));
+        rejects(checks, truncated, "truncated to " + length + " of " + bytes.length + " bytes");
+      }
+      for (int at : new int[] {12, 30, bytes.length / 2, bytes.length - 9, bytes.length - 1}) {
+        byte[] corrupt = bytes.clone();
+        corrupt[at] ^= 0x10;
+        File bad = new File(dir, "corrupt.snapshot");
+        Files.write(bad.toPath(), corrupt);
+        rejects(checks, bad, "byte " + at + " of " + bytes.length + " flipped");
+      }
+      // any other version is refused even with a good checksum
+      ByteBuffer other = ByteBuffer.wrap(bytes.clone());
+      other.putInt(4, 1);
+      CRC32 crc = new CRC32();
+      crc.update(other.array(), 0, bytes.length - 8);
+      other.putLong(bytes.length - 8, crc.getValue());
+      File old = new File(dir, "version1.snapshot");
+      Files.write(old.toPath(), other.array());
+      rejects(checks, old, "version 1 snapshot");
+    } finally {
+      for (File f : dir.listFiles()) {
+        f.delete();
+      }
+      dir.delete();
+    }
+    checks.finish();
+  }
+
+  /**
+   * Fills the given table with entries for every farm id but the last, whose farm is left with no
+   * entries
+   */
+  private static FarmTable sample(FarmTable table) {
+    LocalDate first = LocalDate.of(2019, 1, 1);
+    for (int f = 0; f < FARM_IDS.length - 1; f++) {
+      for (int d = 0; d < 500; d += f + 1) {
+        table.addEntry(first.plusDays(d), FARM_IDS[f], (d * 31 + f * 7) % 1000 - 100);
+      }
+    }
+    String empty = FARM_IDS[FARM_IDS.length - 1];
+    table.addEntry(first, empty, 1);
+    table.removeEntry(first, empty);
+    return table;
+  }
+
+  /**
+   * Checks that loading the given file throws an IOException and leaves the table empty
+   */
+  private static void rejects(Checks checks, File file, String what) {
+    FarmTable table = new FarmTable();
+    try {
+      TableSnapshot.load(file, table);
+      checks.check(false, what + " was loaded");
+    } catch (IOException e) {
+      checks.equal("", describe(table), what + " left the table empty");
+    }
+  }
+
+  /**
+   * Returns every farm of the given table, in order of farm id, with its entries as text
+   */
+  private static String describe(FarmTable table) {
+    StringBuilder text = new StringBuilder();
+    for (String farmId : new TreeSet<>(table.getFarms().keySet())) {
+      List<String> rows = new ArrayList<>();
+      for (Entry entry : table.getFarm(farmId).getEntries()) {
+        rows.add(entry.getDate() + "=" + entry.getWeight());
+      }
+      rows.sort(null);
+      text.append(farmId).append(": ").append(String.join(" ", rows)).append('\n');
+    }
+    return text.toString();
+  }
+}
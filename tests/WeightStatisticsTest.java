@@ -0,0 +1,163 @@
+package tests;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import application.Entry;
+import application.WeightStatistics;
+
+/**
+ * Checks WeightStatistics against values worked out by brute force: a sorted copy for the
+ * minimum, maximum and median, a sorted count for the mode and two passes for the mean and
+ * variance. The inputs cover no weights, a single weight, all-equal weights, odd and even counts,
+ * ties for the mode, the extreme int values, sorted and reverse sorted runs and enough distinct
+ * weights to grow the mode counter, and the weights passed in are checked to be left unchanged.
+ *
+ * @author Matthew Woo, Param Bhandare, Russell Cheng
+ */
+public class WeightStatisticsTest {
+  private static final long SEED = 20200504L;
+
+  /**
+   * Runs the checks
+   *
+   * @param args not used
+   */
+  public static void main(String[] args) {
+    Checks checks = new Checks("WeightStatisticsTest");
+    WeightStatistics none = WeightStatistics.of(new int[0], 0);
+    checks.equal("0 0 0 0 0.0 0.0 0.0 0", describe(none), "no weights");
+
+    compare(checks, "single weight", new int[] {42});
+    compare(checks, "single negative weight", new int[] {-7});
+    compare(checks, "all equal, odd", fill(9, 5));
+    compare(checks, "all equal, even", fill(10, 5));
+    compare(checks, "two weights", new int[] {3, 8});
+    compare(checks, "odd count", new int[] {5, 1, 4, 2, 3});
+    compare(checks, "even count", new int[] {6, 1, 4, 2, 3, 5});
+    compare(checks, "even count with a half", new int[] {1, 2});
+    compare(checks, "tie for mode", new int[] {9, 2, 9, 2, 5});
+    compare(checks, "tie for mode with negatives", new int[] {-3, 4, 4, -3, -8, -8});
+    compare(checks, "every weight once", new int[] {30, 10, 20});
+    compare(checks, "extreme ints", new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE});
+    compare(checks, "extreme ints mixed",
+        new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE});
+    compare(checks, "zero and extremes", new int[] {Integer.MIN_VALUE, 0, Integer.MAX_VALUE});
+
+    int[] sorted = new int[1001];
+    int[] reversed = new int[1000];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = i / 3;
+    }
+    for (int i = 0; i < reversed.length; i++) {
+      reversed[i] = reversed.length - i / 2;
+    }
+    compare(checks, "sorted", sorted);
+    compare(checks, "reverse sorted", reversed);
+
+    Random random = new Random(SEED);
+    for (int round = 0; round < 2000; round++) {
+      int n = 1 + random.nextInt(round < 1900 ? 40 : 5000);
+      int range = 1 + random.nextInt(round % 2 == 0 ? 10 : 100_000);
+      int[] weights = new int[n];
+      for (int i = 0; i < n; i++) {
+        weights[i] = random.nextInt(range) - range / 3;
+      }
+      compare(checks, "random " + n + " weights below " + range, weights);
+    }
+
+    // only the first n weights count
+    int[] longer = {4, 1, 3, 100, -100};
+    compare(checks, "first 3 of 5 weights", new int[] {4, 1, 3}, WeightStatistics.of(longer, 3));
+
+    List<Entry> entries = new ArrayList<>();
+    int[] weights = {7, 3, 7, 1, 3};
+    for (int i = 0; i < weights.length; i++) {
+      entries.add(new Entry(LocalDate.of(2019, 1, 1 + i), "Farm 1", weights[i]));
+    }
+    compare(checks, "entries", weights, WeightStatistics.of(entries));
+    checks.finish();
+  }
+
+  private static int[] fill(int n, int weight) {
+    int[] weights = new int[n];
+    Arrays.fill(weights, weight);
+    return weights;
+  }
+
+  /**
+   * Checks the statistics of the given weights against the brute-force ones, and that computing
+   * them left the weights as they were
+   */
+  private static void compare(Checks checks, String what, int[] weights) {
+    int[] before = weights.clone();
+    compare(checks, what, weights, WeightStatistics.of(weights, weights.length));
+    checks.check(Arrays.equals(before, weights), what + " left the weights unchanged");
+  }
+
+  /**
+   * Checks the given statistics against the ones of the given weights worked out the slow way: a
+   * sorted copy for the minimum, maximum and median, a count in ascending order of weight for the
+   * mode and two passes for the mean and variance
+   */
+  private static void compare(Checks checks, String what, int[] weights,
+      WeightStatistics actual) {
+    int n = weights.length;
+    int[] sorted = weights.clone();
+    Arrays.sort(sorted);
+    long total = 0;
+    for (int w : sorted) {
+      total += w;
+    }
+    checks.equal(n + " " + total + " " + sorted[0] + " " + sorted[n - 1],
+        actual.getCount() + " " + actual.getTotal() + " " + actual.getMin() + " "
+            + actual.getMax(),
+        what + " count, total, min and max");
+
+    double median = n % 2 == 1 ? sorted[n / 2]
+        : ((long) sorted[n / 2 - 1] + sorted[n / 2]) / 2.0;
+    checks.equal(median, actual.getMedian(), what + " median");
+
+    TreeMap<Integer, Integer> counts = new TreeMap<>();
+    for (int w : sorted) {
+      counts.merge(w, 1, Integer::sum);
+    }
+    int mode = 0;
+    int best = 0;
+    // ascending order, so the first weight with the highest count is the smallest one
+    for (Map.Entry<Integer, Integer> e : counts.entrySet()) {
+      if (e.getValue() > best) {
+        mode = e.getKey();
+        best = e.getValue();
+      }
+    }
+    checks.equal(mode, actual.getMode(), what + " mode");
+
+    double mean = (double) total / n;
+    double squares = 0;
+    for (int w : sorted) {
+      squares += (w - mean) * (w - mean);
+    }
+    double variance = n > 1 ? squares / (n - 1) : 0;
+    // rounding in a running mean is relative to the size of the weights, not of the mean
+    double scale = Math.max(Math.abs((double) sorted[0]), Math.abs((double) sorted[n - 1]));
+    checks.check(close(mean, actual.getMean(), scale),
+        what + " mean: expected <" + mean + "> but was <" + actual.getMean() + ">");
+    checks.check(close(variance, actual.getVariance(), scale * scale),
+        what + " variance: expected <" + variance + "> but was <" + actual.getVariance() + ">");
+  }
+
+  private static boolean close(double expected, double actual, double scale) {
+    return Math.abs(expected - actual) <= 1e-9 * Math.max(1, scale);
+  }
+
+  private static String describe(WeightStatistics stats) {
+    return stats.getCount() + " " + stats.getTotal() + " " + stats.getMin() + " "
+        + stats.getMax() + " " + stats.getMean() + " " + stats.getVariance() + " "
+        + stats.getMedian() + " " + stats.getMode();
+  }
+}